@@ -0,0 +1,174 @@
+package raymarcher.benchmarks;
+
+import java.awt.Color;
+import java.util.Random;
+
+import raymarcher.Camera;
+import raymarcher.Mesh;
+import raymarcher.MeshGroup;
+import raymarcher.Scene;
+import raymarcher.Vector3;
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * The meshes, scenes and cameras shared by the benchmarks, built the same way every
+ * time so that results can be compared between runs
+ */
+public final class BenchmarkScenes {
+
+    /** The seed for the random placement of meshes */
+    private static final long SEED = 42;
+
+    private BenchmarkScenes() {}
+
+    /**
+     * Creates one of the bundled meshes, centered at the origin
+     * @param type The name of the mesh class, such as "Sphere" or "TriangularPrism"
+     * @return The mesh
+     */
+    public static Mesh mesh(String type) {
+        switch (type) {
+            case "Sphere":
+                return new Sphere(new Vector3(), 1, Color.RED);
+            case "Box":
+                return new Box(new Vector3(), new Vector3(1, 1, 1), Color.BLUE);
+            case "RoundedBox":
+                return new RoundedBox(new Vector3(), new Vector3(1, 1, 1), .2, Color.GREEN);
+            case "Torus":
+                return new Torus(new Vector3(), 1, .5, Color.ORANGE);
+            case "TriangularPrism":
+                return new TriangularPrism(new Vector3(), 1, 1, Color.WHITE);
+            default:
+                throw new IllegalArgumentException("Unknown mesh type: " + type);
+        }
+    }
+
+    /**
+     * Creates a mesh group of a torus and a sphere
+     * @param operation The boolean operation of the group, such as {@link MeshGroup#UNION}
+     * @return The mesh group
+     */
+    public static MeshGroup meshGroup(int operation) {
+        return new MeshGroup(new Torus(new Vector3(), 1, .5, Color.RED), new Sphere(new Vector3(), 1, Color.RED), 
+            operation, Color.RED);
+    }
+
+    /**
+     * Creates a balanced tree of mesh groups, with every bundled primitive type and
+     * boolean operation used in turn, so that the SDF calls within it can't be inlined
+     * @param depth The number of levels of mesh groups, which gives 2^depth primitives
+     * @return The root of the tree
+     */
+    public static Mesh csgTree(int depth) {
+        return csgTree(depth, new int[1]);
+    }
+
+    /**
+     * Creates a subtree of {@link #csgTree(int)}
+     * @param depth The number of levels of mesh groups
+     * @param counter The number of meshes created so far, to choose each mesh's type
+     * @return The root of the subtree
+     */
+    private static Mesh csgTree(int depth, int[] counter) {
+        int index = counter[0]++;
+        if (depth == 0) {
+            String[] types = {"Sphere", "Box", "RoundedBox", "Torus", "TriangularPrism"};
+            return mesh(types[index % types.length]);
+        }
+
+        //union most often, so that the tree doesn't cut itself away
+        int operation = index % 4 == 1 ? MeshGroup.SUBTRACT : index % 4 == 3 ? MeshGroup.INTERSECTION : MeshGroup.UNION;
+        return new MeshGroup(csgTree(depth - 1, counter), csgTree(depth - 1, counter), operation, Color.RED);
+    }
+
+    /**
+     * Creates one of the representative scenes
+     * @param name "single" for one box, "test" for the mixed scene of the example, or 
+     * "many" for 100 spheres and boxes
+     * @return The scene
+     */
+    public static Scene scene(String name) {
+        switch (name) {
+            case "single":
+                return scattered(1);
+            case "test":
+                return testScene();
+            case "many":
+                return scattered(100);
+            default:
+                throw new IllegalArgumentException("Unknown scene: " + name);
+        }
+    }
+
+    /**
+     * Creates a scene with every kind of bundled mesh and a mesh group
+     * @return The scene
+     */
+    public static Scene testScene() {
+        Scene scene = new Scene();
+        scene.add(new Box(new Vector3(0, 0, 0), new Vector3(1, 1, 1), Color.BLUE));
+        scene.add(new Sphere(new Vector3(1.5, .5, 0), .8, Color.BLACK));
+        scene.add(new MeshGroup(new Sphere(new Vector3(-1.5, 0, 0), .6, Color.RED), 
+            new Torus(new Vector3(-1.5, 0, 0), 1, .3, Color.RED), MeshGroup.SUBTRACT, Color.RED));
+        scene.add(new RoundedBox(new Vector3(0, -2, 0), new Vector3(3, .2, 3), .1, Color.GREEN));
+        scene.add(new TriangularPrism(new Vector3(0, 2, -2), 1, 1, Color.WHITE));
+        return scene;
+    }
+
+    /**
+     * Creates a scene of spheres and boxes placed randomly in front of the default camera.
+     * The first mesh is always a box in the center of the view.
+     * @param meshCount The number of meshes in the scene
+     * @return The scene
+     */
+    public static Scene scattered(int meshCount) {
+        Scene scene = new Scene();
+        scene.add(new Box(new Vector3(0, 0, 0), new Vector3(1, 1, 1), Color.BLUE));
+
+        Random random = new Random(SEED);
+        for (int i = 1; i < meshCount; i++) {
+            Vector3 position = new Vector3(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 
+                random.nextDouble() * -20);
+            Color color = new Color(random.nextInt(0x1000000));
+            if (i % 2 == 0)
+                scene.add(new Sphere(position, .2 + random.nextDouble() * .3, color));
+            else
+                scene.add(new Box(position, new Vector3(.3, .3, .3), color));
+        }
+        return scene;
+    }
+
+    /**
+     * Creates the camera of the example scene, looking at the origin from (0, 0, 5)
+     * @param scene The scene to render
+     * @param screenWidth The amount of pixels wide to render
+     * @param screenHeight The amount of pixels tall to render
+     * @return The camera, with its rays set up
+     */
+    public static Camera camera(Scene scene, int screenWidth, int screenHeight) {
+        Camera camera = new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, -1), new Vector3(0, 1, 0), .1, scene);
+
+        //keep the same field of view at every resolution
+        camera.setPixelDistance(camera.getPixelDistance() * 900 / screenWidth);
+        camera.createRays(screenWidth, screenHeight, 20);
+        return camera;
+    }
+
+    /**
+     * Creates points spread around a unit-sized mesh at the origin, some inside and
+     * some outside of it, so that branches in SDFs don't always go the same way
+     * @param count The number of points
+     * @return The points' coordinates, with x, y and z next to each other
+     */
+    public static double[] points(int count) {
+        Random random = new Random(SEED);
+        double[] points = new double[3 * count];
+        for (int i = 0; i < points.length; i++)
+            points[i] = random.nextDouble() * 6 - 3;
+        return points;
+    }
+}
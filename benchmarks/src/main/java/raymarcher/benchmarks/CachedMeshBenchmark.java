@@ -0,0 +1,59 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.CachedMesh;
+import raymarcher.Camera;
+import raymarcher.Mesh;
+import raymarcher.Scene;
+
+/**
+ * Measures rendering a frame of a tree of mesh groups, evaluated directly or through a
+ * brick cache. The cache is filled during warmup, so this measures the cost of marching
+ * through the cached bricks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachedMeshBenchmark {
+
+    @Param({"3", "6"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private Camera camera;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        Mesh mesh = BenchmarkScenes.csgTree(depth);
+        Scene scene = new Scene();
+        scene.add(cached ? new CachedMesh(mesh, .05) : mesh);
+
+        camera = BenchmarkScenes.camera(scene, 320, 200);
+        pixels = new int[320 * 200];
+    }
+
+    @Benchmark
+    public int[] render() {
+        camera.render(pixels);
+        return pixels;
+    }
+}
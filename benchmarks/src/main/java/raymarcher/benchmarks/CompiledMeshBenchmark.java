@@ -0,0 +1,58 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Mesh;
+import raymarcher.SceneCompiler;
+
+/**
+ * Measures the SDF of a tree of mesh groups, evaluated through the tree of meshes or 
+ * compiled into an instruction tape
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledMeshBenchmark {
+
+    @Param({"1", "3", "5"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private Mesh mesh;
+    private double[] points;
+
+    @Setup
+    public void setup() {
+        mesh = BenchmarkScenes.csgTree(depth);
+        if (compiled)
+            mesh = SceneCompiler.compile(mesh);
+        points = BenchmarkScenes.points(MeshBenchmark.POINTS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MeshBenchmark.POINTS)
+    public double sdf() {
+        double sum = 0;
+        for (int i = 0; i < points.length; i += 3)
+            sum += mesh.sdf(points[i], points[i + 1], points[i + 2]);
+        return sum;
+    }
+}
@@ -0,0 +1,85 @@
+package raymarcher.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.distributed.RenderCoordinator;
+import raymarcher.distributed.RenderWorker;
+
+/**
+ * Measures rendering full frames through a coordinator and local workers listening on
+ * loopback sockets, against rendering them on the camera's own threads, which shows the
+ * cost of serializing the scene and sending the tiles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistributedRenderBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int workerCount;
+
+    @Param({"16", "64"})
+    public int tileSize;
+
+    private Camera camera;
+    private ArrayList<RenderWorker> workers;
+    private RenderCoordinator coordinator;
+    private int[] pixels;
+
+    @Setup
+    public void setup() throws IOException {
+        camera = BenchmarkScenes.camera(BenchmarkScenes.scattered(40), 900, 600);
+        camera.setTileSize(tileSize);
+        pixels = new int[900 * 600];
+
+        //each worker gets an equal share of the processors
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, workerCount));
+        workers = new ArrayList<RenderWorker>();
+        ArrayList<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+        for (int i = 0; i < workerCount; i++) {
+            RenderWorker worker = new RenderWorker(InetAddress.getLoopbackAddress(), 0, threads);
+            worker.start();
+            workers.add(worker);
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort()));
+        }
+        coordinator = new RenderCoordinator(addresses);
+        coordinator.setTileSize(tileSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        coordinator.close();
+        for (RenderWorker worker : workers)
+            worker.close();
+    }
+
+    @Benchmark
+    public int[] render() throws IOException {
+        if (workerCount == 0)
+            camera.renderFrame(camera.getScene(), camera.getRayGenerator(), pixels);
+        else
+            coordinator.render(camera, pixels);
+        return pixels;
+    }
+}
@@ -0,0 +1,58 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.GBuffer;
+import raymarcher.RayGenerator;
+
+/**
+ * Measures rendering frames without a G-buffer, with a G-buffer of the depth, mesh and
+ * march steps of each pixel, and with a G-buffer that also keeps surface normals
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GBufferBenchmark {
+
+    @Param({"none", "gbuffer", "normals"})
+    public String output;
+
+    private Camera camera;
+    private RayGenerator rays;
+    private GBuffer buffer;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        camera = BenchmarkScenes.camera(BenchmarkScenes.scattered(40), 900, 600);
+        rays = camera.getRayGenerator();
+        if (!output.equals("none"))
+            buffer = new GBuffer(900, 600, output.equals("normals"));
+        pixels = new int[900 * 600];
+    }
+
+    @Benchmark
+    public int[] render() {
+        if (buffer == null)
+            camera.renderFrame(camera.getScene(), rays, pixels);
+        else
+            camera.renderFrame(camera.getScene(), rays, pixels, buffer);
+        return pixels;
+    }
+}
@@ -0,0 +1,64 @@
+package raymarcher.benchmarks;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.Scene;
+import raymarcher.Vector3;
+import raymarcher.meshes.Sphere;
+
+/**
+ * Measures rendering frames of a still scene in which one small sphere moves every 
+ * frame, marching the whole frame or only the pixels the sphere could have changed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalRenderBenchmark {
+
+    @Param({"10", "100"})
+    public int meshCount;
+
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    private Camera camera;
+    private Sphere ball;
+    private int[] pixels;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        Scene scene = BenchmarkScenes.scattered(meshCount);
+        ball = new Sphere(new Vector3(0, 0, 1), .2, Color.MAGENTA);
+        scene.add(ball);
+
+        camera = BenchmarkScenes.camera(scene, 900, 600);
+        camera.setIncrementalRendering(incremental);
+        pixels = new int[900 * 600];
+    }
+
+    @Benchmark
+    public int[] render() {
+        frame++;
+        ball.setPosition(new Vector3(Math.sin(frame * .1) * 1.5, Math.cos(frame * .13) * .8, 1));
+        camera.render(pixels);
+        return pixels;
+    }
+}
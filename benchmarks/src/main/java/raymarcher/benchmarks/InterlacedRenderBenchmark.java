@@ -0,0 +1,59 @@
+package raymarcher.benchmarks;
+
+import java.awt.Canvas;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.InterlacedRendering;
+
+/**
+ * Measures rendering frames while a key is held to move the camera, marching every
+ * pixel or only half of them in each of the interlacing patterns
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterlacedRenderBenchmark {
+
+    @Param({"none", "checkerboard", "rows"})
+    public String pattern;
+
+    private Camera camera;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        camera = BenchmarkScenes.camera(BenchmarkScenes.scattered(40), 900, 600);
+        if (pattern.equals("checkerboard"))
+            camera.setInterlacedRendering(InterlacedRendering.CHECKERBOARD);
+        if (pattern.equals("rows"))
+            camera.setInterlacedRendering(InterlacedRendering.ROWS);
+        pixels = new int[900 * 600];
+
+        //hold a key so that the camera slowly strafes left every frame
+        camera.keyPressed(new KeyEvent(new Canvas(), KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_A, 'a'));
+        camera.setMovementSpeed(.01);
+    }
+
+    @Benchmark
+    public int[] render() {
+        camera.render(pixels);
+        return pixels;
+    }
+}
@@ -0,0 +1,72 @@
+package raymarcher.benchmarks;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.GBuffer;
+import raymarcher.RayGenerator;
+import raymarcher.Scene;
+import raymarcher.Vector3;
+import raymarcher.lights.DirectionalLight;
+import raymarcher.lights.PointLight;
+
+/**
+ * Measures rendering frames shaded by different numbers of lights, against the same
+ * frame in flat colors, with the surface normals estimated while shading or taken from
+ * a G-buffer that kept them
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LightingBenchmark {
+
+    @Param({"0", "1", "4"})
+    public int lightCount;
+
+    @Param({"false", "true"})
+    public boolean gBufferNormals;
+
+    private Camera camera;
+    private RayGenerator rays;
+    private GBuffer buffer;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        Scene scene = BenchmarkScenes.scattered(40);
+        if (lightCount > 0)
+            scene.addLight(new DirectionalLight(new Vector3(-1, -2, -1), .8, Color.WHITE));
+        for (int i = 1; i < lightCount; i++)
+            scene.addLight(new PointLight(new Vector3(i * 4 - 8, 5, -10), 30, new Color(255, 240, 200)));
+
+        camera = BenchmarkScenes.camera(scene, 900, 600);
+        rays = camera.getRayGenerator();
+        buffer = gBufferNormals ? new GBuffer(900, 600, true) : null;
+        pixels = new int[900 * 600];
+    }
+
+    @Benchmark
+    public int[] render() {
+        if (buffer == null)
+            camera.renderFrame(camera.getScene(), rays, pixels);
+        else
+            camera.renderFrame(camera.getScene(), rays, pixels, buffer);
+        return pixels;
+    }
+}
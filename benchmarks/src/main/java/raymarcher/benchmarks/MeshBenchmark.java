@@ -0,0 +1,68 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Mesh;
+import raymarcher.Vector3;
+
+/**
+ * Measures the SDF of each bundled mesh, through both the primitive and the Vector3 entry points
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshBenchmark {
+
+    /** The number of points each invocation evaluates the SDF at */
+    static final int POINTS = 1024;
+
+    @Param({"Sphere", "Box", "RoundedBox", "Torus", "TriangularPrism"})
+    public String type;
+
+    private Mesh mesh;
+    private double[] points;
+    private Vector3[] vectors;
+
+    @Setup
+    public void setup() {
+        mesh = BenchmarkScenes.mesh(type);
+        points = BenchmarkScenes.points(POINTS);
+        vectors = new Vector3[POINTS];
+        for (int i = 0; i < POINTS; i++)
+            vectors[i] = new Vector3(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double sdf() {
+        double sum = 0;
+        for (int i = 0; i < points.length; i += 3)
+            sum += mesh.sdf(points[i], points[i + 1], points[i + 2]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double sdfVector() {
+        double sum = 0;
+        for (int i = 0; i < vectors.length; i++)
+            sum += mesh.sdf(vectors[i]);
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.MeshGroup;
+
+/**
+ * Measures the SDF of a mesh group of a torus and a sphere for each boolean operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshGroupBenchmark {
+
+    @Param({"UNION", "SUBTRACT", "INTERSECTION"})
+    public String operation;
+
+    private MeshGroup group;
+    private double[] points;
+
+    @Setup
+    public void setup() {
+        int op = operation.equals("UNION") ? MeshGroup.UNION 
+            : operation.equals("SUBTRACT") ? MeshGroup.SUBTRACT : MeshGroup.INTERSECTION;
+        group = BenchmarkScenes.meshGroup(op);
+        points = BenchmarkScenes.points(MeshBenchmark.POINTS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MeshBenchmark.POINTS)
+    public double sdf() {
+        double sum = 0;
+        for (int i = 0; i < points.length; i += 3)
+            sum += group.sdf(points[i], points[i + 1], points[i + 2]);
+        return sum;
+    }
+}
@@ -0,0 +1,72 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.MeshGroup;
+import raymarcher.Scene;
+
+/**
+ * Measures rendering a frame of a single mesh on one thread with each ray marched by 
+ * itself or in SIMD packets, so that the speedup of packets can be compared for each 
+ * type of mesh. If the Vector API isn't available, both are marched one ray at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PacketBenchmark {
+
+    @Param({"Sphere", "Box", "RoundedBox", "Torus", "TriangularPrism", "Union", "Subtract", "Intersection"})
+    public String type;
+
+    @Param({"false", "true"})
+    public boolean packets;
+
+    private Camera camera;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        Scene scene = new Scene();
+        switch (type) {
+            case "Union":
+                scene.add(BenchmarkScenes.meshGroup(MeshGroup.UNION));
+                break;
+            case "Subtract":
+                scene.add(BenchmarkScenes.meshGroup(MeshGroup.SUBTRACT));
+                break;
+            case "Intersection":
+                scene.add(BenchmarkScenes.meshGroup(MeshGroup.INTERSECTION));
+                break;
+            default:
+                scene.add(BenchmarkScenes.mesh(type));
+        }
+
+        camera = BenchmarkScenes.camera(scene, 320, 200);
+        camera.setThreadCount(1);
+        if (packets && !camera.setRayPackets(true))
+            System.err.println("The Vector API is unavailable, so rays are marched one at a time");
+        pixels = new int[320 * 200];
+    }
+
+    @Benchmark
+    public int[] render() {
+        camera.render(pixels);
+        return pixels;
+    }
+}
@@ -0,0 +1,78 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.Ray;
+import raymarcher.RayGenerator;
+import raymarcher.Scene;
+import raymarcher.marching.AnalyticTracing;
+import raymarcher.marching.BisectionSphereTracing;
+import raymarcher.marching.RelaxedSphereTracing;
+import raymarcher.marching.SphereTracing;
+
+/**
+ * Measures marching single rays through representative scenes with each march strategy,
+ * using a sample of the rays of a 900x600 frame so that both hits and misses are included
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RayBenchmark {
+
+    /** The number of rays marched each invocation */
+    static final int RAYS = 256;
+
+    @Param({"single", "test", "many"})
+    public String scene;
+
+    @Param({"sphere", "relaxed", "bisection", "analytic"})
+    public String strategy;
+
+    private Scene marchedScene;
+    private Ray[] rays;
+
+    @Setup
+    public void setup() {
+        marchedScene = BenchmarkScenes.scene(scene);
+        marchedScene.updateHierarchy();
+        switch (strategy) {
+            case "relaxed": marchedScene.setMarchStrategy(new RelaxedSphereTracing()); break;
+            case "bisection": marchedScene.setMarchStrategy(new BisectionSphereTracing()); break;
+            case "analytic": marchedScene.setMarchStrategy(new AnalyticTracing()); break;
+            default: marchedScene.setMarchStrategy(new SphereTracing());
+        }
+        Camera camera = BenchmarkScenes.camera(marchedScene, 900, 600);
+        RayGenerator generator = camera.getRayGenerator();
+
+        //a diagonal sweep across the frame
+        rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++)
+            rays[i] = generator.createRay(i * 899 / (RAYS - 1), (i * 37) % 600);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int calculate() {
+        int colors = 0;
+        for (int i = 0; i < rays.length; i++)
+            colors ^= rays[i].calculate(marchedScene);
+        return colors;
+    }
+}
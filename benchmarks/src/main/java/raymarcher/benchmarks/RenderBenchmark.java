@@ -0,0 +1,59 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+
+/**
+ * Measures rendering a full frame with Camera.render at several resolutions and mesh counts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"320x200", "900x600", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "10", "100", "1000"})
+    public int meshCount;
+
+    /** The number of render threads, where 0 uses one per available processor */
+    @Param({"0"})
+    public int threads;
+
+    private Camera camera;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        int width = Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+        int height = Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+
+        camera = BenchmarkScenes.camera(BenchmarkScenes.scattered(meshCount), width, height);
+        if (threads > 0)
+            camera.setThreadCount(threads);
+        pixels = new int[width * height];
+    }
+
+    @Benchmark
+    public int[] render() {
+        camera.render(pixels);
+        return pixels;
+    }
+}
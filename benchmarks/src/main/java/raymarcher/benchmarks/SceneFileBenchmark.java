@@ -0,0 +1,151 @@
+package raymarcher.benchmarks;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Mesh;
+import raymarcher.MeshGroup;
+import raymarcher.Scene;
+import raymarcher.SceneFile;
+import raymarcher.Vector3;
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * Measures writing and loading scene files of every bundled mesh, with half of the
+ * primitives nested in trees of mesh groups. That the loaded scenes equal the ones
+ * written is checked by SceneFileTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SceneFileBenchmark {
+
+    /** The seed for the random meshes */
+    private static final long SEED = 42;
+    /** The number of primitives in each tree of mesh groups */
+    private static final int TREE_SIZE = 16;
+
+    @Param({"1000", "100000"})
+    public int primitiveCount;
+
+    private Scene scene;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        scene = generate(primitiveCount);
+        file = File.createTempFile("scene", ".rms");
+        file.deleteOnExit();
+        SceneFile.write(scene, file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public Scene read() throws IOException {
+        return SceneFile.read(file);
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        SceneFile.write(scene, file);
+        return file;
+    }
+
+    /**
+     * Creates a scene of random primitives of every type, half of which are loose and
+     * half of which are combined into trees of mesh groups of every operation
+     * @param primitiveCount The number of primitives in the scene
+     * @return The scene
+     */
+    private static Scene generate(int primitiveCount) {
+        Scene scene = new Scene();
+        scene.setWorldColor(new Color(0x20, 0x30, 0x40));
+        Random random = new Random(SEED);
+
+        ArrayList<Mesh> tree = new ArrayList<Mesh>();
+        for (int i = 0; i < primitiveCount; i++) {
+            Mesh mesh = primitive(random);
+            if (i % 2 == 0) {
+                scene.add(mesh);
+                continue;
+            }
+
+            //combine each tree's primitives in pairs, then the pairs in pairs, and so on
+            tree.add(mesh);
+            if (tree.size() == TREE_SIZE || i >= primitiveCount - 2) {
+                while (tree.size() > 1) {
+                    ArrayList<Mesh> level = new ArrayList<Mesh>();
+                    for (int j = 0; j + 1 < tree.size(); j += 2)
+                        level.add(new MeshGroup(tree.get(j), tree.get(j + 1), random.nextInt(3), randomColor(random)));
+                    if (tree.size() % 2 == 1)
+                        level.add(tree.get(tree.size() - 1));
+                    tree = level;
+                }
+                scene.add(tree.get(0));
+                tree.clear();
+            }
+        }
+        return scene;
+    }
+
+    /**
+     * Creates a random one of the bundled meshes
+     * @param random The source of randomness
+     * @return The mesh
+     */
+    private static Mesh primitive(Random random) {
+        Vector3 position = new Vector3(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+            random.nextDouble() * -100);
+        Color color = randomColor(random);
+        switch (random.nextInt(5)) {
+            case 0:
+                return new Sphere(position, random.nextDouble(), color);
+            case 1:
+                return new Box(position, new Vector3(random.nextDouble(), random.nextDouble(), random.nextDouble()), color);
+            case 2:
+                return new RoundedBox(position, new Vector3(random.nextDouble(), random.nextDouble(), random.nextDouble()),
+                    random.nextDouble() * .1, color);
+            case 3:
+                return new Torus(position, random.nextDouble(), random.nextDouble() * .2, color);
+            default:
+                return new TriangularPrism(position, random.nextDouble(), random.nextDouble(), color);
+        }
+    }
+
+    /**
+     * Creates a random color from a small palette, as generated scenes tend to use
+     * @param random The source of randomness
+     * @return The color
+     */
+    private static Color randomColor(Random random) {
+        return new Color(random.nextInt(8) * 0x202020 + 0x101010);
+    }
+}
@@ -0,0 +1,56 @@
+package raymarcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Mesh;
+import raymarcher.SceneSdf;
+import raymarcher.SdfGenerator;
+
+/**
+ * Measures the startup cost of specializing a scene's SDF: generating and defining a new
+ * class, and checking an unchanged scene against the class that was already generated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SdfGenerationBenchmark {
+
+    @Param({"single", "test", "many"})
+    public String scene;
+
+    private ArrayList<Mesh> meshes;
+    private SdfGenerator generator;
+
+    @Setup
+    public void setup() {
+        meshes = BenchmarkScenes.scene(scene).getMeshes();
+        generator = new SdfGenerator();
+        generator.generate(meshes);
+    }
+
+    @Benchmark
+    public SceneSdf generate() {
+        return new SdfGenerator().generate(meshes);
+    }
+
+    @Benchmark
+    public SceneSdf regenerateUnchanged() {
+        return generator.generate(meshes);
+    }
+}
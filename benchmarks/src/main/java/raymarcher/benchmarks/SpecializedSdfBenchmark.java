@@ -0,0 +1,57 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Scene;
+
+/**
+ * Measures the SDF of representative scenes, evaluated through the bounding volume 
+ * hierarchy or through a generated class specialized to the scene
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecializedSdfBenchmark {
+
+    @Param({"single", "test", "many"})
+    public String scene;
+
+    @Param({"false", "true"})
+    public boolean specialized;
+
+    private Scene evaluatedScene;
+    private double[] points;
+
+    @Setup
+    public void setup() {
+        evaluatedScene = BenchmarkScenes.scene(scene);
+        evaluatedScene.setSpecialized(specialized);
+        evaluatedScene.updateHierarchy();
+        points = BenchmarkScenes.points(MeshBenchmark.POINTS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MeshBenchmark.POINTS)
+    public double sdf() {
+        double sum = 0;
+        for (int i = 0; i < points.length; i += 3)
+            sum += evaluatedScene.sdf(points[i], points[i + 1], points[i + 2]);
+        return sum;
+    }
+}
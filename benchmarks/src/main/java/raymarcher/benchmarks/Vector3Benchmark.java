@@ -0,0 +1,89 @@
+package raymarcher.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Vector3;
+
+/**
+ * Measures the Vector3 operations used while setting up and marching rays
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector3Benchmark {
+
+    private Vector3 a;
+    private Vector3 b;
+    private double angle;
+
+    @Setup
+    public void setup() {
+        a = new Vector3(1.5, -2.25, 3.125);
+        b = new Vector3(-.5, .75, 2);
+        angle = Math.PI / 50;
+    }
+
+    @Benchmark
+    public Vector3 add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Vector3 subtract() {
+        return a.subtract(b);
+    }
+
+    @Benchmark
+    public Vector3 multiply() {
+        return a.multiply(angle);
+    }
+
+    @Benchmark
+    public Vector3 abs() {
+        return a.abs();
+    }
+
+    @Benchmark
+    public double length() {
+        return a.length();
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        return a.dotProduct(b);
+    }
+
+    @Benchmark
+    public Vector3 crossProduct() {
+        return a.crossProduct(b);
+    }
+
+    @Benchmark
+    public Vector3 getUnitVector() {
+        return a.getUnitVector();
+    }
+
+    @Benchmark
+    public Vector3 rotateY() {
+        return a.rotateY(angle);
+    }
+
+    @Benchmark
+    public Vector3 addInPlace() {
+        return a.clone().addInPlace(b);
+    }
+}
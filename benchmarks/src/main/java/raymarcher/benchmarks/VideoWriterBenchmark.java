@@ -0,0 +1,65 @@
+package raymarcher.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raymarcher.Camera;
+import raymarcher.VideoWriter;
+
+/**
+ * Measures writing a rendered 900x600 frame to a video file in each format, including
+ * any time spent blocked while the writer thread catches up with the disk. The same 
+ * frame is written each time, so delta frames after the first are empty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VideoWriterBenchmark {
+
+    @Param({"raw", "y4m", "delta"})
+    public String format;
+
+    private VideoWriter writer;
+    private File file;
+    private int[] pixels;
+
+    @Setup
+    public void setup() throws IOException {
+        Camera camera = BenchmarkScenes.camera(BenchmarkScenes.testScene(), 900, 600);
+        pixels = new int[900 * 600];
+        camera.render(pixels);
+
+        int videoFormat = format.equals("raw") ? VideoWriter.RAW : format.equals("y4m") ? VideoWriter.Y4M 
+            : VideoWriter.DELTA;
+        file = File.createTempFile("raymarcher", "." + format);
+        writer = new VideoWriter(file, 900, 600, videoFormat, 60);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        writer.write(pixels);
+    }
+}
@@ -0,0 +1,30 @@
+package raymarcher;
+
+/**
+ * The interface for meshes whose ray hits can be solved for directly, instead of being 
+ * approached with many steps of marching. Rays that pass close by such a mesh without 
+ * hitting it, which take the most steps to march, are answered just as quickly as any 
+ * other. The {@link raymarcher.marching.AnalyticTracing} strategy intersects these meshes
+ * and only marches the rest of the scene.
+ */
+public interface AnalyticMesh extends Mesh {
+
+    /**
+     * Finds where a ray first comes within a distance of the mesh's surface, which is the
+     * same as intersecting the mesh grown by that distance. Passing the epsilon rays are 
+     * marched with gives a hit wherever marching the mesh would have hit it.
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param offset The distance from the surface which counts as a hit
+     * @param maxDistance The farthest distance along the ray to look for a hit
+     * @return The distance along the ray to the first point within the offset of the 
+     * surface, 0 if the ray starts within it, or positive infinity if the ray doesn't
+     * come within it before the max distance
+     */
+    public double intersect(double x, double y, double z, double dx, double dy, double dz, double offset, 
+        double maxDistance);
+}
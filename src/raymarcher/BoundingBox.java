@@ -0,0 +1,160 @@
+package raymarcher;
+
+import java.io.Serializable;
+
+/**
+ * An axis-aligned box in 3D space which fully contains a mesh, used to skip meshes 
+ * that are too far away from a ray to matter. Bounding boxes are immutable.
+ */
+public class BoundingBox implements Serializable {
+
+    /** Default Serial Version ID for Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** A bounding box which covers all of 3D space, used for meshes whose size isn't known */
+    public static final BoundingBox INFINITE = new BoundingBox(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    /** The lowest coordinates of the box along each axis */
+    private final double minX, minY, minZ;
+    /** The highest coordinates of the box along each axis */
+    private final double maxX, maxY, maxZ;
+
+    /**
+     * Creates a bounding box between two corners
+     * @param min The corner of the box with the lowest coordinates
+     * @param max The corner of the box with the highest coordinates
+     */
+    public BoundingBox(Vector3 min, Vector3 max) {
+        this(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+    }
+
+    /**
+     * Creates a bounding box between two corners
+     * @param minX The lowest x-coordinate of the box
+     * @param minY The lowest y-coordinate of the box
+     * @param minZ The lowest z-coordinate of the box
+     * @param maxX The highest x-coordinate of the box
+     * @param maxY The highest y-coordinate of the box
+     * @param maxZ The highest z-coordinate of the box
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Creates a bounding box centered on a point
+     * @param center The center of the box
+     * @param extentX The distance from the center to the box's faces along the x-axis
+     * @param extentY The distance from the center to the box's faces along the y-axis
+     * @param extentZ The distance from the center to the box's faces along the z-axis
+     * @return The bounding box
+     */
+    public static BoundingBox fromCenter(Vector3 center, double extentX, double extentY, double extentZ) {
+        extentX = Math.abs(extentX);
+        extentY = Math.abs(extentY);
+        extentZ = Math.abs(extentZ);
+        return new BoundingBox(center.getX() - extentX, center.getY() - extentY, center.getZ() - extentZ, 
+            center.getX() + extentX, center.getY() + extentY, center.getZ() + extentZ);
+    }
+
+    /**
+     * @return The corner of the box with the lowest coordinates
+     */
+    public Vector3 getMin() {
+        return new Vector3(minX, minY, minZ);
+    }
+
+    /**
+     * @return The corner of the box with the highest coordinates
+     */
+    public Vector3 getMax() {
+        return new Vector3(maxX, maxY, maxZ);
+    }
+
+    /** @return The lowest x-coordinate of the box */
+    public double getMinX() {
+        return minX;
+    }
+
+    /** @return The lowest y-coordinate of the box */
+    public double getMinY() {
+        return minY;
+    }
+
+    /** @return The lowest z-coordinate of the box */
+    public double getMinZ() {
+        return minZ;
+    }
+
+    /** @return The highest x-coordinate of the box */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /** @return The highest y-coordinate of the box */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /** @return The highest z-coordinate of the box */
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * @return Whether or not the box has a finite size along every axis
+     */
+    public boolean isFinite() {
+        return Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(minZ)
+            && Double.isFinite(maxX) && Double.isFinite(maxY) && Double.isFinite(maxZ);
+    }
+
+    /**
+     * Gives the smallest box containing both this box and another
+     * @param box The other box
+     * @return The bounding box of the two boxes' union
+     */
+    public BoundingBox union(BoundingBox box) {
+        return new BoundingBox(Math.min(minX, box.minX), Math.min(minY, box.minY), Math.min(minZ, box.minZ), 
+            Math.max(maxX, box.maxX), Math.max(maxY, box.maxY), Math.max(maxZ, box.maxZ));
+    }
+
+    /**
+     * Gives the box of the space common to both this box and another. If the boxes 
+     * don't overlap, the resulting box is empty and is infinitely far from every point.
+     * @param box The other box
+     * @return The bounding box of the two boxes' intersection
+     */
+    public BoundingBox intersection(BoundingBox box) {
+        return new BoundingBox(Math.max(minX, box.minX), Math.max(minY, box.minY), Math.max(minZ, box.minZ), 
+            Math.min(maxX, box.maxX), Math.min(maxY, box.maxY), Math.min(maxZ, box.maxZ));
+    }
+
+    /**
+     * Gives the distance from a point to the closest point of the box
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @return The distance to the box, which is 0 if the point is inside it
+     */
+    public double distance(double x, double y, double z) {
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            return Double.POSITIVE_INFINITY;
+
+        double dx = Math.max(Math.max(minX - x, x - maxX), 0);
+        double dy = Math.max(Math.max(minY - y, y - maxY), 0);
+        double dz = Math.max(Math.max(minZ - z, z - maxZ), 0);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    @Override
+    public String toString() {
+        return ("[" + getMin() + ", " + getMax() + "]");
+    }
+}
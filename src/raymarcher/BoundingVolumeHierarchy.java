@@ -0,0 +1,414 @@
+package raymarcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounding volume hierarchy (BVH) over the meshes of a scene. The meshes' bounding
+ * boxes are grouped into a tree of larger boxes, so that finding the distance to the
+ * scene only evaluates the SDFs of meshes whose boxes are closer than the closest mesh
+ * found so far. The tree is built once and is immutable afterwards, so it can be
+ * shared between render threads. If meshes move, a new hierarchy has to be built.
+ * <a href="https://en.wikipedia.org/wiki/Bounding_volume_hierarchy">Wikipedia Bounding Volume Hierarchy</a>
+ */
+public class BoundingVolumeHierarchy {
+
+    /** The most meshes stored in each leaf of the tree */
+    private static final int LEAF_SIZE = 4;
+
+    /** The meshes inside the tree, ordered so that each leaf's meshes are next to each other */
+    private final Mesh[] meshes;
+    /** The index of each mesh of the tree in the list it was built from */
+    private final int[] meshIndices;
+    /** The meshes with infinite bounding boxes, which are evaluated at every point */
+    private final Mesh[] unbounded;
+    /** The index of each unbounded mesh in the list it was built from */
+    private final int[] unboundedIndices;
+    /** The bounding boxes of the tree's nodes, stored as 6 values (min x, y, z, then max x, y, z) per node */
+    private final double[] nodeBounds;
+    /** The index of the node after each node's subtree, which traversal continues at if the node is skipped */
+    private final int[] skip;
+    /** The index of the first mesh of each leaf node */
+    private final int[] first;
+    /** The number of meshes in each leaf node, which is 0 for nodes that aren't leaves */
+    private final int[] count;
+    /** The number of nodes in the tree */
+    private int nodeCount;
+
+    /**
+     * Builds a hierarchy over a list of meshes
+     * @param meshList The meshes to include in the hierarchy
+     */
+    public BoundingVolumeHierarchy(List<Mesh> meshList) {
+
+        //sort out the meshes that can't be placed in the tree
+        ArrayList<Integer> bounded = new ArrayList<Integer>();
+        ArrayList<Integer> infinite = new ArrayList<Integer>();
+        BoundingBox[] boxes = new BoundingBox[meshList.size()];
+        for (int i = 0; i < meshList.size(); i++) {
+            boxes[i] = meshList.get(i).getBounds();
+            if (boxes[i].isFinite()) {
+                if (boxes[i].getMinX() <= boxes[i].getMaxX() && boxes[i].getMinY() <= boxes[i].getMaxY()
+                    && boxes[i].getMinZ() <= boxes[i].getMaxZ())
+                    bounded.add(i);         //meshes with empty boxes can never be hit and are left out
+            }
+            else
+                infinite.add(i);
+        }
+
+        unbounded = new Mesh[infinite.size()];
+        unboundedIndices = new int[infinite.size()];
+        for (int i = 0; i < infinite.size(); i++) {
+            unboundedIndices[i] = infinite.get(i);
+            unbounded[i] = meshList.get(unboundedIndices[i]);
+        }
+
+        meshIndices = new int[bounded.size()];
+        for (int i = 0; i < bounded.size(); i++)
+            meshIndices[i] = bounded.get(i);
+
+        //a binary tree with n leaves has 2n - 1 nodes, and there are never more leaves than meshes
+        int maxNodes = Math.max(1, 2 * bounded.size() - 1);
+        nodeBounds = new double[6 * maxNodes];
+        skip = new int[maxNodes];
+        first = new int[maxNodes];
+        count = new int[maxNodes];
+        if (bounded.size() > 0)
+            build(boxes, 0, bounded.size());
+
+        meshes = new Mesh[bounded.size()];
+        for (int i = 0; i < meshes.length; i++)
+            meshes[i] = meshList.get(meshIndices[i]);
+    }
+
+    /**
+     * Builds the subtree for a range of the meshes, splitting it in half along the axis
+     * its boxes' centers are most spread out over. Nodes are stored in depth-first order.
+     * @param boxes The bounding boxes of every mesh in the original list
+     * @param start The index of the first mesh of the range, inclusive
+     * @param end The index of the last mesh of the range, exclusive
+     */
+    private void build(BoundingBox[] boxes, int start, int end) {
+        int node = nodeCount++;
+
+        //find the node's box and the spread of the box centers
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        double[] centerMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] centerMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = start; i < end; i++) {
+            BoundingBox box = boxes[meshIndices[i]];
+            minX = Math.min(minX, box.getMinX());
+            minY = Math.min(minY, box.getMinY());
+            minZ = Math.min(minZ, box.getMinZ());
+            maxX = Math.max(maxX, box.getMaxX());
+            maxY = Math.max(maxY, box.getMaxY());
+            maxZ = Math.max(maxZ, box.getMaxZ());
+            for (int axis = 0; axis < 3; axis++) {
+                double center = center(box, axis);
+                centerMin[axis] = Math.min(centerMin[axis], center);
+                centerMax[axis] = Math.max(centerMax[axis], center);
+            }
+        }
+        nodeBounds[6 * node] = minX;
+        nodeBounds[6 * node + 1] = minY;
+        nodeBounds[6 * node + 2] = minZ;
+        nodeBounds[6 * node + 3] = maxX;
+        nodeBounds[6 * node + 4] = maxY;
+        nodeBounds[6 * node + 5] = maxZ;
+
+        if (end - start <= LEAF_SIZE) {
+            first[node] = start;
+            count[node] = end - start;
+        }
+        else {
+            int axis = 0;
+            for (int i = 1; i < 3; i++) {
+                if (centerMax[i] - centerMin[i] > centerMax[axis] - centerMin[axis])
+                    axis = i;
+            }
+
+            //place the half of the meshes with the lowest centers first
+            int middle = (start + end) >>> 1;
+            select(boxes, start, end - 1, middle, axis);
+            build(boxes, start, middle);
+            build(boxes, middle, end);
+        }
+
+        skip[node] = nodeCount;
+    }
+
+    /**
+     * Partially sorts a range of the meshes by their box centers along an axis, so that
+     * the mesh at index k is in its sorted position, with no higher centers before it and
+     * no lower centers after it (quickselect)
+     * @param boxes The bounding boxes of every mesh in the original list
+     * @param low The index of the first mesh of the range, inclusive
+     * @param high The index of the last mesh of the range, inclusive
+     * @param k The index to place in its sorted position
+     * @param axis The axis to sort along, where 0 is x, 1 is y and 2 is z
+     */
+    private void select(BoundingBox[] boxes, int low, int high, int k, int axis) {
+        while (low < high) {
+            double pivot = center(boxes[meshIndices[(low + high) >>> 1]], axis);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (center(boxes[meshIndices[i]], axis) < pivot)
+                    i++;
+                while (center(boxes[meshIndices[j]], axis) > pivot)
+                    j--;
+                if (i <= j) {
+                    int temp = meshIndices[i];
+                    meshIndices[i] = meshIndices[j];
+                    meshIndices[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                high = j;
+            else if (k >= i)
+                low = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Gives the center of a bounding box along an axis
+     * @param box The bounding box
+     * @param axis The axis, where 0 is x, 1 is y and 2 is z
+     * @return The coordinate of the box's center along the axis
+     */
+    private static double center(BoundingBox box, int axis) {
+        if (axis == 0)
+            return (box.getMinX() + box.getMaxX()) / 2;
+        if (axis == 1)
+            return (box.getMinY() + box.getMaxY()) / 2;
+        return (box.getMinZ() + box.getMaxZ()) / 2;
+    }
+
+    /**
+     * Gives the squared distance from a point to a node's bounding box
+     * @param node The index of the node
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @return The squared distance to the node's box, which is 0 if the point is inside it
+     */
+    private double distanceSquared(int node, double x, double y, double z) {
+        int b = 6 * node;
+        double dx = Math.max(Math.max(nodeBounds[b] - x, x - nodeBounds[b + 3]), 0);
+        double dy = Math.max(Math.max(nodeBounds[b + 1] - y, y - nodeBounds[b + 4]), 0);
+        double dz = Math.max(Math.max(nodeBounds[b + 2] - z, z - nodeBounds[b + 5]), 0);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Checks whether a node can be skipped because every point in its box is farther
+     * away from the point being measured than the closest distance found so far
+     * @param squared The squared distance from the point to the node's box
+     * @param best The closest distance found so far
+     * @return Whether or not the node's meshes can't be any closer than best
+     */
+    private static boolean canSkip(double squared, double best) {
+        //points inside the box are never skipped, so overlapping meshes are still compared when inside them
+        return squared > 0 && (best <= 0 || squared >= best * best);
+    }
+
+    /**
+     * Gives the signed distance from a point to the closest mesh in the hierarchy
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @return The smallest signed distance of any mesh to the point, or positive infinity
+     * if the hierarchy has no meshes
+     */
+    public double sdf(double x, double y, double z) {
+        return sdf(x, y, z, null);
+    }
+
+    /**
+     * Gives the signed distance from a point to the closest mesh in the hierarchy
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @param statistics The shard to count the mesh SDF evaluations in, or null to not count them
+     * @return The smallest signed distance of any mesh to the point, or positive infinity
+     * if the hierarchy has no meshes
+     */
+    public double sdf(double x, double y, double z, RenderStatistics.Shard statistics) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < unbounded.length; i++)
+            best = Math.min(best, unbounded[i].sdf(x, y, z));
+        if (statistics != null)
+            statistics.recordEvaluations(unbounded.length);
+
+        if (nodeCount > 0 && !canSkip(distanceSquared(0, x, y, z), best))
+            best = sdf(0, x, y, z, best, statistics);
+        return best;
+    }
+
+    /**
+     * Gives the signed distance from a point to the closest mesh in a node's subtree,
+     * visiting the child whose box is closer first so that the other can more often be skipped
+     * @param node The index of the node
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @param best The closest distance found so far
+     * @param statistics The shard to count the mesh SDF evaluations in, or null to not count them
+     * @return The smaller of best and the distance to the subtree's closest mesh
+     */
+    private double sdf(int node, double x, double y, double z, double best, RenderStatistics.Shard statistics) {
+        if (count[node] > 0) {
+            for (int i = first[node]; i < first[node] + count[node]; i++)
+                best = Math.min(best, meshes[i].sdf(x, y, z));
+            if (statistics != null)
+                statistics.recordEvaluations(count[node]);
+            return best;
+        }
+
+        //the left child directly follows its parent, and the right child follows the left's subtree
+        int near = node + 1;
+        int far = skip[near];
+        double nearDist = distanceSquared(near, x, y, z);
+        double farDist = distanceSquared(far, x, y, z);
+        if (farDist < nearDist) {
+            int tempNode = near;
+            near = far;
+            far = tempNode;
+            double tempDist = nearDist;
+            nearDist = farDist;
+            farDist = tempDist;
+        }
+
+        if (!canSkip(nearDist, best))
+            best = sdf(near, x, y, z, best, statistics);
+        if (!canSkip(farDist, best))
+            best = sdf(far, x, y, z, best, statistics);
+        return best;
+    }
+
+    /**
+     * Finds the mesh in the hierarchy which is closest to a point
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @return The index of the closest mesh in the list the hierarchy was built from,
+     * or -1 if the hierarchy has no meshes
+     */
+    public int nearest(double x, double y, double z) {
+        double best = Double.POSITIVE_INFINITY;
+        int nearest = -1;
+        for (int i = 0; i < unbounded.length; i++) {
+            double sdf = unbounded[i].sdf(x, y, z);
+            if (sdf < best || nearest == -1) {
+                best = sdf;
+                nearest = unboundedIndices[i];
+            }
+        }
+
+        int node = 0;
+        while (node < nodeCount) {
+            if (canSkip(distanceSquared(node, x, y, z), best)) {
+                node = skip[node];
+                continue;
+            }
+            for (int i = first[node]; i < first[node] + count[node]; i++) {
+                double sdf = meshes[i].sdf(x, y, z);
+                if (sdf < best || nearest == -1) {
+                    best = sdf;
+                    nearest = meshIndices[i];
+                }
+            }
+            node++;
+        }
+        return nearest;
+    }
+
+    /**
+     * Finds the mesh in the hierarchy which a ray hits first, solving for each hit 
+     * directly. Only the meshes whose boxes the ray passes through before the closest hit
+     * found so far are intersected. Every mesh in the hierarchy must be an 
+     * {@link AnalyticMesh}.
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param offset The distance from each mesh's surface which counts as a hit
+     * @param maxDistance The farthest distance along the ray to look for a hit
+     * @param statistics The shard to count the meshes intersected in, or null to not count them
+     * @param result The result to write the hit to, as a single step, if the ray hits a 
+     * mesh. Its mesh index is the index in the list the hierarchy was built from.
+     * @return Whether or not the ray hits a mesh before the max distance
+     */
+    public boolean intersect(double x, double y, double z, double dx, double dy, double dz, double offset, 
+        double maxDistance, RenderStatistics.Shard statistics, RayHit result) {
+
+        double best = maxDistance;
+        int hit = -1;
+        int evaluations = unbounded.length;
+        for (int i = 0; i < unbounded.length; i++) {
+            double distance = ((AnalyticMesh) unbounded[i]).intersect(x, y, z, dx, dy, dz, offset, best);
+            if (distance <= best && (hit == -1 || distance < best)) {
+                best = distance;
+                hit = unboundedIndices[i];
+            }
+        }
+
+        double inverseX = 1 / dx, inverseY = 1 / dy, inverseZ = 1 / dz;
+        int node = 0;
+        while (node < nodeCount) {
+            if (!crosses(node, x, y, z, inverseX, inverseY, inverseZ, offset, best)) {
+                node = skip[node];
+                continue;
+            }
+            for (int i = first[node]; i < first[node] + count[node]; i++) {
+                double distance = ((AnalyticMesh) meshes[i]).intersect(x, y, z, dx, dy, dz, offset, best);
+                if (distance <= best && (hit == -1 || distance < best)) {
+                    best = distance;
+                    hit = meshIndices[i];
+                }
+            }
+            evaluations += count[node];
+            node++;
+        }
+
+        if (statistics != null)
+            statistics.recordEvaluations(evaluations);
+        if (hit == -1)
+            return false;
+        result.set(true, best, 1, hit, x + dx * best, y + dy * best, z + dz * best);
+        return true;
+    }
+
+    /**
+     * Checks whether a ray passes through a node's bounding box, grown by an offset, 
+     * between its start and a distance along it
+     * @param node The index of the node
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param inverseX 1 divided by the x-component of the ray's direction
+     * @param inverseY 1 divided by the y-component of the ray's direction
+     * @param inverseZ 1 divided by the z-component of the ray's direction
+     * @param offset The distance to grow the box by on every side
+     * @param maxDistance The distance along the ray to check up to
+     * @return Whether or not the ray passes through the box
+     */
+    private boolean crosses(int node, double x, double y, double z, double inverseX, double inverseY, 
+        double inverseZ, double offset, double maxDistance) {
+
+        int b = 6 * node;
+        double x1 = (nodeBounds[b] - offset - x) * inverseX, x2 = (nodeBounds[b + 3] + offset - x) * inverseX;
+        double y1 = (nodeBounds[b + 1] - offset - y) * inverseY, y2 = (nodeBounds[b + 4] + offset - y) * inverseY;
+        double z1 = (nodeBounds[b + 2] - offset - z) * inverseZ, z2 = (nodeBounds[b + 5] + offset - z) * inverseZ;
+        double near = Math.max(Math.max(Math.min(x1, x2), Math.min(y1, y2)), Math.max(Math.min(z1, z2), 0));
+        double far = Math.min(Math.min(Math.max(x1, x2), Math.max(y1, y2)), Math.min(Math.max(z1, z2), maxDistance));
+        return near <= far;
+    }
+}
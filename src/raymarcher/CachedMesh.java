@@ -0,0 +1,320 @@
+package raymarcher;
+
+import java.awt.Color;
+
+/**
+ * A mesh which caches the SDF of another mesh, for meshes whose SDF is expensive to
+ * evaluate, such as deep trees of mesh groups or custom meshes. Space is split into a
+ * grid of bricks, each of which samples the wrapped SDF at the corners of its 8x8x8
+ * cells the first time a point within it is queried. Later queries within the brick
+ * are answered by trilinear interpolation of the samples, so marching through the mesh
+ * costs about the same no matter how complex it is.
+ * <p>
+ * The interpolated distance can be off by up to the length of a cell's diagonal, so it
+ * is moved toward 0 by that much, which keeps rays from ever stepping through the mesh.
+ * Near the surface, where this would make rays take many small steps and where hits
+ * must be exact, the wrapped SDF is evaluated directly. This assumes the wrapped SDF
+ * never overestimates the distance to the mesh, as the SDFs of the bundled meshes don't.
+ * Points more than a brick away from the mesh's bounding box aren't cached, and are
+ * given the distance to the box instead, so that rays passing far from the mesh don't
+ * fill the cache. Meshes without finite bounds are cached everywhere rays go.
+ * <p>
+ * The bricks are kept in a cache of a fixed number of sets of 4 bricks, found by the hash
+ * of their position, and the least recently used brick of a set is replaced when a new
+ * brick is sampled into it. The cache is read without locking, so the mesh can be
+ * evaluated by several render threads at once. The wrapped mesh must not change while it
+ * is cached, unless the cache is {@link #clear() cleared} afterwards. The bricks aren't
+ * serialized, so a deserialized mesh starts with an empty cache.
+ */
+public class CachedMesh implements Mesh {
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
+
+    /** The default amount of memory, in bytes, the bricks may take up */
+    public static final long DEFAULT_MEMORY = 64L << 20;
+
+    /** The number of cells along each edge of a brick */
+    private static final int BRICK_CELLS = 8;
+    /** The number of samples along each edge of a brick, which shares its outer samples with its neighbors */
+    private static final int BRICK_SAMPLES = BRICK_CELLS + 1;
+    /** The approximate amount of memory, in bytes, each brick takes up */
+    private static final int BRICK_BYTES = BRICK_SAMPLES * BRICK_SAMPLES * BRICK_SAMPLES * Double.BYTES + 48;
+    /** The number of bricks in each set of the cache */
+    private static final int WAYS = 4;
+    /** The largest brick coordinate whose position fits in a brick's key */
+    private static final int MAX_BRICK = (1 << 20) - 1;
+
+    /** The mesh whose SDF is cached */
+    private final Mesh mesh;
+    /** The length of each edge of a cell */
+    private final double cellSize;
+    /** The number of cells per unit of length */
+    private final double inverseCellSize;
+    /** The length of a cell's diagonal, which is the most an interpolated distance can be off by */
+    private final double maxError;
+    /** The bricks of every set, with the bricks of each set next to each other, which aren't serialized */
+    private final transient Brick[] bricks;
+    /** The number of sets less 1, which masks a hash into the index of a set */
+    private final int setMask;
+    /** The bounds of the mesh when it was cached or the cache was last cleared */
+    private volatile BoundingBox bounds;
+    /** Whether or not the bounds are finite, so that points far from them can be given the distance to them */
+    private volatile boolean bounded;
+    /** The length of each edge of a brick */
+    private final double brickSize;
+    /** A counter of the bricks sampled, which stamps each brick when it is used */
+    private long clock;
+
+    /**
+     * Caches the SDF of a mesh, with up to {@link #DEFAULT_MEMORY} bytes of bricks
+     * @param mesh The mesh whose SDF to cache
+     * @param cellSize The distance between the samples of each brick. Smaller cells give
+     * longer steps, but take longer to sample and fit fewer bricks in the cache.
+     */
+    public CachedMesh(Mesh mesh, double cellSize) {
+        this(mesh, cellSize, DEFAULT_MEMORY);
+    }
+
+    /**
+     * Caches the SDF of a mesh
+     * @param mesh The mesh whose SDF to cache
+     * @param cellSize The distance between the samples of each brick. Smaller cells give
+     * longer steps, but take longer to sample and fit fewer bricks in the cache.
+     * @param memory The approximate amount of memory, in bytes, the bricks may take up
+     */
+    public CachedMesh(Mesh mesh, double cellSize, long memory) {
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("The cell size must be > 0");
+
+        //the number of sets is rounded down to a power of 2
+        long sets = Math.max(1, Math.min(1 << 24, memory / BRICK_BYTES / WAYS));
+        sets = Long.highestOneBit(sets);
+
+        this.mesh = mesh;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+        this.maxError = cellSize * Math.sqrt(3);
+        this.bricks = new Brick[(int) sets * WAYS];
+        this.setMask = (int) sets - 1;
+        this.bounds = mesh.getBounds();
+        this.bounded = bounds.isFinite();
+        this.brickSize = cellSize * BRICK_CELLS;
+    }
+
+    /**
+     * @return The mesh whose SDF is cached
+     */
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * @return The distance between the samples of each brick
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return The number of bricks currently in the cache
+     */
+    public int getBrickCount() {
+        int count = 0;
+        for (Brick brick : bricks) {
+            if (brick != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The most bricks the cache can hold
+     */
+    public int getCapacity() {
+        return bricks.length;
+    }
+
+    /**
+     * Removes every brick from the cache, so that it is sampled again, and takes the
+     * bounds of the wrapped mesh again. This must be called after changing the wrapped
+     * mesh.
+     */
+    public void clear() {
+        for (int i = 0; i < bricks.length; i++)
+            bricks[i] = null;
+
+        BoundingBox current = mesh.getBounds();
+        bounds = current;
+        bounded = current.isFinite();
+    }
+
+    @Override
+    public Color getMeshColor() {
+        return mesh.getMeshColor();
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    @Override
+    public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
+
+        //the distance to the bounds never overestimates the distance to the mesh
+        BoundingBox box = bounds;
+        if (bounded) {
+            double distance = box.distance(x, y, z);
+            if (distance > brickSize)
+                return distance;
+        }
+
+        //find the brick the point is in, and where it is within the brick
+        double gx = x * inverseCellSize;
+        double gy = y * inverseCellSize;
+        double gz = z * inverseCellSize;
+        double bx = Math.floor(gx * (1.0 / BRICK_CELLS));
+        double by = Math.floor(gy * (1.0 / BRICK_CELLS));
+        double bz = Math.floor(gz * (1.0 / BRICK_CELLS));
+
+        //points too far out for a brick's key are evaluated directly
+        if (!(Math.abs(bx) < MAX_BRICK && Math.abs(by) < MAX_BRICK && Math.abs(bz) < MAX_BRICK))
+            return mesh.sdf(x, y, z);
+
+        Brick brick = getBrick((int) bx, (int) by, (int) bz);
+        double lx = gx - bx * BRICK_CELLS;
+        double ly = gy - by * BRICK_CELLS;
+        double lz = gz - bz * BRICK_CELLS;
+        int cx = Math.min((int) lx, BRICK_CELLS - 1);
+        int cy = Math.min((int) ly, BRICK_CELLS - 1);
+        int cz = Math.min((int) lz, BRICK_CELLS - 1);
+        double tx = lx - cx;
+        double ty = ly - cy;
+        double tz = lz - cz;
+
+        //interpolate between the 8 corners of the cell
+        double[] s = brick.samples;
+        int i = (cx * BRICK_SAMPLES + cy) * BRICK_SAMPLES + cz;
+        int dx = BRICK_SAMPLES * BRICK_SAMPLES;
+        int dy = BRICK_SAMPLES;
+        double c00 = s[i] + (s[i + dx] - s[i]) * tx;
+        double c01 = s[i + 1] + (s[i + dx + 1] - s[i + 1]) * tx;
+        double c10 = s[i + dy] + (s[i + dx + dy] - s[i + dy]) * tx;
+        double c11 = s[i + dy + 1] + (s[i + dx + dy + 1] - s[i + dy + 1]) * tx;
+        double c0 = c00 + (c10 - c00) * ty;
+        double c1 = c01 + (c11 - c01) * ty;
+        double distance = c0 + (c1 - c0) * tz;
+
+        //near the surface, the interpolated distance is too rough to use
+        if (Math.abs(distance) <= 2 * maxError)
+            return mesh.sdf(x, y, z);
+        return distance > 0 ? distance - maxError : distance + maxError;
+    }
+
+    /**
+     * Replaces a deserialized mesh, whose bricks weren't serialized, with one with an
+     * empty cache of the same size
+     * @return The mesh with an empty cache
+     */
+    private Object readResolve() {
+        return new CachedMesh(mesh, cellSize, (long) (setMask + 1) * WAYS * BRICK_BYTES);
+    }
+
+    /**
+     * Finds a brick in the cache, sampling it if it isn't there
+     * @param bx The x-coordinate of the brick, in bricks from the origin
+     * @param by The y-coordinate of the brick, in bricks from the origin
+     * @param bz The z-coordinate of the brick, in bricks from the origin
+     * @return The brick
+     */
+    private Brick getBrick(int bx, int by, int bz) {
+        long key = ((long) (bx & 0x1FFFFF) << 42) | ((long) (by & 0x1FFFFF) << 21) | (bz & 0x1FFFFF);
+        int set = (int) (mix(key) & setMask) * WAYS;
+        long now = clock;
+
+        //the least recently used brick of the set is replaced if the brick isn't found
+        int oldest = set;
+        long oldestUse = Long.MAX_VALUE;
+        for (int i = set; i < set + WAYS; i++) {
+            Brick brick = bricks[i];
+            if (brick == null) {
+                oldest = i;
+                oldestUse = Long.MIN_VALUE;
+                continue;
+            }
+            if (brick.key == key) {
+                //only written when it changes, so threads don't keep writing the same brick
+                if (brick.lastUsed != now)
+                    brick.lastUsed = now;
+                return brick;
+            }
+            if (brick.lastUsed < oldestUse) {
+                oldest = i;
+                oldestUse = brick.lastUsed;
+            }
+        }
+
+        Brick brick = new Brick(key, bx, by, bz);
+        brick.lastUsed = ++clock;
+        bricks[oldest] = brick;
+        return brick;
+    }
+
+    /**
+     * Mixes the bits of a brick's key, so that nearby bricks fall in different sets
+     * @param key The brick's key
+     * @return The hash of the key
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * The samples of the wrapped SDF at the corners of each cell within a brick. Its
+     * fields are final, so it can be shared with other threads without locking.
+     */
+    private class Brick {
+
+        /** The brick's coordinates packed into one value */
+        private final long key;
+        /** The sampled distances, indexed by x, then y, then z */
+        private final double[] samples;
+        /** The value of the cache's clock when the brick was last used */
+        private long lastUsed;
+
+        /**
+         * Samples a brick
+         * @param key The brick's coordinates packed into one value
+         * @param bx The x-coordinate of the brick, in bricks from the origin
+         * @param by The y-coordinate of the brick, in bricks from the origin
+         * @param bz The z-coordinate of the brick, in bricks from the origin
+         */
+        private Brick(long key, int bx, int by, int bz) {
+            this.key = key;
+            this.samples = new double[BRICK_SAMPLES * BRICK_SAMPLES * BRICK_SAMPLES];
+
+            //samples are placed on the same global grid so neighboring bricks agree on their shared faces
+            long startX = (long) bx * BRICK_CELLS;
+            long startY = (long) by * BRICK_CELLS;
+            long startZ = (long) bz * BRICK_CELLS;
+            int i = 0;
+            for (int x = 0; x < BRICK_SAMPLES; x++) {
+                for (int y = 0; y < BRICK_SAMPLES; y++) {
+                    for (int z = 0; z < BRICK_SAMPLES; z++) {
+                        samples[i++] = mesh.sdf((startX + x) * cellSize, (startY + y) * cellSize,
+                            (startZ + z) * cellSize);
+                    }
+                }
+            }
+        }
+    }
+}
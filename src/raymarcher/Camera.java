@@ -2,6 +2,10 @@ package raymarcher;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import raymarcher.marching.SphereTracing;
 
 /**
  * Represents the camera in 3D space from which the scene will 
@@ -22,8 +26,46 @@ public class Camera implements KeyListener{
     private double screenDistance;
     /** The scene which the camera should render */
     private Scene scene;
-    /** An array of the rays the camera shoots out, in the order of left to right for each row, from top to bottom */
-    private Ray[] rays;
+    /** The amount of pixels wide the camera's render is */
+    private int screenWidth;
+    /** The amount of pixels tall the camera's render is */
+    private int screenHeight;
+    /** The maximum distance for a ray to travel before assuming it has hit nothing */
+    private double renderDistance;
+    /** The number of threads used to render each frame. A value of 1 renders on the calling thread */
+    private int threadCount;
+    /** The width and height, in pixels, of the square tiles the frame is split into for rendering */
+    private int tileSize;
+    /** The work-stealing pool the tiles of a frame are rendered on, or null if rendering serially */
+    private ForkJoinPool renderPool;
+    /** The collector of statistics about each rendered frame, or null if statistics are disabled */
+    private volatile RenderStatistics statistics;
+    /** The distances of the last frame's rays reused to start the next frame's rays, or null if disabled */
+    private volatile TemporalReprojection temporalReprojection;
+    /** The cone march which finds where each block of rays can start from, or null if disabled */
+    private volatile DepthPrepass depthPrepass;
+    /** The marcher which marches groups of rays at once with SIMD instructions, or null if disabled */
+    private volatile PacketMarcher packetMarcher;
+    /** The reuse of the last frame where the scene's meshes didn't change, or null if disabled */
+    private volatile IncrementalRendering incrementalRendering;
+    /** The marching of half of each frame's pixels while the camera moves, or null if disabled */
+    private volatile InterlacedRendering interlacedRendering;
+    /** Whether or not frames rendered with render() fill a G-buffer */
+    private volatile boolean gBufferEnabled;
+    /** Whether or not the G-buffer keeps the surface normal each ray hit */
+    private volatile boolean gBufferNormals;
+    /** The G-buffer of the last frame rendered with render(), or null if none was filled */
+    private volatile GBuffer gBuffer;
+    /** The G-buffer lit frames are shaded from when no other G-buffer is filled, or null if none was needed */
+    private GBuffer shadingBuffer;
+    /** The rays of the last frame rendered with render(), or null if none has been */
+    private RayGenerator renderedRays;
+    /** The scene of the last frame rendered with render() */
+    private Scene renderedScene;
+    /** The version of the scene when the last frame was rendered with render() */
+    private long renderedSceneVersion;
+    /** Whether or not the last frame rendered with render() only marched half of its pixels */
+    private boolean renderedInterlaced;
     /** The distance, in scene units between the center of each pixel and the one adjacent to it. Decreasing this has a similar effect
     to increasing screenDistance */
     private double pixelDistance;
@@ -102,6 +144,10 @@ public class Camera implements KeyListener{
         //set movement speed
         this.movementSpeed = 1/10.0;
         this.rotationSpeed = Math.PI / 50;
+
+        //set multithreading
+        this.tileSize = 32;
+        setThreadCount(Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -167,6 +213,13 @@ public class Camera implements KeyListener{
         rightDirection = direction.crossProduct(upDirection);
     }
 
+    /**
+     * @return the direction which is rightwards for the camera
+     */
+    public Vector3 getRightDirection() {
+        return rightDirection;
+    }
+
     /**
      * @return the distance from the camera to the screen it renders to
      */
@@ -200,6 +253,10 @@ public class Camera implements KeyListener{
      */
     public void setScene(Scene newScene) {
         this.scene = newScene;
+
+        TemporalReprojection temporal = temporalReprojection;
+        if (temporal != null)
+            temporal.reset();
     }
 
     /**
@@ -257,18 +314,288 @@ public class Camera implements KeyListener{
     public void setRotationSpeed(double rotationSpeed) {
         this.rotationSpeed = rotationSpeed;
     }
+
+    /**
+     * @return The number of threads used to render each frame
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Sets the number of threads used to render each frame. The frame is split
+     * into tiles which are rendered on a work-stealing pool of this size.
+     * @param threadCount The new number of render threads. Values < 1 are treated
+     * as 1, which renders every pixel on the thread calling {@link #render(int[])}
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            threadCount = 1;
+        if (threadCount == this.threadCount)
+            return;
+
+        if (renderPool != null)
+            renderPool.shutdown();
+        this.threadCount = threadCount;
+        this.renderPool = threadCount > 1 ? new ForkJoinPool(threadCount) : null;
+    }
+
+    /**
+     * @return The width and height, in pixels, of the tiles each frame is split into
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param tileSize The new width and height, in pixels, of the tiles each frame is 
+     * split into. Smaller tiles balance the work between threads better, while larger 
+     * ones have less overhead. This value must be > 0.
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize < 1)
+            this.tileSize = 1;
+        else
+            this.tileSize = tileSize;
+    }
     
 
+    /**
+     * @return Whether or not statistics are collected about each rendered frame
+     */
+    public boolean isStatisticsEnabled() {
+        return statistics != null;
+    }
+
+    /**
+     * Sets whether or not to collect statistics about each rendered frame, such as its 
+     * render time and how many march steps and SDF evaluations it took. Collecting them
+     * slows rendering slightly, so they are disabled by default.
+     * @param enabled Whether or not to collect statistics
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        if (enabled && statistics == null)
+            statistics = new RenderStatistics();
+        if (!enabled)
+            statistics = null;
+    }
+
+    /**
+     * @return The statistics of the last rendered frame, or null if statistics are disabled
+     * or no frame has been rendered since they were enabled
+     */
+    public FrameStatistics getStatistics() {
+        RenderStatistics current = statistics;
+        return current == null ? null : current.getLastFrame();
+    }
+
+    /**
+     * @return Whether or not the distances rays traveled in the last frame are reused as
+     * starting points for the next frame's rays
+     */
+    public boolean isTemporalReprojection() {
+        return temporalReprojection != null;
+    }
+
+    /**
+     * Sets whether or not to reuse the distances rays traveled in the last frame as starting
+     * points for the next frame's rays, skipping most of their march steps while the camera
+     * moves smoothly. The distances are projected through the camera's movement, but not
+     * through movement of the scene's meshes, so frames rendered with 
+     * {@link #render(int[], int, int)} discard them whenever the scene's 
+     * {@link Scene#getVersion() version} changes. Frames rendered with 
+     * {@link #renderFrame(Scene, RayGenerator, int[])} need 
+     * {@link #resetTemporalReprojection()} to be called after moving meshes instead.
+     * Disabled by default.
+     * @param enabled Whether or not to reuse the last frame's distances
+     */
+    public void setTemporalReprojection(boolean enabled) {
+        if (enabled && temporalReprojection == null)
+            temporalReprojection = new TemporalReprojection();
+        if (!enabled)
+            temporalReprojection = null;
+    }
+
+    /**
+     * Discards the distances of the last frame, so that the next frame is marched in full.
+     * Must be called after moving meshes of the scene when temporal reprojection is enabled
+     * and frames are rendered with {@link #renderFrame(Scene, RayGenerator, int[])}, which
+     * doesn't check the scene's version.
+     */
+    public void resetTemporalReprojection() {
+        TemporalReprojection temporal = temporalReprojection;
+        if (temporal != null)
+            temporal.reset();
+    }
+
+    /**
+     * @return Whether or not a cone is marched through each block of pixels to find where
+     * their rays can start from
+     */
+    public boolean isDepthPrepass() {
+        return depthPrepass != null;
+    }
+
+    /**
+     * Sets whether or not to march a cone through each block of pixels before their rays, 
+     * so that the rays start from where the cone first came near a mesh. This skips the 
+     * empty space every ray of a block passes through, which saves the most steps in large,
+     * open scenes. Disabled by default.
+     * @param enabled Whether or not to march cones before the rays
+     */
+    public void setDepthPrepass(boolean enabled) {
+        if (enabled && depthPrepass == null)
+            depthPrepass = new DepthPrepass();
+        if (!enabled)
+            depthPrepass = null;
+    }
+
+    /**
+     * Enables marching a cone through each block of pixels before their rays, with blocks
+     * of a given size. See {@link #setDepthPrepass(boolean)}.
+     * @param blockSize The width and height, in pixels, of each block of pixels that shares 
+     * a cone. This value must be > 0.
+     */
+    public void setDepthPrepass(int blockSize) {
+        depthPrepass = new DepthPrepass(blockSize);
+    }
+
+    /**
+     * @return Whether or not rays are marched in packets with SIMD instructions
+     */
+    public boolean isRayPackets() {
+        return packetMarcher != null;
+    }
+
+    /**
+     * Sets whether or not to march each row of rays in packets, evaluating every ray of a 
+     * packet at once with the SIMD instructions of the Java Vector API. Packets evaluate 
+     * every mesh of the scene instead of searching its hierarchy, so they are fastest in 
+     * scenes with few meshes. Rays are only marched in packets while the scene uses 
+     * {@link raymarcher.marching.SphereTracing}, and give the same image as marching each 
+     * ray by itself. Disabled by default.
+     * <p>
+     * The Vector API is an incubator module, so the JVM must be started with 
+     * {@code --add-modules jdk.incubator.vector}. Without it, or on hardware which can't 
+     * process several doubles at once, rays stay marched one at a time.
+     * @param enabled Whether or not to march rays in packets
+     * @return Whether or not rays will be marched in packets
+     */
+    public boolean setRayPackets(boolean enabled) {
+        if (enabled && packetMarcher == null)
+            packetMarcher = PacketMarcher.create();
+        if (!enabled)
+            packetMarcher = null;
+        return packetMarcher != null;
+    }
+
+    /**
+     * @return Whether or not frames only march the parts of the screen which changed 
+     * meshes could affect again
+     */
+    public boolean isIncrementalRendering() {
+        return incrementalRendering != null;
+    }
+
+    /**
+     * Sets whether or not to reuse the last frame while the camera stays still, marching
+     * only the pixels within the outlines of the meshes which were moved, resized or 
+     * recolored since it. This makes small animated meshes in large, still scenes cheap to
+     * render. Frames are still rendered in full whenever the camera moves or the list of
+     * meshes changes. Only frames rendered with {@link #render(int[], int, int)} are 
+     * reused. Disabled by default.
+     * @param enabled Whether or not to render frames incrementally
+     */
+    public void setIncrementalRendering(boolean enabled) {
+        if (enabled && incrementalRendering == null)
+            incrementalRendering = new IncrementalRendering();
+        if (!enabled)
+            incrementalRendering = null;
+    }
+
+    /**
+     * @return Whether or not only half of the pixels of each frame are marched while the
+     * camera is moving
+     */
+    public boolean isInterlacedRendering() {
+        return interlacedRendering != null;
+    }
+
+    /**
+     * Sets whether or not to march only half of the pixels of each frame while a key is 
+     * held to move or rotate the camera, alternating halves in a checkerboard pattern and
+     * filling the rest from the last frame. This about halves the time of each frame while
+     * moving, and frames are rendered in full again as soon as the camera stops. Only 
+     * frames rendered with {@link #render(int[], int, int)} are interlaced. Disabled by
+     * default.
+     * @param enabled Whether or not to interlace frames while the camera moves
+     */
+    public void setInterlacedRendering(boolean enabled) {
+        if (enabled && interlacedRendering == null)
+            interlacedRendering = new InterlacedRendering(InterlacedRendering.CHECKERBOARD);
+        if (!enabled)
+            interlacedRendering = null;
+    }
+
+    /**
+     * Enables marching only half of the pixels of each frame while the camera is moving,
+     * split in a given pattern. See {@link #setInterlacedRendering(boolean)}.
+     * @param pattern The way the pixels are split between frames, which is one of
+     * {@link InterlacedRendering#CHECKERBOARD} or {@link InterlacedRendering#ROWS}
+     */
+    public void setInterlacedRendering(int pattern) {
+        interlacedRendering = new InterlacedRendering(pattern);
+    }
+
+    /**
+     * @return Whether or not frames fill a G-buffer of what each pixel's ray hit
+     */
+    public boolean isGBufferEnabled() {
+        return gBufferEnabled;
+    }
+
+    /**
+     * Sets whether or not frames rendered with {@link #render(int[], int, int)} fill a 
+     * {@link GBuffer} of the depth, mesh and march steps of each pixel's ray, without
+     * surface normals. Disabled by default.
+     * @param enabled Whether or not to fill a G-buffer
+     */
+    public void setGBufferEnabled(boolean enabled) {
+        setGBufferEnabled(enabled, false);
+    }
+
+    /**
+     * Sets whether or not frames rendered with {@link #render(int[], int, int)} fill a 
+     * {@link GBuffer} of the depth, mesh and march steps of each pixel's ray, which is 
+     * given by {@link #getGBuffer()}. The pixels of a frame which aren't marched again,
+     * such as with incremental or interlaced rendering, keep their values from the frames
+     * they were last marched in. Disabled by default.
+     * @param enabled Whether or not to fill a G-buffer
+     * @param normals Whether or not to also find the surface normal each ray hit, which
+     * takes 6 more evaluations of the scene's SDF for each ray
+     */
+    public void setGBufferEnabled(boolean enabled, boolean normals) {
+        this.gBufferEnabled = enabled;
+        this.gBufferNormals = normals;
+        if (!enabled)
+            gBuffer = null;
+    }
+
+    /**
+     * @return The G-buffer of the last frame rendered with {@link #render(int[], int, int)},
+     * or null if the G-buffer is disabled or no frame was rendered since enabling it. The
+     * same G-buffer is refilled by each frame of the same resolution.
+     */
+    public GBuffer getGBuffer() {
+        return gBuffer;
+    }
+
     /**
      * Shift's the camera's position by a given vector
      * @param shift The vector to add to the camera's current position
      */
     public void move(Vector3 shift) {
         position.addInPlace(shift);
-
-        for (int i = 0; i < rays.length; i++) {
-            rays[i].getPosition().addInPlace(shift);
-        }
     }
 
     /**
@@ -279,10 +606,6 @@ public class Camera implements KeyListener{
         direction.rotateInPlaceY(angle);
         upDirection.rotateInPlaceY(angle);
         rightDirection.rotateInPlaceY(angle);
-
-        for (int i = 0; i < rays.length; i++) {
-            rays[i].getDirection().rotateInPlaceY(angle);
-        } 
     }
 
     /**
@@ -293,42 +616,52 @@ public class Camera implements KeyListener{
         direction.rotateInPlaceX(angle);
         upDirection.rotateInPlaceX(angle);
         rightDirection.rotateInPlaceX(angle);
-
-        for (int i = 0; i < rays.length; i++) {
-            rays[i].getDirection().rotateInPlaceX(angle);
-        } 
     }
 
 
 
     /**
-     * Creates the set or rays to be cast from the camera
+     * Sets up the rays to be cast from the camera. The rays themselves are generated from 
+     * the camera's position and orientation as each pixel is rendered, so this only sets 
+     * the resolution and render distance and is cheap to call again.
      * @param screenWidth The amount of pixels wide the screen/window is
      * @param screenHeight The amount of pixels tall the screen/window is
      * @param renderDistance The maximum distance for a ray to travel before assuming
      * it has hit nothing
      */
     public void createRays(int screenWidth, int screenHeight, double renderDistance) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.renderDistance = renderDistance;
+    }
 
-        Vector3 screenCenter = position.add(direction.multiply(screenDistance));
-
-        rays = new Ray[screenWidth * screenHeight];
-
-        int i = 0;
-        for (double r = screenHeight / 2.0 - .5; r >= screenHeight / -2.0 + .5; r--) {
+    /**
+     * @return The amount of pixels wide the camera's render is
+     */
+    public int getScreenWidth() {
+        return screenWidth;
+    }
 
-            //go up/down certain increments of the upDirection vector from screen center for each row
-            Vector3 curRowVector = screenCenter.add(upDirection.multiply(pixelDistance * r));
+    /**
+     * @return The amount of pixels tall the camera's render is
+     */
+    public int getScreenHeight() {
+        return screenHeight;
+    }
 
-            for (double c = screenWidth / -2.0 + .5; c <= screenWidth / 2.0 - .5; c++) {
+    /**
+     * @return The maximum distance for a ray to travel before assuming it has hit nothing
+     */
+    public double getRenderDistance() {
+        return renderDistance;
+    }
 
-                //create the ray
-                Vector3 rayPosition = curRowVector.add(rightDirection.multiply(pixelDistance * c));
-                rays[i] = new Ray(rayPosition, position.differenceVector(rayPosition), renderDistance);
-                i++;
-            }
-        }
-        
+    /**
+     * Creates a generator for the rays of the camera's current position and orientation
+     * @return A ray generator for the camera's screen
+     */
+    public RayGenerator getRayGenerator() {
+        return new RayGenerator(this, screenWidth, screenHeight, renderDistance);
     }
 
     /**
@@ -337,6 +670,48 @@ public class Camera implements KeyListener{
      * of the Screen's BufferedImage
      */
     public void render(int[] pixels) {
+        render(pixels, screenWidth, screenHeight);
+    }
+
+    /**
+     * Called on every frame refresh to recalculate the screen at a different resolution
+     * than the camera's, keeping the same field of view. Used to render faster by
+     * rendering fewer pixels and scaling the image up.
+     * @param pixels The array of pixel color values to write the frame to, in the order of 
+     * left to right for each row, from top to bottom
+     * @param width The amount of pixels wide to render the frame
+     * @param height The amount of pixels tall to render the frame
+     */
+    public void render(int[] pixels, int width, int height) {
+        render(pixels, width, height, false);
+    }
+
+    /**
+     * Renders the next frame like {@link #render(int[], int, int)}, unless it would be the
+     * same as the last one as checked by {@link #isFrameChanged(int, int)}. The scene's 
+     * version is only found once for both the check and the frame, which matters for 
+     * scenes of many meshes since every mesh is fingerprinted to find it.
+     * @param pixels The array of pixel color values to write the frame to, in the order of 
+     * left to right for each row, from top to bottom
+     * @param width The amount of pixels wide to render the frame
+     * @param height The amount of pixels tall to render the frame
+     * @return Whether or not a frame was rendered, which it isn't if it would be the same
+     * as the last one, leaving the pixels unchanged
+     */
+    public boolean renderIfChanged(int[] pixels, int width, int height) {
+        return render(pixels, width, height, true);
+    }
+
+    /**
+     * Moves the camera from any keys being held and renders the next frame
+     * @param pixels The array of pixel color values to write the frame to
+     * @param width The amount of pixels wide to render the frame
+     * @param height The amount of pixels tall to render the frame
+     * @param skipUnchanged Whether or not to skip the frame if it would be the same as the last one
+     * @return Whether or not the frame was rendered
+     */
+    private boolean render(int[] pixels, int width, int height, boolean skipUnchanged) {
+        boolean moving = isMoving();
 
         //check for movement
         if (forward) {
@@ -373,10 +748,480 @@ public class Camera implements KeyListener{
         }
 
         //render rays
-        for (int i = 0; i < rays.length; i++) {
-            pixels[i] = rays[i].calculate(scene);
+        Scene scene = this.scene;
+        RayGenerator rays = getRayGenerator(width, height);
+        long meshesVersion = scene.getMeshesVersion();
+        long sceneVersion = scene.getVersion(meshesVersion);
+        if (skipUnchanged && !moving && !renderedInterlaced && !isFrameChanged(scene, sceneVersion, rays))
+            return false;
+
+        IncrementalRendering incremental = incrementalRendering;
+
+        //distances from before meshes moved can start rays past them
+        TemporalReprojection temporal = temporalReprojection;
+        if (temporal != null && (scene != renderedScene || sceneVersion != renderedSceneVersion))
+            temporal.reset();
+        InterlacedRendering interlaced = interlacedRendering;
+        boolean interlace = interlaced != null && isMoving();
+
+        //a new G-buffer has nothing to keep from the last frame
+        GBuffer buffer = gBufferEnabled ? gBuffer : null;
+        if (gBufferEnabled && (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height 
+            || buffer.hasNormals() != gBufferNormals)) {
+            buffer = new GBuffer(width, height, gBufferNormals);
+            if (incremental != null)
+                incremental.reset();
+        }
+
+        if (interlace) {
+            interlaced.beginFrame();
+            renderFrame(scene, meshesVersion, rays, pixels, null, interlaced, buffer);
+            interlaced.fill(rays, pixels);
+
+            //a filled frame can't be reused once the camera stops
+            if (incremental != null)
+                incremental.reset();
+        }
+        else if (incremental == null) {
+            renderFrame(scene, meshesVersion, rays, pixels, null, null, buffer);
+        }
+        else {
+            renderFrame(scene, meshesVersion, rays, pixels, incremental.beginFrame(scene, meshesVersion, rays, pixels), 
+                null, buffer);
+            incremental.endFrame(rays, pixels);
+        }
+        if (interlaced != null)
+            interlaced.endFrame(rays, pixels);
+        gBuffer = buffer;
+
+        renderedRays = rays;
+        renderedScene = scene;
+        renderedSceneVersion = sceneVersion;
+        renderedInterlaced = interlace;
+        return true;
+    }
+
+    /**
+     * @return Whether or not a key is held to move or rotate the camera
+     */
+    private boolean isMoving() {
+        return left || right || forward || back || up || down || tiltUp || tiltDown || rotateLeft || rotateRight;
+    }
+
+    /**
+     * Checks whether the next frame {@link #render(int[], int, int)} renders would be any
+     * different from the last one, so that an unchanged frame can be skipped and the last
+     * one shown again. It would be different if a key is held to move the camera, if the 
+     * camera was moved, rotated or had its settings changed, if the scene's 
+     * {@link Scene#getVersion() version} changed, or if the last frame was interlaced.
+     * @param width The amount of pixels wide the next frame would be rendered
+     * @param height The amount of pixels tall the next frame would be rendered
+     * @return Whether or not the next frame needs to be rendered
+     */
+    public boolean isFrameChanged(int width, int height) {
+        if (isMoving() || renderedInterlaced)
+            return true;
+
+        Scene scene = this.scene;
+        return isFrameChanged(scene, scene.getVersion(), getRayGenerator(width, height));
+    }
+
+    /**
+     * Checks whether a frame would be any different from the last one rendered with 
+     * {@link #render(int[], int, int)}, other than from keys being held
+     * @param scene The scene the frame would render
+     * @param sceneVersion The scene's current {@link Scene#getVersion() version}
+     * @param rays The generator of the rays the frame would be rendered with
+     * @return Whether or not the frame needs to be rendered
+     */
+    private boolean isFrameChanged(Scene scene, long sceneVersion, RayGenerator rays) {
+        RayGenerator rendered = renderedRays;
+        return rendered == null || renderedScene != scene || renderedSceneVersion != sceneVersion 
+            || !rendered.hasSameRays(rays);
+    }
+
+    /**
+     * Creates a generator for the rays of the camera's current position and orientation
+     * at a resolution, keeping the same field of view
+     * @param width The amount of pixels wide the screen is
+     * @param height The amount of pixels tall the screen is
+     * @return A ray generator for the camera's screen at the resolution
+     */
+    private RayGenerator getRayGenerator(int width, int height) {
+        if (width == screenWidth && height == screenHeight)
+            return getRayGenerator();
+        return new RayGenerator(this, width, height, renderDistance, pixelDistance * screenWidth / width);
+    }
+
+    /**
+     * Renders a frame of a scene, without moving the camera from any keys being held.
+     * This does not need a Screen, so it can be used to render offscreen.
+     * @param scene The scene to render
+     * @param rays The generator of the rays for the frame, which sets the resolution
+     * @param pixels The array of pixel color values to write the frame to, in the order of 
+     * left to right for each row, from top to bottom. Its length must be at least the 
+     * amount of pixels in the frame.
+     */
+    public void renderFrame(Scene scene, RayGenerator rays, int[] pixels) {
+        renderFrame(scene, scene.getMeshesVersion(), rays, pixels, null, null, null);
+    }
+
+    /**
+     * Renders a frame of a scene, also filling a G-buffer of what each pixel's ray hit,
+     * without moving the camera from any keys being held
+     * @param scene The scene to render
+     * @param rays The generator of the rays for the frame, which sets the resolution
+     * @param pixels The array of pixel color values to write the frame to, in the order of 
+     * left to right for each row, from top to bottom. Its length must be at least the 
+     * amount of pixels in the frame.
+     * @param buffer The G-buffer to fill, which must be of the frame's resolution
+     */
+    public void renderFrame(Scene scene, RayGenerator rays, int[] pixels, GBuffer buffer) {
+        if (buffer.getWidth() != rays.getScreenWidth() || buffer.getHeight() != rays.getScreenHeight())
+            throw new IllegalArgumentException("The G-buffer must be of the frame's resolution");
+        renderFrame(scene, scene.getMeshesVersion(), rays, pixels, null, null, buffer);
+    }
+
+    /**
+     * Renders a frame of a scene, or only some regions of it
+     * @param scene The scene to render
+     * @param meshesVersion The version of the scene's meshes, to rebuild its hierarchy if they changed
+     * @param rays The generator of the rays for the frame, which sets the resolution
+     * @param pixels The array of pixel color values to write the frame to
+     * @param regions The regions to render, as the left, top, right and bottom edges of
+     * each region in turn, where the right and bottom edges are exclusive, or null to 
+     * render the whole frame. The rays must be the same as the last frame's to only
+     * render some regions.
+     * @param interlaced The split of the frame's pixels to only march the current half of,
+     * or null to march every pixel
+     * @param buffer The G-buffer to fill with what each marched ray hit, or null to not fill one
+     */
+    private void renderFrame(Scene scene, long meshesVersion, RayGenerator rays, int[] pixels, int[] regions, 
+        InterlacedRendering interlaced, GBuffer buffer) {
+
+        //packets only follow plain sphere tracing
+        PacketMarcher packets = packetMarcher;
+        if (packets != null && scene.getMarchStrategy().getClass() != SphereTracing.class)
+            packets = null;
+
+        //lights shade each pixel from what its ray hit after the tile is marched
+        if (buffer == null && !scene.getLights().isEmpty()) {
+            buffer = shadingBuffer;
+            if (buffer == null || buffer.getWidth() != rays.getScreenWidth() 
+                || buffer.getHeight() != rays.getScreenHeight()) {
+                buffer = new GBuffer(rays.getScreenWidth(), rays.getScreenHeight(), false);
+                shadingBuffer = buffer;
+            }
+        }
+
+        RenderStatistics frameStatistics = statistics;
+        if (frameStatistics != null)
+            frameStatistics.beginFrame();
+
+        //meshes may have moved since the last frame
+        scene.updateHierarchy(meshesVersion);
+
+        Frame frame = new Frame(scene, rays, frameStatistics, temporalReprojection, depthPrepass, packets, interlaced, 
+            buffer, pixels);
+        if (frame.temporal != null) {
+            if (regions == null)
+                frame.temporal.beginFrame(rays);
+            else
+                frame.temporal.beginUpdate(rays);
         }
 
+        //render rays
+        if (regions == null)
+            regions = new int[] {0, 0, rays.getScreenWidth(), rays.getScreenHeight()};
+        if (renderPool == null) {
+            for (int i = 0; i < regions.length; i += 4)
+                renderTile(frame, regions[i], regions[i + 1], regions[i + 2], regions[i + 3]);
+        }
+        else {
+            int[] tiles = splitTiles(regions);
+            if (tiles.length > 0)
+                renderPool.invoke(new TileTask(frame, tiles, 0, tiles.length / 4));
+        }
+
+        if (frame.temporal != null)
+            frame.temporal.endFrame(rays);
+        if (frame.statistics != null)
+            frame.statistics.endFrame();
+    }
+
+    /**
+     * Splits regions of the screen into tiles of the tile size or smaller
+     * @param regions The regions, as the left, top, right and bottom edges of each region 
+     * in turn, where the right and bottom edges are exclusive
+     * @return The tiles, in the same form as the regions
+     */
+    private int[] splitTiles(int[] regions) {
+        int count = 0;
+        for (int i = 0; i < regions.length; i += 4) {
+            count += ((regions[i + 2] - regions[i] + tileSize - 1) / tileSize) 
+                * ((regions[i + 3] - regions[i + 1] + tileSize - 1) / tileSize);
+        }
+
+        int[] tiles = new int[count * 4];
+        int tile = 0;
+        for (int i = 0; i < regions.length; i += 4) {
+            for (int y = regions[i + 1]; y < regions[i + 3]; y += tileSize) {
+                for (int x = regions[i]; x < regions[i + 2]; x += tileSize) {
+                    tiles[tile++] = x;
+                    tiles[tile++] = y;
+                    tiles[tile++] = Math.min(x + tileSize, regions[i + 2]);
+                    tiles[tile++] = Math.min(y + tileSize, regions[i + 3]);
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Renders the rays within a rectangular region of the screen
+     * @param frame The frame being rendered
+     * @param startX The column of the region's left edge, inclusive
+     * @param startY The row of the region's top edge, inclusive
+     * @param endX The column of the region's right edge, exclusive
+     * @param endY The row of the region's bottom edge, exclusive
+     */
+    private void renderTile(Frame frame, int startX, int startY, int endX, int endY) {
+
+        Scene scene = frame.scene;
+        RayGenerator rays = frame.rays;
+        TemporalReprojection temporal = frame.temporal;
+        DepthPrepass prepass = frame.prepass;
+        InterlacedRendering interlaced = frame.interlaced;
+        int step = interlaced == null ? 1 : interlaced.getColumnStep();
+        GBuffer buffer = frame.buffer;
+        int[] pixels = frame.pixels;
+        int width = rays.getScreenWidth();
+        RenderStatistics.Shard shard = frame.statistics == null ? null : frame.statistics.getShard();
+        RayHit hit = new RayHit();
+        RayPacket packet = frame.packets == null ? null : new RayPacket(frame.packets.getPacketSize());
+        double[] ray = new double[6];
+        double[] normal = new double[3];
+
+        //without a prepass, the whole tile is one block
+        int blockSize = prepass == null ? Math.max(endX - startX, endY - startY) : prepass.getBlockSize();
+        for (int blockY = startY; blockY < endY; blockY += blockSize) {
+            for (int blockX = startX; blockX < endX; blockX += blockSize) {
+                int blockEndX = Math.min(blockX + blockSize, endX);
+                int blockEndY = Math.min(blockY + blockSize, endY);
+                double blockStart = prepass == null ? 0 : 
+                    prepass.march(scene, rays, blockX, blockY, blockEndX, blockEndY, shard);
+
+                for (int y = blockY; y < blockEndY; y++) {
+                    int firstX = interlaced == null ? blockX : interlaced.getFirstColumn(y, blockX);
+                    if (packet != null) {
+                        renderPackets(frame, packet, ray, normal, y, firstX, blockEndX, step, blockStart, shard);
+                        continue;
+                    }
+
+                    for (int x = firstX; x < blockEndX; x += step) {
+                        int index = y * width + x;
+                        if (temporal == null) {
+                            rays.march(scene, x, y, blockStart, shard, hit);
+                        }
+                        else {
+                            rays.march(scene, x, y, Math.max(blockStart, temporal.getStartDistance(index)), shard, hit);
+                            temporal.record(index, hit);
+                        }
+                        pixels[index] = hit.getColor(scene);
+                        if (buffer != null)
+                            buffer.record(index, hit, scene, rays.getEpsilon(), normal);
+                    }
+                }
+            }
+        }
+
+        if (frame.lit)
+            shadeTile(frame, startX, startY, endX, endY);
+    }
+
+    /**
+     * Shades the pixels of a marched region of the screen with the scene's lights, from
+     * what each pixel's ray hit in the frame's G-buffer
+     * @param frame The frame being rendered
+     * @param startX The column of the region's left edge, inclusive
+     * @param startY The row of the region's top edge, inclusive
+     * @param endX The column of the region's right edge, exclusive
+     * @param endY The row of the region's bottom edge, exclusive
+     */
+    private void shadeTile(Frame frame, int startX, int startY, int endX, int endY) {
+        Shading shading = new Shading(frame.scene, frame.rays);
+        InterlacedRendering interlaced = frame.interlaced;
+        int step = interlaced == null ? 1 : interlaced.getColumnStep();
+        int width = frame.rays.getScreenWidth();
+        GBuffer buffer = frame.buffer;
+        float[] depths = buffer.getDepths();
+        int[] meshIndices = buffer.getMeshIndices();
+        float[] normalX = buffer.getNormalX(), normalY = buffer.getNormalY(), normalZ = buffer.getNormalZ();
+
+        for (int y = startY; y < endY; y++) {
+            int firstX = interlaced == null ? startX : interlaced.getFirstColumn(y, startX);
+            for (int x = firstX; x < endX; x += step) {
+                int index = y * width + x;
+                int meshIndex = meshIndices[index];
+                if (meshIndex < 0)
+                    continue;
+
+                //the G-buffer may already have the normal
+                if (normalX == null)
+                    frame.pixels[index] = shading.shade(x, y, depths[index], meshIndex);
+                else
+                    frame.pixels[index] = shading.shade(x, y, depths[index], meshIndex, normalX[index], normalY[index], 
+                        normalZ[index]);
+            }
+        }
+    }
+
+    /**
+     * Renders part of a row of rays, marching them in packets
+     * @param frame The frame being rendered
+     * @param packet The packet to fill with the rays
+     * @param ray The array to write each ray to before adding it to the packet
+     * @param normal The array to estimate the normal of each hit in for the G-buffer
+     * @param y The row of the rays
+     * @param startX The column of the first ray, inclusive
+     * @param endX The column of the last ray, exclusive
+     * @param step The number of columns between the rays
+     * @param blockStart The distance the depth prepass found the rays can start from
+     * @param shard The current thread's shard of render statistics, or null to not record any
+     */
+    private void renderPackets(Frame frame, RayPacket packet, double[] ray, double[] normal, int y, int startX, int endX, 
+        int step, double blockStart, RenderStatistics.Shard shard) {
+
+        RayGenerator rays = frame.rays;
+        TemporalReprojection temporal = frame.temporal;
+        int width = rays.getScreenWidth();
+
+        for (int x = startX; x < endX; x += packet.getSize() * step) {
+            int count = Math.min(packet.getSize(), (endX - x + step - 1) / step);
+            packet.clear();
+            for (int i = 0; i < count; i++) {
+                rays.getRay(x + i * step, y, ray);
+                packet.add(ray, temporal == null ? blockStart : 
+                    Math.max(blockStart, temporal.getStartDistance(y * width + x + i * step)));
+            }
+
+            frame.packets.march(frame.scene, frame.meshes, packet, rays.getRenderDistance(), rays.getEpsilon(), shard);
+
+            for (int i = 0; i < count; i++) {
+                int index = y * width + x + i * step;
+                RayHit hit = packet.getHit(i);
+                if (temporal != null)
+                    temporal.record(index, hit);
+                frame.pixels[index] = hit.getColor(frame.scene);
+                if (frame.buffer != null)
+                    frame.buffer.record(index, hit, frame.scene, rays.getEpsilon(), normal);
+            }
+        }
+    }
+
+    /**
+     * Everything shared by the tiles of a frame being rendered
+     */
+    private static class Frame {
+
+        /** The scene to render */
+        private final Scene scene;
+        /** The generator of the rays for this frame */
+        private final RayGenerator rays;
+        /** The collector of statistics for this frame, or null if disabled */
+        private final RenderStatistics statistics;
+        /** The distances to start this frame's rays from, or null if disabled */
+        private final TemporalReprojection temporal;
+        /** The cone march which finds where each block of this frame's rays can start from, or null if disabled */
+        private final DepthPrepass prepass;
+        /** The marcher of packets of this frame's rays, or null if disabled */
+        private final PacketMarcher packets;
+        /** The scene's meshes compiled for the packet marcher, or null if disabled */
+        private final CompiledMesh[] meshes;
+        /** The split of this frame's pixels to only march the current half of, or null to march every pixel */
+        private final InterlacedRendering interlaced;
+        /** The G-buffer to fill with what each of this frame's rays hit, or null to not fill one */
+        private final GBuffer buffer;
+        /** Whether or not the scene has lights to shade this frame's pixels with */
+        private final boolean lit;
+        /** The array of pixel color values to write the results to */
+        private final int[] pixels;
+
+        /**
+         * Creates the state of a frame to render
+         * @param scene The scene to render
+         * @param rays The generator of the rays for this frame
+         * @param statistics The collector of statistics for this frame, or null if disabled
+         * @param temporal The distances to start this frame's rays from, or null if disabled
+         * @param prepass The cone march which finds where each block of this frame's rays can 
+         * start from, or null if disabled
+         * @param packets The marcher of packets of this frame's rays, or null if disabled
+         * @param interlaced The split of this frame's pixels to only march the current half
+         * of, or null to march every pixel
+         * @param buffer The G-buffer to fill with what each of this frame's rays hit, or null
+         * to not fill one
+         * @param pixels The array of pixel color values to write the results to
+         */
+        private Frame(Scene scene, RayGenerator rays, RenderStatistics statistics, TemporalReprojection temporal, 
+            DepthPrepass prepass, PacketMarcher packets, InterlacedRendering interlaced, GBuffer buffer, int[] pixels) {
+            this.scene = scene;
+            this.rays = rays;
+            this.statistics = statistics;
+            this.temporal = temporal;
+            this.prepass = prepass;
+            this.packets = packets;
+            this.meshes = packets == null ? null : scene.getPacketMeshes();
+            this.interlaced = interlaced;
+            this.buffer = buffer;
+            this.lit = !scene.getLights().isEmpty();
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * A task which renders a range of the frame's tiles, splitting itself in half 
+     * so that idle threads in the render pool can steal the remaining tiles
+     */
+    private class TileTask extends RecursiveAction {
+
+        /** Default Serial Version ID for RecursiveAction */
+        private static final long serialVersionUID = 1L;
+
+        /** The frame being rendered */
+        private final Frame frame;
+        /** The left, top, right and bottom edges of each tile in turn, where the right and bottom edges are exclusive */
+        private final int[] tiles;
+        /** The index of the first tile to render, inclusive */
+        private final int start;
+        /** The index of the last tile to render, exclusive */
+        private final int end;
+
+        /**
+         * Creates a task to render a range of tiles
+         * @param frame The frame being rendered
+         * @param tiles The left, top, right and bottom edges of each tile in turn, where 
+         * the right and bottom edges are exclusive
+         * @param start The index of the first tile to render, inclusive
+         * @param end The index of the last tile to render, exclusive
+         */
+        private TileTask(Frame frame, int[] tiles, int start, int end) {
+            this.frame = frame;
+            this.tiles = tiles;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new TileTask(frame, tiles, start, middle), new TileTask(frame, tiles, middle, end));
+                return;
+            }
+
+            int i = start * 4;
+            renderTile(frame, tiles[i], tiles[i + 1], tiles[i + 2], tiles[i + 3]);
+        }
     }
 
     /**
@@ -0,0 +1,180 @@
+package raymarcher;
+
+import java.awt.Color;
+
+/**
+ * A mesh compiled by the {@link SceneCompiler} into a flat tape of instructions, which
+ * evaluates its SDF in a single loop instead of through a tree of mesh objects. The 
+ * instructions read their parameters in order from an array of constants, and work on
+ * a stack of values which is kept in local variables, so evaluating it creates no objects.
+ */
+public class CompiledMesh implements Mesh {
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
+
+    /** The mesh that was compiled */
+    private final Mesh mesh;
+    /** The instructions, as opcodes followed by their operands */
+    private final int[] code;
+    /** The constants the instructions read in order */
+    private final double[] constants;
+    /** The meshes that couldn't be compiled, which are called from the tape */
+    private final Mesh[] meshes;
+    /** The bounds of the mesh when it was compiled */
+    private final BoundingBox bounds;
+
+    /**
+     * Creates a compiled mesh
+     * @param mesh The mesh that was compiled
+     * @param code The instructions, as opcodes followed by their operands
+     * @param constants The constants the instructions read in order
+     * @param meshes The meshes that couldn't be compiled, which are called from the tape
+     */
+    CompiledMesh(Mesh mesh, int[] code, double[] constants, Mesh[] meshes) {
+        this.mesh = mesh;
+        this.code = code;
+        this.constants = constants;
+        this.meshes = meshes;
+        this.bounds = mesh.getBounds();
+    }
+
+    /**
+     * @return The mesh that was compiled
+     */
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * @return The instructions, as opcodes followed by their operands
+     */
+    int[] getCode() {
+        return code;
+    }
+
+    /**
+     * @return The constants the instructions read in order
+     */
+    double[] getConstants() {
+        return constants;
+    }
+
+    /**
+     * @return The meshes that couldn't be compiled, which are called from the tape
+     */
+    Mesh[] getCalledMeshes() {
+        return meshes;
+    }
+
+    @Override
+    public Color getMeshColor() {
+        return mesh.getMeshColor();
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    @Override
+    public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
+
+        int[] code = this.code;
+        double[] c = this.constants;
+        //the stack below the last value, which holds up to SceneCompiler.MAX_STACK values
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int top = 0;
+        int k = 0;
+        double value = 0;
+        double below = 0;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            int opcode = instruction & ~SceneCompiler.PUSH;
+
+            if (instruction != opcode) {
+                switch (top++) {
+                    case 0: s0 = value; break;
+                    case 1: s1 = value; break;
+                    case 2: s2 = value; break;
+                    default: s3 = value; break;
+                }
+            }
+            else if (opcode >= SceneCompiler.UNION) {
+                switch (--top) {
+                    case 0: below = s0; break;
+                    case 1: below = s1; break;
+                    case 2: below = s2; break;
+                    default: below = s3; break;
+                }
+            }
+
+            switch (opcode) {
+                case SceneCompiler.SPHERE: {
+                    double px = c[k] - x;
+                    double py = c[k + 1] - y;
+                    double pz = c[k + 2] - z;
+                    value = Math.sqrt(px * px + py * py + pz * pz) - c[k + 3];
+                    k += 4;
+                    break;
+                }
+                case SceneCompiler.BOX: 
+                case SceneCompiler.ROUNDED_BOX: {
+                    double qx = Math.abs(x - c[k]) - c[k + 3];
+                    double qy = Math.abs(y - c[k + 1]) - c[k + 4];
+                    double qz = Math.abs(z - c[k + 2]) - c[k + 5];
+                    double wx = Math.max(qx, 0);
+                    double wy = Math.max(qy, 0);
+                    double wz = Math.max(qz, 0);
+                    value = Math.sqrt(wx * wx + wy * wy + wz * wz) + Math.min(Math.max(qx, Math.max(qy, qz)), 0);
+                    k += 6;
+                    if (opcode == SceneCompiler.ROUNDED_BOX)
+                        value -= c[k++];
+                    break;
+                }
+                case SceneCompiler.TORUS: {
+                    double px = x - c[k];
+                    double py = y - c[k + 1];
+                    double pz = z - c[k + 2];
+                    double pxz = Math.sqrt(px * px + pz * pz) - c[k + 3];
+                    value = Math.sqrt(pxz * pxz + py * py) - c[k + 4];
+                    k += 5;
+                    break;
+                }
+                case SceneCompiler.TRIANGULAR_PRISM: {
+                    double px = x - c[k];
+                    double py = y - c[k + 1];
+                    double pz = z - c[k + 2];
+                    value = Math.max(Math.abs(pz) - 2, Math.max(Math.abs(px) * 0.866025 + py * .5, -1 * py) - 1 * .5);
+                    k += 3;
+                    break;
+                }
+                case SceneCompiler.MESH:
+                    value = meshes[code[++pc]].sdf(x, y, z);
+                    break;
+                case SceneCompiler.UNION:
+                    value = Math.min(below, value);
+                    break;
+                case SceneCompiler.SUBTRACT:
+                    value = Math.max(below * -1, value);
+                    break;
+                case SceneCompiler.SUBTRACT_REVERSED:
+                    value = Math.max(value * -1, below);
+                    break;
+                case SceneCompiler.INTERSECTION:
+                    value = Math.max(below, value);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + instruction);
+            }
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package raymarcher;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads back the frames of a video written by a {@link VideoWriter} in the
+ * {@link VideoWriter#DELTA delta} format, by applying the runs of changed pixels of each
+ * frame to the frame before it.
+ */
+public class DeltaVideoReader implements Closeable {
+
+    /** The stream of the file being read */
+    private final DataInputStream input;
+    /** The amount of pixels wide each frame is */
+    private final int width;
+    /** The amount of pixels tall each frame is */
+    private final int height;
+    /** The pixels of the last frame read */
+    private final int[] frame;
+
+    /**
+     * Opens a delta video file
+     * @param file The file to read
+     * @throws IOException If the file couldn't be read or isn't a delta video
+     */
+    public DeltaVideoReader(File file) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            byte[] magic = new byte[VideoWriter.DELTA_MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, VideoWriter.DELTA_MAGIC))
+                throw new IOException("Not a delta video: " + file);
+
+            width = input.readInt();
+            height = input.readInt();
+            if (width <= 0 || height <= 0)
+                throw new IOException("Invalid resolution: " + width + "x" + height);
+        }
+        catch (IOException e) {
+            input.close();
+            throw e;
+        }
+
+        //the first frame was compared to black, so unchanged pixels of it are black
+        frame = new int[width * height];
+        Arrays.fill(frame, 0xff000000);
+    }
+
+    /**
+     * @return The amount of pixels wide each frame is
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The amount of pixels tall each frame is
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Reads the next frame
+     * @param pixels The array to write the frame's pixel color values to, in the order of
+     * left to right for each row, from top to bottom
+     * @return Whether or not a frame was read, which is false at the end of the video
+     * @throws IOException If the file couldn't be read or is corrupt
+     */
+    public boolean readFrame(int[] pixels) throws IOException {
+        int runs;
+        try {
+            runs = input.readInt();
+        }
+        catch (EOFException e) {
+            return false;
+        }
+
+        for (int run = 0; run < runs; run++) {
+            int start = input.readInt();
+            int length = input.readInt();
+            if (start < 0 || length < 0 || start + length > frame.length)
+                throw new IOException("Run out of the frame: " + start + "+" + length);
+
+            for (int i = start; i < start + length; i++)
+                frame[i] = 0xff000000 | input.readUnsignedByte() << 16 | input.readUnsignedByte() << 8
+                    | input.readUnsignedByte();
+        }
+
+        System.arraycopy(frame, 0, pixels, 0, frame.length);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
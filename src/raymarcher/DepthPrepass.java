@@ -0,0 +1,107 @@
+package raymarcher;
+
+/**
+ * Marches a cone through each block of pixels before their rays are marched, so that the
+ * rays can skip the empty space that they all pass through. The cone starts at the camera
+ * and is just wide enough to contain every ray of the block, so as long as no mesh is 
+ * within the cone's radius of its center, no ray of the block can have hit anything yet. 
+ * One cone costs about as much as a single ray, so with blocks of 8x8 pixels, most of the 
+ * early steps of 64 rays are replaced by the steps of one cone.
+ */
+public class DepthPrepass {
+
+    /** The default width and height, in pixels, of each block of pixels that shares a cone */
+    public static final int DEFAULT_BLOCK_SIZE = 8;
+
+    /** The width and height, in pixels, of each block of pixels that shares a cone */
+    private final int blockSize;
+
+    /**
+     * Creates a depth prepass with blocks of the default size
+     */
+    public DepthPrepass() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a depth prepass
+     * @param blockSize The width and height, in pixels, of each block of pixels that shares 
+     * a cone. Larger blocks need fewer cones, but wider cones stop further from meshes. 
+     * This value must be > 0.
+     */
+    public DepthPrepass(int blockSize) {
+        this.blockSize = Math.max(blockSize, 1);
+    }
+
+    /**
+     * @return The width and height, in pixels, of each block of pixels that shares a cone
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Marches a cone containing the rays of a rectangular block of pixels through a scene
+     * @param scene The scene which includes all meshes the cone may hit
+     * @param rays The generator of the rays of the frame
+     * @param startX The column of the block's left edge, inclusive
+     * @param startY The row of the block's top edge, inclusive
+     * @param endX The column of the block's right edge, exclusive
+     * @param endY The row of the block's bottom edge, exclusive
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @return A distance that every ray of the block can travel from the screen without 
+     * hitting a mesh, or 0 if there is none
+     */
+    public double march(Scene scene, RayGenerator rays, int startX, int startY, int endX, int endY, 
+        RenderStatistics.Shard statistics) {
+
+        Vector3 camera = rays.getCameraPosition();
+        double cameraX = camera.getX(), cameraY = camera.getY(), cameraZ = camera.getZ();
+        double[] ray = new double[6];
+
+        //the cone's center goes through the center of the block
+        rays.getRay((startX + endX - 1) / 2.0, (startY + endY - 1) / 2.0, ray);
+        double dx = ray[3], dy = ray[4], dz = ray[5];
+
+        //the cone must contain the rays of the block's corners, and so every ray between them.
+        //rays start on the screen rather than at the camera, so also find how far their
+        //starting points are from the camera
+        double minimumCos = 1;
+        double screenDistance = 0;
+        for (int corner = 0; corner < 4; corner++) {
+            rays.getRay((corner & 1) == 0 ? startX : endX - 1, (corner & 2) == 0 ? startY : endY - 1, ray);
+            minimumCos = Math.min(minimumCos, ray[3] * dx + ray[4] * dy + ray[5] * dz);
+
+            double sx = ray[0] - cameraX, sy = ray[1] - cameraY, sz = ray[2] - cameraZ;
+            screenDistance = Math.max(screenDistance, Math.sqrt(sx * sx + sy * sy + sz * sz));
+        }
+        if (minimumCos <= 0)
+            return 0;
+        double spread = Math.sqrt(1 - minimumCos * minimumCos) / minimumCos;
+
+        //march the cone from the camera. the cone's radius at a distance along its center is 
+        //that distance times its spread, and a step can be no longer than how far the 
+        //nearest mesh is from the cone's edge
+        double epsilon = rays.getEpsilon();
+        double renderDistance = rays.getRenderDistance() + screenDistance;
+        double distTraveled = 0;
+        int steps = 0;
+        while (distTraveled < renderDistance) {
+            double distToScene = scene.sdf(cameraX + dx * distTraveled, cameraY + dy * distTraveled, 
+                cameraZ + dz * distTraveled, statistics);
+            double clearance = distToScene - distTraveled * spread;
+            steps++;
+            if (clearance <= epsilon)
+                break;
+
+            distTraveled += clearance / (1 + spread);
+        }
+
+        if (statistics != null)
+            statistics.recordPrepassSteps(steps);
+
+        //back off by the cone's radius so that rays don't start right against a mesh, and
+        //measure from the screen instead of the camera
+        return Math.max(0, distTraveled * (1 - spread) - screenDistance);
+    }
+}
@@ -0,0 +1,109 @@
+package raymarcher;
+
+/**
+ * Decides the resolution to render frames at so that rendering keeps up with a target
+ * framerate. The times of recent frames are averaged, and the render scale is lowered
+ * when frames take longer than the framerate allows and raised again once there is
+ * time to spare. Since the render time grows with the number of pixels, each axis is
+ * scaled by the square root of the change in time needed.
+ */
+public class DynamicResolution {
+
+    /** The number of frames rendered at a new scale before the scale is changed again */
+    private static final int SETTLE_FRAMES = 4;
+    /** The weight of the newest frame in the average frame time */
+    private static final double SMOOTHING = .25;
+    /** The fraction of each frame's time budget to aim to render in, leaving room for presenting */
+    private static final double HEADROOM = .9;
+
+    /** The time, in nanoseconds, each frame should take to render */
+    private double targetFrameTime;
+    /** The lowest render scale that may be used */
+    private double minimumScale;
+    /** The current render scale, as a fraction of the full resolution along each axis */
+    private double scale;
+    /** The moving average of the frame times at the current scale, or a negative value if none yet */
+    private double averageFrameTime;
+    /** The number of frames rendered since the scale last changed */
+    private int framesAtScale;
+
+    /**
+     * Creates a dynamic resolution which starts at full resolution and may go down to
+     * a quarter of the full resolution along each axis
+     * @param framerate The framerate, in frames per second, to hold
+     */
+    public DynamicResolution(double framerate) {
+        setFramerate(framerate);
+        this.minimumScale = .25;
+        this.scale = 1;
+        this.averageFrameTime = -1;
+    }
+
+    /**
+     * @param framerate The new framerate, in frames per second, to hold. This value must be > 0.
+     */
+    public void setFramerate(double framerate) {
+        this.targetFrameTime = 1000000000.0 / Math.abs(framerate == 0 ? 10 : framerate);
+    }
+
+    /**
+     * @return The lowest render scale that may be used
+     */
+    public double getMinimumScale() {
+        return minimumScale;
+    }
+
+    /**
+     * @param minimumScale The lowest render scale that may be used, as a fraction of the full
+     * resolution along each axis, from 0 (exclusive) to 1
+     */
+    public void setMinimumScale(double minimumScale) {
+        this.minimumScale = Math.min(Math.max(minimumScale, .01), 1);
+        this.scale = Math.max(scale, this.minimumScale);
+    }
+
+    /**
+     * @return The current render scale, as a fraction of the full resolution along each axis
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Gives the size to render a dimension of the frame at for the current scale
+     * @param fullSize The size of the dimension at full resolution, in pixels
+     * @return The size to render the dimension at, which is at least 1 pixel
+     */
+    public int scale(int fullSize) {
+        return Math.max(1, (int) Math.round(fullSize * scale));
+    }
+
+    /**
+     * Records how long a frame took to render and updates the render scale
+     * @param frameTime The time, in nanoseconds, the frame took to render
+     */
+    public void recordFrame(long frameTime) {
+        if (averageFrameTime < 0)
+            averageFrameTime = frameTime;
+        else
+            averageFrameTime += (frameTime - averageFrameTime) * SMOOTHING;
+
+        framesAtScale++;
+        if (framesAtScale < SETTLE_FRAMES)
+            return;
+
+        //only change when clearly too slow or clearly fast enough, so the scale doesn't flicker
+        double ratio = targetFrameTime * HEADROOM / averageFrameTime;
+        if (ratio > .9 && ratio < 1.3)
+            return;
+
+        //limit each change so a single slow frame doesn't drop the resolution too far
+        double factor = Math.min(Math.max(Math.sqrt(ratio), .7), 1.15);
+        double newScale = Math.min(Math.max(scale * factor, minimumScale), 1);
+        if (Math.abs(newScale - scale) >= .01) {
+            scale = newScale;
+            framesAtScale = 0;
+            averageFrameTime = -1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package raymarcher;
+
+/**
+ * The statistics of how a single frame was rendered. Frame statistics are immutable.
+ */
+public class FrameStatistics {
+
+    /** The time, in nanoseconds, the frame took to render */
+    private final long frameTime;
+    /** The number of rays marched */
+    private final long rays;
+    /** The number of rays that hit a mesh */
+    private final long hits;
+    /** The number of rays that reached the render distance without hitting a mesh */
+    private final long outOfRange;
+    /** The total number of march steps of every ray */
+    private final long steps;
+    /** The total number of mesh SDF evaluations made while marching */
+    private final long sdfEvaluations;
+    /** The most march steps taken by any one ray */
+    private final long maxSteps;
+    /** The total number of march steps of the depth prepass's cones */
+    private final long prepassSteps;
+
+    /**
+     * Creates the statistics of a frame
+     * @param frameTime The time, in nanoseconds, the frame took to render
+     * @param rays The number of rays marched
+     * @param hits The number of rays that hit a mesh
+     * @param outOfRange The number of rays that reached the render distance without hitting a mesh
+     * @param steps The total number of march steps of every ray
+     * @param sdfEvaluations The total number of mesh SDF evaluations made while marching
+     * @param maxSteps The most march steps taken by any one ray
+     * @param prepassSteps The total number of march steps of the depth prepass's cones
+     */
+    public FrameStatistics(long frameTime, long rays, long hits, long outOfRange, long steps, long sdfEvaluations, 
+        long maxSteps, long prepassSteps) {
+        this.frameTime = frameTime;
+        this.rays = rays;
+        this.hits = hits;
+        this.outOfRange = outOfRange;
+        this.steps = steps;
+        this.sdfEvaluations = sdfEvaluations;
+        this.maxSteps = maxSteps;
+        this.prepassSteps = prepassSteps;
+    }
+
+    /**
+     * @return The time, in nanoseconds, the frame took to render
+     */
+    public long getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * @return The number of rays marched
+     */
+    public long getRays() {
+        return rays;
+    }
+
+    /**
+     * @return The number of rays that hit a mesh
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of rays that didn't hit any mesh
+     */
+    public long getMisses() {
+        return rays - hits;
+    }
+
+    /**
+     * @return The number of rays that reached the render distance without hitting a mesh
+     */
+    public long getOutOfRange() {
+        return outOfRange;
+    }
+
+    /**
+     * @return The fraction of rays that hit a mesh, from 0 to 1, or 0 if no rays were marched
+     */
+    public double getHitRatio() {
+        return rays == 0 ? 0 : (double) hits / rays;
+    }
+
+    /**
+     * @return The total number of march steps of every ray
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The average number of march steps each ray took, or 0 if no rays were marched
+     */
+    public double getAverageSteps() {
+        return rays == 0 ? 0 : (double) steps / rays;
+    }
+
+    /**
+     * @return The most march steps taken by any one ray
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * @return The total number of march steps of the depth prepass's cones, which aren't
+     * included in the steps of the rays
+     */
+    public long getPrepassSteps() {
+        return prepassSteps;
+    }
+
+    /**
+     * @return The total number of mesh SDF evaluations made while marching
+     */
+    public long getSdfEvaluations() {
+        return sdfEvaluations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frame %.2f ms, %d rays, %d steps (avg %.1f, max %d), %d prepass steps, "
+            + "%d sdf evaluations, %d hits (%.1f%%), %d misses, %d out of range", frameTime / 1e6, rays, steps, 
+            getAverageSteps(), maxSteps, prepassSteps, sdfEvaluations, hits, getHitRatio() * 100, getMisses(), 
+            outOfRange);
+    }
+}
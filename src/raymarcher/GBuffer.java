@@ -0,0 +1,169 @@
+package raymarcher;
+
+import java.util.Arrays;
+
+/**
+ * What the ray of each pixel of a frame hit, kept alongside the frame's colors so that
+ * later passes, such as lighting, upscaling, picking meshes under the mouse or heatmaps of
+ * the march steps, can use it without marching the rays again. Each value is kept in its
+ * own array of primitives, indexed by pixel in the order of left to right for each row,
+ * from top to bottom.
+ * <p>
+ * Normals are optional, since they take 6 more evaluations of the scene's SDF for each
+ * ray that hits a mesh. They are estimated from the central differences of the SDF around
+ * the point each ray hit.
+ */
+public class GBuffer {
+
+    /** The amount of pixels wide the frame is */
+    private final int width;
+    /** The amount of pixels tall the frame is */
+    private final int height;
+    /** The distance each pixel's ray traveled to hit a mesh, or infinity if it hit nothing */
+    private final float[] depths;
+    /** The index in the scene's list of meshes of the mesh each pixel's ray hit, or -1 if it hit nothing */
+    private final int[] meshIndices;
+    /** The number of march steps each pixel's ray took */
+    private final int[] steps;
+    /** The x-component of the surface normal where each pixel's ray hit, or null if normals aren't kept */
+    private final float[] normalX;
+    /** The y-component of the surface normal where each pixel's ray hit, or null if normals aren't kept */
+    private final float[] normalY;
+    /** The z-component of the surface normal where each pixel's ray hit, or null if normals aren't kept */
+    private final float[] normalZ;
+
+    /**
+     * Creates an empty G-buffer for frames of a resolution
+     * @param width The amount of pixels wide the frames are
+     * @param height The amount of pixels tall the frames are
+     * @param normals Whether or not to keep the surface normal each ray hit
+     */
+    public GBuffer(int width, int height, boolean normals) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("The resolution must be at least 1x1");
+
+        int size = width * height;
+        this.width = width;
+        this.height = height;
+        this.depths = new float[size];
+        this.meshIndices = new int[size];
+        this.steps = new int[size];
+        this.normalX = normals ? new float[size] : null;
+        this.normalY = normals ? new float[size] : null;
+        this.normalZ = normals ? new float[size] : null;
+        Arrays.fill(depths, Float.POSITIVE_INFINITY);
+        Arrays.fill(meshIndices, -1);
+    }
+
+    /**
+     * @return The amount of pixels wide the frames are
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The amount of pixels tall the frames are
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Whether or not the surface normal each ray hit is kept
+     */
+    public boolean hasNormals() {
+        return normalX != null;
+    }
+
+    /**
+     * @return The distance each pixel's ray traveled from the screen to hit a mesh, or
+     * positive infinity if it hit nothing
+     */
+    public float[] getDepths() {
+        return depths;
+    }
+
+    /**
+     * @return The index in the scene's {@link Scene#getMeshes() list of meshes} of the mesh
+     * each pixel's ray hit, or -1 if it hit nothing
+     */
+    public int[] getMeshIndices() {
+        return meshIndices;
+    }
+
+    /**
+     * @return The number of march steps each pixel's ray took
+     */
+    public int[] getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The x-component of the unit surface normal where each pixel's ray hit, or 0
+     * if it hit nothing, or null if normals aren't kept
+     */
+    public float[] getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * @return The y-component of the unit surface normal where each pixel's ray hit, or 0
+     * if it hit nothing, or null if normals aren't kept
+     */
+    public float[] getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * @return The z-component of the unit surface normal where each pixel's ray hit, or 0
+     * if it hit nothing, or null if normals aren't kept
+     */
+    public float[] getNormalZ() {
+        return normalZ;
+    }
+
+    /**
+     * Finds the mesh shown at a pixel, such as the one under the mouse
+     * @param column The pixel's column, from 0 at the left of the frame
+     * @param row The pixel's row, from 0 at the top of the frame
+     * @return The index in the scene's list of meshes of the mesh the pixel's ray hit, or
+     * -1 if it hit nothing or the pixel is outside of the frame
+     */
+    public int getMeshIndex(int column, int row) {
+        if (column < 0 || row < 0 || column >= width || row >= height)
+            return -1;
+        return meshIndices[row * width + column];
+    }
+
+    /**
+     * Records what the ray of a pixel hit. Pixels of different rows may be recorded from
+     * different threads.
+     * @param index The index of the pixel
+     * @param hit The result of marching the pixel's ray
+     * @param scene The scene the ray was marched through
+     * @param offset The distance from the hit point to sample the SDF at to find the normal
+     * @param normal An array of at least 3 elements to estimate the normal in, which each
+     * thread recording pixels needs its own of
+     */
+    void record(int index, RayHit hit, Scene scene, double offset, double[] normal) {
+        boolean isHit = hit.isHit();
+        depths[index] = isHit ? (float) hit.getDistance() : Float.POSITIVE_INFINITY;
+        meshIndices[index] = hit.getMeshIndex();
+        steps[index] = hit.getSteps();
+        if (normalX == null)
+            return;
+
+        if (!isHit) {
+            normalX[index] = 0;
+            normalY[index] = 0;
+            normalZ[index] = 0;
+            return;
+        }
+
+        scene.estimateNormal(hit.getX(), hit.getY(), hit.getZ(), offset, normal);
+        normalX[index] = (float) normal[0];
+        normalY[index] = (float) normal[1];
+        normalZ[index] = (float) normal[2];
+    }
+}
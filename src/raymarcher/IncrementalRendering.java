@@ -0,0 +1,209 @@
+package raymarcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds the parts of a frame which changes to the scene's meshes can affect, so that only
+ * those parts are marched again and the rest of the last frame is reused. When a mesh is
+ * moved, resized or recolored between frames, any ray whose result changed must pass
+ * through the mesh's bounding box from before or after the change, so only the pixels
+ * within the boxes' outlines on the screen are marched again. Rays passing near the mesh
+ * can take slightly different steps than before, so a few pixels at the very edges of 
+ * other meshes may come out differently than if the whole frame were marched again.
+ * <p>
+ * Meshes are compared through the same {@link Scene#getVersion() fingerprints} that tell
+ * whether a frame changed at all, so changes made through the meshes' setters, or by
+ * changing their position vectors in place, are both found. The whole frame is rendered
+ * instead when the camera moved, the list of meshes, the scene's settings or its lights
+ * changed, or a changed mesh has infinite bounds or reaches behind the screen. Lights 
+ * only shade the pixel each ray hit, without casting shadows, so a moved mesh can't 
+ * change the shading of any pixel outside its outlines.
+ */
+public class IncrementalRendering {
+
+    /** The number of pixels around each changed region which are marched again too */
+    private static final int MARGIN = 1;
+
+    /** The pixels of the last frame */
+    private int[] lastPixels;
+    /** The rays of the last frame, or null if there is no frame to reuse */
+    private RayGenerator lastRays;
+    /** The scene of the last frame */
+    private Scene lastScene;
+    /** The version of the scene's meshes as of the last frame */
+    private long lastMeshesVersion;
+    /** The number of changes made through the scene's setters as of the last frame */
+    private long lastModifications;
+    /** The version of the scene's lights as of the last frame */
+    private long lastLights;
+    /** The meshes of the last frame, in the scene's order */
+    private Mesh[] lastMeshes;
+    /** The fingerprint of each mesh of the last frame */
+    private long[] lastFingerprints;
+    /** The bounds of each mesh of the last frame */
+    private BoundingBox[] lastBounds;
+
+    /**
+     * Creates an incremental renderer without a frame to reuse, so the first frame is
+     * rendered in full
+     */
+    public IncrementalRendering() {
+        this.lastPixels = new int[0];
+        this.lastMeshes = new Mesh[0];
+        this.lastFingerprints = new long[0];
+        this.lastBounds = new BoundingBox[0];
+    }
+
+    /**
+     * Discards the last frame, so that the next frame is rendered in full
+     */
+    public void reset() {
+        lastRays = null;
+    }
+
+    /**
+     * Finds the regions of the frame about to be rendered that need to be marched again,
+     * and copies the last frame into the frame's pixels to reuse everywhere else
+     * @param scene The scene about to be rendered
+     * @param rays The generator of the rays of the frame about to be rendered
+     * @param pixels The array of pixel color values the frame will be rendered to
+     * @return The regions to march again, as the left, top, right and bottom edges of each
+     * region in turn, where the right and bottom edges are exclusive. This is empty if
+     * nothing changed, or null if the whole frame must be rendered.
+     */
+    public int[] beginFrame(Scene scene, RayGenerator rays, int[] pixels) {
+        return beginFrame(scene, scene.getMeshesVersion(), rays, pixels);
+    }
+
+    /**
+     * Finds the regions of the frame about to be rendered that need to be marched again,
+     * from a version of the scene's meshes the caller already found, so that the meshes
+     * are only fingerprinted one by one if some of them changed
+     * @param scene The scene about to be rendered
+     * @param meshesVersion The current version of the scene's meshes
+     * @param rays The generator of the rays of the frame about to be rendered
+     * @param pixels The array of pixel color values the frame will be rendered to
+     * @return The regions to march again, in the same form as 
+     * {@link #beginFrame(Scene, RayGenerator, int[])} gives them
+     */
+    int[] beginFrame(Scene scene, long meshesVersion, RayGenerator rays, int[] pixels) {
+
+        //remember the meshes as they are now, to compare the next frame with
+        Mesh[] previousMeshes = lastMeshes;
+        long[] previousFingerprints = lastFingerprints;
+        BoundingBox[] previousBounds = lastBounds;
+        Scene previousScene = lastScene;
+        boolean meshesChanged = previousScene != scene || lastMeshesVersion != meshesVersion;
+        int count = previousMeshes.length;
+        if (meshesChanged) {
+            ArrayList<Mesh> meshList = scene.getMeshes();
+            count = meshList.size();
+            lastMeshes = new Mesh[count];
+            lastFingerprints = new long[count];
+            lastBounds = new BoundingBox[count];
+            for (int i = 0; i < count; i++) {
+                Mesh mesh = meshList.get(i);
+                lastMeshes[i] = mesh;
+                lastFingerprints[i] = Scene.fingerprint(mesh);
+                lastBounds[i] = mesh.getBounds();
+            }
+        }
+
+        long previousModifications = lastModifications;
+        long previousLights = lastLights;
+        lastScene = scene;
+        lastMeshesVersion = meshesVersion;
+        lastModifications = scene.getModifications();
+        lastLights = scene.getLightsVersion();
+
+        //only the meshes may have changed to reuse the last frame
+        RayGenerator previous = lastRays;
+        int size = rays.getScreenWidth() * rays.getScreenHeight();
+        if (previous == null || !previous.hasSameRays(rays) || previousScene != scene
+            || previousModifications != lastModifications || previousLights != lastLights 
+            || previousMeshes.length != count || lastPixels.length != size)
+            return null;
+
+        //no mesh changed, so the whole frame is reused
+        if (!meshesChanged) {
+            System.arraycopy(lastPixels, 0, pixels, 0, size);
+            return new int[0];
+        }
+
+        int[] regions = new int[0];
+        int regionCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (previousMeshes[i] != lastMeshes[i])
+                return null;
+            if (previousFingerprints[i] == lastFingerprints[i])
+                continue;
+
+            //the mesh could have changed anything within its bounds from before or after
+            for (BoundingBox bounds : new BoundingBox[] {previousBounds[i], lastBounds[i]}) {
+                if (regions.length < (regionCount + 1) * 4)
+                    regions = Arrays.copyOf(regions, Math.max(8, regions.length * 2));
+                if (!outline(bounds, rays, regions, regionCount * 4))
+                    return null;
+                if (regions[regionCount * 4] < regions[regionCount * 4 + 2]
+                    && regions[regionCount * 4 + 1] < regions[regionCount * 4 + 3])
+                    regionCount++;
+            }
+        }
+
+        System.arraycopy(lastPixels, 0, pixels, 0, size);
+        return Arrays.copyOf(regions, regionCount * 4);
+    }
+
+    /**
+     * Keeps the frame that finished rendering to be reused by the next frame
+     * @param rays The generator of the rays of the frame that finished rendering
+     * @param pixels The array of pixel color values of the frame
+     */
+    public void endFrame(RayGenerator rays, int[] pixels) {
+        int size = rays.getScreenWidth() * rays.getScreenHeight();
+        if (lastPixels.length != size)
+            lastPixels = new int[size];
+        System.arraycopy(pixels, 0, lastPixels, 0, size);
+        lastRays = rays;
+    }
+
+    /**
+     * Finds the pixels of the screen which a box covers
+     * @param bounds The box
+     * @param rays The generator of the rays of the screen
+     * @param regions The array to write the box's region of the screen to, as its left,
+     * top, right and bottom edges, where the right and bottom edges are exclusive. The
+     * region is empty if the box is off of the screen.
+     * @param offset The index of the array to write the region to
+     * @return Whether or not the box could be outlined, which it can't if it is infinite
+     * or reaches behind the screen
+     */
+    private static boolean outline(BoundingBox bounds, RayGenerator rays, int[] regions, int offset) {
+        if (!bounds.isFinite())
+            return false;
+
+        //the outline of a box on the screen is within the outline of its corners
+        double minColumn = Double.POSITIVE_INFINITY, minRow = Double.POSITIVE_INFINITY;
+        double maxColumn = Double.NEGATIVE_INFINITY, maxRow = Double.NEGATIVE_INFINITY;
+        double[] pixel = new double[3];
+        for (int corner = 0; corner < 8; corner++) {
+            double x = (corner & 1) == 0 ? bounds.getMinX() : bounds.getMaxX();
+            double y = (corner & 2) == 0 ? bounds.getMinY() : bounds.getMaxY();
+            double z = (corner & 4) == 0 ? bounds.getMinZ() : bounds.getMaxZ();
+            if (!rays.project(x, y, z, pixel))
+                return false;
+
+            minColumn = Math.min(minColumn, pixel[0]);
+            maxColumn = Math.max(maxColumn, pixel[0]);
+            minRow = Math.min(minRow, pixel[1]);
+            maxRow = Math.max(maxRow, pixel[1]);
+        }
+
+        regions[offset] = (int) Math.max(Math.floor(minColumn) - MARGIN, 0);
+        regions[offset + 1] = (int) Math.max(Math.floor(minRow) - MARGIN, 0);
+        regions[offset + 2] = (int) Math.min(Math.ceil(maxColumn) + MARGIN + 1, rays.getScreenWidth());
+        regions[offset + 3] = (int) Math.min(Math.ceil(maxRow) + MARGIN + 1, rays.getScreenHeight());
+        return true;
+    }
+}
@@ -0,0 +1,173 @@
+package raymarcher;
+
+/**
+ * Marches only half of the pixels of each frame while the camera is moving, alternating
+ * between the two halves every frame, so that frames take about half as long while motion
+ * hides the loss of detail. The pixels are split either in a {@link #CHECKERBOARD
+ * checkerboard} or in alternate {@link #ROWS rows}.
+ * <p>
+ * Each pixel which isn't marched takes its value from the last frame, in which it was
+ * marched, but kept within the range of colors of its neighbors which were marched this
+ * frame, for each of its red, green and blue components. Where the view changed little,
+ * this keeps the detail of the last frame, and where it changed a lot, such as at the
+ * edges of meshes moving across the screen, the pixel takes the colors around it instead
+ * of leaving a trail behind.
+ */
+public class InterlacedRendering {
+
+    /** The value for marching the pixels of alternating squares of a checkerboard */
+    public static final int CHECKERBOARD = 0;
+    /** The value for marching alternate rows of pixels */
+    public static final int ROWS = 1;
+
+    /** The way the pixels are split between frames */
+    private final int pattern;
+    /** Which half of the pixels the frame being rendered marches, which is 0 or 1 */
+    private int parity;
+    /** The pixels of the last frame */
+    private int[] lastPixels;
+    /** The amount of pixels wide the last frame was, or 0 if there is no last frame */
+    private int lastWidth;
+    /** The amount of pixels tall the last frame was, or 0 if there is no last frame */
+    private int lastHeight;
+
+    /**
+     * Creates an interlaced renderer without a last frame
+     * @param pattern The way the pixels are split between frames, which is one of
+     * {@link #CHECKERBOARD} or {@link #ROWS}
+     */
+    public InterlacedRendering(int pattern) {
+        if (pattern != CHECKERBOARD && pattern != ROWS)
+            throw new IllegalArgumentException("Unknown pattern " + pattern);
+        this.pattern = pattern;
+        this.lastPixels = new int[0];
+    }
+
+    /**
+     * @return The way the pixels are split between frames, which is one of
+     * {@link #CHECKERBOARD} or {@link #ROWS}
+     */
+    public int getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Switches to the other half of the pixels for the frame about to be rendered
+     */
+    public void beginFrame() {
+        parity ^= 1;
+    }
+
+    /**
+     * Finds the first pixel of part of a row which the frame being rendered marches
+     * @param row The row of the pixels
+     * @param startColumn The column to start from
+     * @return The column of the first marched pixel at or after the start, which may be
+     * past the end of the row
+     */
+    public int getFirstColumn(int row, int startColumn) {
+        if (pattern == ROWS)
+            return ((row + parity) & 1) == 0 ? startColumn : Integer.MAX_VALUE;
+        return startColumn + ((startColumn + row + parity) & 1);
+    }
+
+    /**
+     * @return The number of columns between the marched pixels of a row
+     */
+    public int getColumnStep() {
+        return pattern == ROWS ? 1 : 2;
+    }
+
+    /**
+     * Fills the pixels the frame didn't march from the last frame and the pixels around them
+     * @param rays The generator of the rays of the frame
+     * @param pixels The pixels of the frame
+     */
+    public void fill(RayGenerator rays, int[] pixels) {
+        int width = rays.getScreenWidth();
+        int height = rays.getScreenHeight();
+        boolean history = lastWidth == width && lastHeight == height;
+        int[] neighbors = new int[4];
+
+        for (int row = 0; row < height; row++) {
+
+            //the pixels which weren't marched are between the marched ones, or the whole row
+            int start = pattern == ROWS ? (getFirstColumn(row, 0) == 0 ? width : 0) : 1 - getFirstColumn(row, 0);
+            int step = pattern == ROWS ? 1 : 2;
+            for (int column = start; column < width; column += step) {
+                int count = 0;
+                if (pattern == CHECKERBOARD) {
+                    if (column > 0)
+                        neighbors[count++] = pixels[row * width + column - 1];
+                    if (column < width - 1)
+                        neighbors[count++] = pixels[row * width + column + 1];
+                }
+                if (row > 0)
+                    neighbors[count++] = pixels[(row - 1) * width + column];
+                if (row < height - 1)
+                    neighbors[count++] = pixels[(row + 1) * width + column];
+
+                int index = row * width + column;
+                pixels[index] = history ? clamp(lastPixels[index], neighbors, count) : average(neighbors, count);
+            }
+        }
+    }
+
+    /**
+     * Keeps the frame that finished rendering, to fill the next frame from
+     * @param rays The generator of the rays of the frame that finished rendering
+     * @param pixels The pixels of the frame
+     */
+    public void endFrame(RayGenerator rays, int[] pixels) {
+        int size = rays.getScreenWidth() * rays.getScreenHeight();
+        if (lastPixels.length != size)
+            lastPixels = new int[size];
+        System.arraycopy(pixels, 0, lastPixels, 0, size);
+        lastWidth = rays.getScreenWidth();
+        lastHeight = rays.getScreenHeight();
+    }
+
+    /**
+     * Keeps each component of a color within the range of that component of other colors
+     * @param color The color to clamp, as an RGB int
+     * @param colors The colors to clamp the color within
+     * @param count The number of colors to clamp the color within
+     * @return The clamped color
+     */
+    private static int clamp(int color, int[] colors, int count) {
+        if (count == 0)
+            return color;
+
+        int result = 0xff000000;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int min = 255, max = 0;
+            for (int i = 0; i < count; i++) {
+                int component = (colors[i] >> shift) & 0xff;
+                min = Math.min(min, component);
+                max = Math.max(max, component);
+            }
+            int component = Math.max(min, Math.min(max, (color >> shift) & 0xff));
+            result |= component << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Averages each component of some colors
+     * @param colors The colors to average
+     * @param count The number of colors to average
+     * @return The average color
+     */
+    private static int average(int[] colors, int count) {
+        if (count == 0)
+            return 0xff000000;
+
+        int red = 0, green = 0, blue = 0;
+        for (int i = 0; i < count; i++) {
+            red += (colors[i] >> 16) & 0xff;
+            green += (colors[i] >> 8) & 0xff;
+            blue += colors[i] & 0xff;
+        }
+        return 0xff000000 | (red / count) << 16 | (green / count) << 8 | blue / count;
+    }
+}
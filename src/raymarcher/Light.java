@@ -0,0 +1,32 @@
+package raymarcher;
+
+import java.awt.Color;
+import java.io.Serializable;
+
+/**
+ * The interface class of the template for each light within the scene, which shades the
+ * meshes after the rays of a frame are marched. Lights are serializable so that scenes
+ * can be sent to {@link raymarcher.distributed.RenderWorker render workers}, so the fields
+ * of custom lights must be serializable too.
+ */
+public interface Light extends Serializable {
+
+    /**
+     * Finds the direction from a point towards the light, and how brightly the light
+     * shines on the point
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @param direction The array to write the unit vector (x, y, z) pointing from the point
+     * towards the light to, which must have a length of at least 3
+     * @return The intensity of the light at the point, before accounting for the angle of
+     * the surface, where 1 lights a surface facing the light in its full color
+     */
+    public double illuminate(double x, double y, double z, double[] direction);
+
+    /**
+     * Gives the light's color
+     * @return The color of the light
+     */
+    public Color getLightColor();
+}
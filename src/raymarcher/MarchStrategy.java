@@ -0,0 +1,33 @@
+package raymarcher;
+
+import java.io.Serializable;
+
+/**
+ * The interface for the ways a ray can be marched through a scene. Strategies trade
+ * the number of steps each ray takes against how exactly its hit is found, and are
+ * set for each scene with {@link Scene#setMarchStrategy(MarchStrategy)}, and are 
+ * serializable so that they can be sent to render workers along with the scene.
+ */
+public interface MarchStrategy extends Serializable {
+
+    /**
+     * Marches a ray forwards through a scene until it hits a mesh, reaches the render
+     * distance, or the strategy gives up on it
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param startDistance The distance along the ray to start marching from, which is less
+     * than the render distance, or 0 to march the whole ray. If the starting point turns out 
+     * to be inside or touching a mesh, the whole ray must be marched instead.
+     * @param renderDistance The maximum distance the ray will render objects up to
+     * @param epsilon The distance away from an object the ray will consider an intersection
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @param result The result to write how the ray was marched to
+     */
+    public void march(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result);
+}
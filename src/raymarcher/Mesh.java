@@ -1,11 +1,14 @@
 package raymarcher;
 
 import java.awt.Color;
+import java.io.Serializable;
 
 /**
- * The interface class of the template for each mesh within the scene
+ * The interface class of the template for each mesh within the scene. Meshes are 
+ * serializable so that scenes can be sent to {@link raymarcher.distributed.RenderWorker 
+ * render workers}, so the fields of custom meshes must be serializable too.
  */
-public interface Mesh {
+public interface Mesh extends Serializable {
     
     /**
      * The signed distance function for the mesh, which tells
@@ -18,6 +21,33 @@ public interface Mesh {
      */
     public double sdf(Vector3 position);
 
+    /**
+     * The signed distance function for the mesh, taking the coordinates of the
+     * point directly so that no Vector3 needs to be created for each evaluation.
+     * Rays call this version while marching, so meshes should override it with an
+     * allocation-free implementation. By default, it calls {@link #sdf(Vector3)}.
+     * @param x The x-coordinate of the point to measure the distance to
+     * @param y The y-coordinate of the point to measure the distance to
+     * @param z The z-coordinate of the point to measure the distance to
+     * @return The signed distance of the mesh to the point. Values > 0
+     * indicate the point is outside the mesh, values = 0 are points on
+     * the surface, and values < 0 are points inside the mesh.
+     */
+    public default double sdf(double x, double y, double z) {
+        return sdf(new Vector3(x, y, z));
+    }
+
+    /**
+     * Gives a box in world space which the whole mesh lies within, so that rays can skip
+     * the mesh while they are farther away from the box than from another mesh. The box 
+     * may be larger than the mesh, but no point with a signed distance <= 0 may lie outside
+     * of it. By default, an infinite box is given, so that the mesh is never skipped.
+     * @return The mesh's bounding box
+     */
+    public default BoundingBox getBounds() {
+        return BoundingBox.INFINITE;
+    }
+
     /**
      * Gives the mesh's color
      * @return The color of the mesh
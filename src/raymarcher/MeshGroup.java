@@ -9,6 +9,9 @@ import java.awt.Color;
  * <a href="https://en.wikipedia.org/wiki/Constructive_solid_geometry">Wikipedia Constructive Solid Geometery</a>
  */
 public class MeshGroup implements Mesh{
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
     
     /** The value for a boolean union operation */
     public static final int UNION = 0;
@@ -20,6 +23,12 @@ public class MeshGroup implements Mesh{
     private Color meshColor;
     /** The meshgroup created for the given meshes */
     private Mesh meshGroup;
+    /** The first mesh in for the boolean operation */
+    private Mesh mesh1;
+    /** The second mesh in for the boolean operation */
+    private Mesh mesh2;
+    /** The operation used to create the group */
+    private int operation;
 
 
     /**
@@ -41,10 +50,35 @@ public class MeshGroup implements Mesh{
             meshGroup = new IntersectionGroup(mesh1, mesh2, meshColor);
         }
 
+        this.mesh1 = mesh1;
+        this.mesh2 = mesh2;
+        this.operation = operation;
         this.meshColor = meshColor;
     }
 
 
+    /**
+     * @return the first mesh in for the boolean operation
+     */
+    public Mesh getMesh1() {
+        return mesh1;
+    }
+
+    /**
+     * @return the second mesh in for the boolean operation
+     */
+    public Mesh getMesh2() {
+        return mesh2;
+    }
+
+    /**
+     * @return the operation used to create the group, which is one of {@link #UNION},
+     * {@link #SUBTRACT} or {@link #INTERSECTION}
+     */
+    public int getOperation() {
+        return operation;
+    }
+
     /**
      * @param meshColor the color to set this mesh group to
      */
@@ -59,7 +93,17 @@ public class MeshGroup implements Mesh{
 
     @Override
     public double sdf(Vector3 position) {
-        return meshGroup.sdf(position);
+        return meshGroup.sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
+        return meshGroup.sdf(x, y, z);
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        return meshGroup.getBounds();
     }
 
     /**
@@ -67,6 +111,9 @@ public class MeshGroup implements Mesh{
      */
     public class UnionGroup implements Mesh{
 
+        /** Default Serial Version ID for Mesh */
+        private static final long serialVersionUID = 1L;
+
         /** The first mesh to be used for the operation in this mesh group */
         private Mesh mesh1;
         /** The second mesh to be used for the operation in this mesh group */
@@ -93,8 +140,18 @@ public class MeshGroup implements Mesh{
 
         @Override
         public double sdf(Vector3 position) {
+            return sdf(position.getX(), position.getY(), position.getZ());
+        }
+
+        @Override
+        public double sdf(double x, double y, double z) {
             
-            return (Math.min(mesh1.sdf(position), mesh2.sdf(position)));
+            return (Math.min(mesh1.sdf(x, y, z), mesh2.sdf(x, y, z)));
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            return mesh1.getBounds().union(mesh2.getBounds());
         }
     }
 
@@ -103,6 +160,9 @@ public class MeshGroup implements Mesh{
      */
     public class SubtractGroup implements Mesh{
 
+        /** Default Serial Version ID for Mesh */
+        private static final long serialVersionUID = 1L;
+
         /** The first mesh to be used for the operation in this mesh group */
         private Mesh mesh1;
         /** The second mesh to be used for the operation in this mesh group */
@@ -129,8 +189,19 @@ public class MeshGroup implements Mesh{
 
         @Override
         public double sdf(Vector3 position) {
+            return sdf(position.getX(), position.getY(), position.getZ());
+        }
+
+        @Override
+        public double sdf(double x, double y, double z) {
             
-            return (Math.max(mesh1.sdf(position) * -1, mesh2.sdf(position)));
+            return (Math.max(mesh1.sdf(x, y, z) * -1, mesh2.sdf(x, y, z)));
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            //the first mesh is cut out of the second, so the group never extends past the second mesh
+            return mesh2.getBounds();
         }
     }
 
@@ -139,6 +210,9 @@ public class MeshGroup implements Mesh{
      */
     public class IntersectionGroup implements Mesh{
 
+        /** Default Serial Version ID for Mesh */
+        private static final long serialVersionUID = 1L;
+
         /** The first mesh to be used for the operation in this mesh group */
         private Mesh mesh1;
         /** The second mesh to be used for the operation in this mesh group */
@@ -165,8 +239,18 @@ public class MeshGroup implements Mesh{
 
         @Override
         public double sdf(Vector3 position) {
+            return sdf(position.getX(), position.getY(), position.getZ());
+        }
+
+        @Override
+        public double sdf(double x, double y, double z) {
             
-            return (Math.max(mesh1.sdf(position), mesh2.sdf(position)));
+            return (Math.max(mesh1.sdf(x, y, z), mesh2.sdf(x, y, z)));
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            return mesh1.getBounds().intersection(mesh2.getBounds());
         }
     }
 }
@@ -0,0 +1,169 @@
+package raymarcher;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a scene from a camera without opening a window, so that frames can be 
+ * rendered on machines without a display, such as servers or for batch rendering.
+ * Frames are rendered into a caller-supplied array or image, or written as PNG files.
+ * Unlike the Screen, rendering offscreen never moves the camera from keyboard input.
+ */
+public class OffscreenRenderer {
+
+    /** The scene to render */
+    private Scene scene;
+    /** The camera from which to render the scene */
+    private Camera camera;
+    /** The amount of pixels wide each frame is */
+    private int width;
+    /** The amount of pixels tall each frame is */
+    private int height;
+    /** The maximum distance for a ray to travel before assuming it has hit nothing */
+    private double renderDistance;
+
+    /**
+     * Creates an offscreen renderer with a render distance of 20, the same as the Screen's
+     * @param scene The scene to render
+     * @param camera The camera from which to render the scene
+     * @param width The amount of pixels wide each frame is, which must be > 0
+     * @param height The amount of pixels tall each frame is, which must be > 0
+     */
+    public OffscreenRenderer(Scene scene, Camera camera, int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Resolution must be positive: " + width + "x" + height);
+
+        this.scene = scene;
+        this.camera = camera;
+        this.width = width;
+        this.height = height;
+        this.renderDistance = 20;
+    }
+
+    /**
+     * @return the scene which is rendered
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * @param scene the new scene to render
+     */
+    public void setScene(Scene scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * @return the camera from which the scene is rendered
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * @param camera the new camera from which to render the scene
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * @return The amount of pixels wide each frame is
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The amount of pixels tall each frame is
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The maximum distance for a ray to travel before assuming it has hit nothing
+     */
+    public double getRenderDistance() {
+        return renderDistance;
+    }
+
+    /**
+     * @param renderDistance The new maximum distance for a ray to travel before assuming 
+     * it has hit nothing
+     */
+    public void setRenderDistance(double renderDistance) {
+        this.renderDistance = renderDistance;
+    }
+
+    /**
+     * Renders a frame into an array of pixels
+     * @param pixels The array to write the frame's pixel color values to, in the order of 
+     * left to right for each row, from top to bottom, as int RGB values in the default sRGB 
+     * {@link java.awt.image.ColorModel ColorModel}. Its length must be at least width * height.
+     * @return The array of pixels that was passed in
+     */
+    public int[] render(int[] pixels) {
+        if (pixels.length < width * height)
+            throw new IllegalArgumentException("Pixel array of length " + pixels.length + " is too small for a " 
+                + width + "x" + height + " frame");
+
+        camera.renderFrame(scene, new RayGenerator(camera, width, height, renderDistance), pixels);
+        return pixels;
+    }
+
+    /**
+     * Renders a frame into an image. Images of type {@link BufferedImage#TYPE_INT_RGB} or 
+     * {@link BufferedImage#TYPE_INT_ARGB} are rendered into directly, while other types 
+     * are copied into after rendering.
+     * @param image The image to render into, which must be the same size as the frame
+     * @return The image that was passed in
+     */
+    public BufferedImage render(BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != height)
+            throw new IllegalArgumentException("Image is " + image.getWidth() + "x" + image.getHeight() 
+                + " but the frame is " + width + "x" + height);
+
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+            && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            render(((DataBufferInt)image.getRaster().getDataBuffer()).getData());
+        }
+        else {
+            image.setRGB(0, 0, width, height, render(new int[width * height]), 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Renders a frame into a new image
+     * @return A new image of type {@link BufferedImage#TYPE_INT_RGB} with the frame
+     */
+    public BufferedImage render() {
+        return render(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * Renders a frame and writes it to a PNG file
+     * @param file The file to write the frame to
+     * @throws IOException If the file couldn't be written
+     */
+    public void writePNG(File file) throws IOException {
+        writePNG(render(), file);
+    }
+
+    /**
+     * Writes an already rendered frame to a PNG file
+     * @param image The rendered frame
+     * @param file The file to write the frame to
+     * @throws IOException If the file couldn't be written
+     */
+    public static void writePNG(BufferedImage image, File file) throws IOException {
+        if (!ImageIO.write(image, "png", file))
+            throw new IOException("No PNG writer is available");
+    }
+}
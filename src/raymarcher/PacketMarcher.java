@@ -0,0 +1,51 @@
+package raymarcher;
+
+/**
+ * The interface for marching packets of rays together, using SIMD instructions to 
+ * advance every ray of a packet at once. Packets are marched with plain sphere tracing
+ * through a scene's {@link CompiledMesh compiled meshes}, and give the same results as 
+ * marching each ray by itself.
+ */
+public interface PacketMarcher {
+
+    /**
+     * Creates the packet marcher which uses the Java Vector API. The API is still an 
+     * incubator module, so the JVM must be started with 
+     * {@code --add-modules jdk.incubator.vector} for it to be available.
+     * @return The packet marcher, or null if the Vector API isn't available or the 
+     * hardware can't process more than one double at once
+     */
+    public static PacketMarcher create() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return null;
+
+        try {
+            //only loaded once the module is known to be there
+            PacketMarcher marcher = (PacketMarcher) Class.forName("raymarcher.VectorPacketMarcher")
+                .getDeclaredConstructor().newInstance();
+            return marcher.getPacketSize() > 1 ? marcher : null;
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of rays marched at once, which packets should be sized to
+     */
+    public int getPacketSize();
+
+    /**
+     * Marches every ray of a packet through a scene until each hits a mesh or reaches the
+     * render distance
+     * @param scene The scene which includes all meshes to search for ray hits with, used
+     * to find the mesh each ray hit
+     * @param meshes The scene's meshes, compiled in the same order as {@link Scene#getMeshes()}
+     * @param packet The rays to march, whose results are written back to it
+     * @param renderDistance The maximum distance the rays will render objects up to
+     * @param epsilon The distance away from an object the rays will consider an intersection
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     */
+    public void march(Scene scene, CompiledMesh[] meshes, RayPacket packet, double renderDistance, double epsilon, 
+        RenderStatistics.Shard statistics);
+}
@@ -1,12 +1,13 @@
 package raymarcher;
 
-import java.util.ArrayList;
-
 /**
  * Represents a ray shot from the camera to calculate the 
  * value of a screen pixel
  */
 public class Ray {
+
+    /**The default maximum error for which a ray will approximate an intersection */
+    public static final double DEFAULT_EPSILON = .005;
     
     /**The direction in which this ray will be cast */
     private Vector3 direction;
@@ -28,7 +29,7 @@ public class Ray {
         this.position = position;
         this.direction = direction.getUnitVector();
         this.renderDistance = renderDistance;
-        this.epsilon = .005;
+        this.epsilon = DEFAULT_EPSILON;
     }
     
 
@@ -99,40 +100,91 @@ public class Ray {
      * {@link java.awt.image.ColorModel ColorModel}.
      */
     public int calculate(Scene scene) {
-        ArrayList<Mesh> meshes = scene.getMeshes();
-        Vector3 marchPosition = position.clone();
-
-        double distToScene = epsilon + 1;
-        double distTraveled = 0;
-        Mesh closestMesh = meshes.get(0);
-
-        //keep marching until mesh is hit or ray hits render distance
-        while (distToScene > epsilon && distTraveled < renderDistance) {             
-
-            double minDist = meshes.get(0).sdf(marchPosition);
-
-            //loop through scene to find closest mesh
-            for (int i = 1; i < meshes.size(); i++) {
-                double sdf = meshes.get(i).sdf(marchPosition);
-                if (sdf < minDist) {
-                    minDist = sdf;
-                    closestMesh = meshes.get(i);
-                }
-            }
-
-            distToScene = minDist;
-            distTraveled += distToScene;
-            marchPosition.addInPlace(direction.multiply(distToScene));      //march the ray
-        }
+        return calculate(scene, position.getX(), position.getY(), position.getZ(), 
+            direction.getX(), direction.getY(), direction.getZ(), renderDistance, epsilon);
+    }
+
+    /**
+     * Calculates which color a ray will be after marching forwards, without needing
+     * a Ray object to be created for it. The march position is kept in primitives so
+     * that no vectors are created while marching.
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param renderDistance The maximum distance the ray will render objects up to
+     * @param epsilon The distance away from an object the ray will consider an intersection
+     * @return The color value of the pixel corresponding to the ray, as an int
+     * RGB value representing the color in the default sRGB
+     * {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public static int calculate(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double renderDistance, double epsilon) {
+        return calculate(scene, x, y, z, dx, dy, dz, renderDistance, epsilon, null);
+    }
 
-        //there seems to be issue with coloring (thinks it hit sphere when it hit box) (use ray # 198120)
+    /**
+     * Calculates which color a ray will be after marching forwards, recording how the 
+     * ray was marched into a shard of render statistics
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param renderDistance The maximum distance the ray will render objects up to
+     * @param epsilon The distance away from an object the ray will consider an intersection
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @return The color value of the pixel corresponding to the ray, as an int
+     * RGB value representing the color in the default sRGB
+     * {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public static int calculate(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double renderDistance, double epsilon, RenderStatistics.Shard statistics) {
 
-        //see if hit a mesh or hit nothing
-        if (distTraveled > renderDistance)
-            return scene.getWorldColor();
-        else
-            return closestMesh.getMeshColor().getRGB();
+        RayHit hit = new RayHit();
+        march(scene, x, y, z, dx, dy, dz, 0, renderDistance, epsilon, statistics, hit);
+        return hit.getColor(scene);
+    }
+
+    /**
+     * Marches a ray forwards through a scene until it hits a mesh or reaches the render
+     * distance, with the scene's {@link MarchStrategy}. The march position is kept in 
+     * primitives so that no objects are created.
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param startDistance The distance along the ray to start marching from, which must be
+     * known not to skip past any mesh, or 0 to march the whole ray. If the starting point
+     * turns out to be inside or touching a mesh, the whole ray is marched instead. If it is 
+     * beyond the render distance, the ray misses without marching.
+     * @param renderDistance The maximum distance the ray will render objects up to
+     * @param epsilon The distance away from an object the ray will consider an intersection
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @param result The result to write how the ray was marched to
+     */
+    public static void march(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result) {
+
+        //the whole ray is already known to be empty
+        if (startDistance >= renderDistance) {
+            if (statistics != null)
+                statistics.recordRay(0, false, true);
+            result.set(false, startDistance, 0, -1, x + dx * startDistance, y + dy * startDistance, 
+                z + dz * startDistance);
+            return;
+        }
 
+        scene.getMarchStrategy().march(scene, x, y, z, dx, dy, dz, startDistance, renderDistance, epsilon, 
+            statistics, result);
     }
 
 
@@ -0,0 +1,284 @@
+package raymarcher;
+
+import java.io.Serializable;
+
+/**
+ * Builds the ray for each pixel of the camera's screen when it is rendered, rather 
+ * than storing a Ray for every pixel. A generator is a snapshot of the camera's 
+ * position and orientation, so moving or rotating the camera afterwards does not 
+ * change the rays of a generator that was already created.
+ */
+public class RayGenerator implements Serializable {
+
+    /** Default Serial Version ID for Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** The amount of pixels wide the screen is */
+    private final int screenWidth;
+    /** The amount of pixels tall the screen is */
+    private final int screenHeight;
+    /** The maximum distance for a ray to travel before assuming it has hit nothing */
+    private final double renderDistance;
+    /** The maximum error for which a ray will approximate an intersection */
+    private final double epsilon;
+    /** The coordinates of the camera's position, which every ray points away from */
+    private final double cameraX, cameraY, cameraZ;
+    /** The coordinates of the center of the screen the image is projected upon */
+    private final double centerX, centerY, centerZ;
+    /** The components of the upwards direction of the camera */
+    private final double upX, upY, upZ;
+    /** The components of the rightward direction of the camera */
+    private final double rightX, rightY, rightZ;
+    /** The distance, in scene units between the center of each pixel and the one adjacent to it */
+    private final double pixelDistance;
+
+    /**
+     * Creates a ray generator for the camera's current position and orientation
+     * @param camera The camera whose rays to generate
+     * @param screenWidth The amount of pixels wide the screen is
+     * @param screenHeight The amount of pixels tall the screen is
+     * @param renderDistance The maximum distance for a ray to travel before assuming
+     * it has hit nothing
+     */
+    public RayGenerator(Camera camera, int screenWidth, int screenHeight, double renderDistance) {
+        this(camera, screenWidth, screenHeight, renderDistance, camera.getPixelDistance());
+    }
+
+    /**
+     * Creates a ray generator for the camera's current position and orientation, with a 
+     * different distance between pixels than the camera's. This can be used to render at 
+     * a different resolution with the same field of view.
+     * @param camera The camera whose rays to generate
+     * @param screenWidth The amount of pixels wide the screen is
+     * @param screenHeight The amount of pixels tall the screen is
+     * @param renderDistance The maximum distance for a ray to travel before assuming
+     * it has hit nothing
+     * @param pixelDistance The distance, in scene units between the center of each pixel 
+     * and the one adjacent to it
+     */
+    public RayGenerator(Camera camera, int screenWidth, int screenHeight, double renderDistance, double pixelDistance) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.renderDistance = renderDistance;
+        this.epsilon = Ray.DEFAULT_EPSILON;
+
+        Vector3 position = camera.getPosition();
+        Vector3 screenCenter = position.add(camera.getDirection().multiply(camera.getScreenDistance()));
+        Vector3 upDirection = camera.getUpDirection();
+        Vector3 rightDirection = camera.getRightDirection();
+        this.pixelDistance = pixelDistance;
+
+        cameraX = position.getX();
+        cameraY = position.getY();
+        cameraZ = position.getZ();
+        centerX = screenCenter.getX();
+        centerY = screenCenter.getY();
+        centerZ = screenCenter.getZ();
+        upX = upDirection.getX();
+        upY = upDirection.getY();
+        upZ = upDirection.getZ();
+        rightX = rightDirection.getX();
+        rightY = rightDirection.getY();
+        rightZ = rightDirection.getZ();
+    }
+
+    /**
+     * Checks whether another generator gives exactly the same rays as this one, so that
+     * a frame rendered with either would be the same
+     * @param other The other generator
+     * @return Whether or not the generators have the same resolution, render distance,
+     * camera position and orientation, and distance between pixels
+     */
+    public boolean hasSameRays(RayGenerator other) {
+        return screenWidth == other.screenWidth && screenHeight == other.screenHeight
+            && renderDistance == other.renderDistance && epsilon == other.epsilon
+            && cameraX == other.cameraX && cameraY == other.cameraY && cameraZ == other.cameraZ
+            && centerX == other.centerX && centerY == other.centerY && centerZ == other.centerZ
+            && upX == other.upX && upY == other.upY && upZ == other.upZ
+            && rightX == other.rightX && rightY == other.rightY && rightZ == other.rightZ
+            && pixelDistance == other.pixelDistance;
+    }
+
+    /**
+     * @return The amount of pixels wide the screen is
+     */
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    /**
+     * @return The amount of pixels tall the screen is
+     */
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    /**
+     * @return The maximum distance for a ray to travel before assuming it has hit nothing
+     */
+    public double getRenderDistance() {
+        return renderDistance;
+    }
+
+    /**
+     * @return The distance away from a mesh a ray will consider an intersection
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * @return The position of the camera, which every ray points away from
+     */
+    public Vector3 getCameraPosition() {
+        return new Vector3(cameraX, cameraY, cameraZ);
+    }
+
+    /**
+     * Creates a Ray object for a pixel of the screen. Rendering does not use this, 
+     * as it calculates the pixels' colors without creating any objects.
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @return The ray cast through the center of the pixel
+     */
+    public Ray createRay(int column, int row) {
+        double r = pixelDistance * (screenHeight / 2.0 - .5 - row);
+        double c = pixelDistance * (screenWidth / -2.0 + .5 + column);
+
+        Vector3 rayPosition = new Vector3(centerX + upX * r + rightX * c, centerY + upY * r + rightY * c, 
+            centerZ + upZ * r + rightZ * c);
+        return new Ray(rayPosition, new Vector3(cameraX, cameraY, cameraZ).differenceVector(rayPosition), renderDistance);
+    }
+
+    /**
+     * Gives the ray of a point of the screen, without creating any objects
+     * @param column The point's column, from 0 at the center of the left pixel of the screen.
+     * Whole numbers give the ray through the center of a pixel.
+     * @param row The point's row, from 0 at the center of the top pixel of the screen
+     * @param ray The array to write the ray's starting position (x, y, z) and unit direction 
+     * (x, y, z) to, which must have a length of at least 6
+     */
+    public void getRay(double column, double row, double[] ray) {
+        double r = pixelDistance * (screenHeight / 2.0 - .5 - row);
+        double c = pixelDistance * (screenWidth / -2.0 + .5 + column);
+
+        double x = centerX + upX * r + rightX * c;
+        double y = centerY + upY * r + rightY * c;
+        double z = centerZ + upZ * r + rightZ * c;
+        double dx = x - cameraX;
+        double dy = y - cameraY;
+        double dz = z - cameraZ;
+        double inverseLength = 1 / Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        ray[0] = x;
+        ray[1] = y;
+        ray[2] = z;
+        ray[3] = dx * inverseLength;
+        ray[4] = dy * inverseLength;
+        ray[5] = dz * inverseLength;
+    }
+
+    /**
+     * Projects a point in the scene onto the screen, finding the pixel whose ray passes 
+     * through it. This is the inverse of {@link #getRay(double, double, double[])}.
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @param pixel The array to write the point's column, row, and distance along the ray
+     * from the screen to, which must have a length of at least 3. The column and row are 
+     * not rounded and may be off of the screen.
+     * @return Whether the point is in front of the screen, so that it could be seen. If 
+     * not, nothing is written to the array.
+     */
+    public boolean project(double x, double y, double z, double[] pixel) {
+
+        //write the point relative to the camera as a multiple of the vector to the screen
+        //center plus multiples of the up and right directions, which are not assumed to 
+        //be perpendicular, by solving for them with Cramer's rule
+        double ax = centerX - cameraX, ay = centerY - cameraY, az = centerZ - cameraZ;
+        double vx = x - cameraX, vy = y - cameraY, vz = z - cameraZ;
+
+        //cross products of the basis: up x right, right x a, a x up
+        double urX = upY * rightZ - upZ * rightY, urY = upZ * rightX - upX * rightZ, urZ = upX * rightY - upY * rightX;
+        double raX = rightY * az - rightZ * ay, raY = rightZ * ax - rightX * az, raZ = rightX * ay - rightY * ax;
+        double auX = ay * upZ - az * upY, auY = az * upX - ax * upZ, auZ = ax * upY - ay * upX;
+
+        double determinant = ax * urX + ay * urY + az * urZ;
+        if (determinant == 0)
+            return false;
+
+        double alpha = (vx * urX + vy * urY + vz * urZ) / determinant;
+        double beta = (vx * raX + vy * raY + vz * raZ) / determinant;
+        double gamma = (vx * auX + vy * auY + vz * auZ) / determinant;
+
+        //points between the camera and the screen are behind where the rays start
+        if (!(alpha > 1))
+            return false;
+
+        double r = beta / alpha / pixelDistance;
+        double c = gamma / alpha / pixelDistance;
+        pixel[0] = c + screenWidth / 2.0 - .5;
+        pixel[1] = screenHeight / 2.0 - .5 - r;
+        pixel[2] = Math.sqrt(vx * vx + vy * vy + vz * vz) * (1 - 1 / alpha);
+        return true;
+    }
+
+    /**
+     * Calculates the color of a pixel of the screen by marching its ray through a scene
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @return The color value of the pixel, as an int RGB value representing the color 
+     * in the default sRGB {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public int calculate(Scene scene, int column, int row) {
+        return calculate(scene, column, row, null);
+    }
+
+    /**
+     * Calculates the color of a pixel of the screen by marching its ray through a scene,
+     * recording how the ray was marched into a shard of render statistics
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @return The color value of the pixel, as an int RGB value representing the color 
+     * in the default sRGB {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public int calculate(Scene scene, int column, int row, RenderStatistics.Shard statistics) {
+        RayHit hit = new RayHit();
+        march(scene, column, row, 0, statistics, hit);
+        return hit.getColor(scene);
+    }
+
+    /**
+     * Marches the ray of a pixel of the screen through a scene
+     * @param scene The scene which includes all meshes to search for ray hits with
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @param startDistance The distance along the ray to start marching from, or 0 to
+     * march the whole ray. See {@link Ray#march}.
+     * @param statistics The current thread's shard of render statistics, or null to not record any
+     * @param hit The result to write how the ray was marched to
+     */
+    public void march(Scene scene, int column, int row, double startDistance, RenderStatistics.Shard statistics, 
+        RayHit hit) {
+
+        //go up/down and left/right from the screen center by the pixel's offset
+        double r = pixelDistance * (screenHeight / 2.0 - .5 - row);
+        double c = pixelDistance * (screenWidth / -2.0 + .5 + column);
+
+        double x = centerX + upX * r + rightX * c;
+        double y = centerY + upY * r + rightY * c;
+        double z = centerZ + upZ * r + rightZ * c;
+
+        //the ray points from the camera through the pixel
+        double dx = x - cameraX;
+        double dy = y - cameraY;
+        double dz = z - cameraZ;
+        double inverseLength = 1 / Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        Ray.march(scene, x, y, z, dx * inverseLength, dy * inverseLength, dz * inverseLength, 
+            startDistance, renderDistance, epsilon, statistics, hit);
+    }
+}
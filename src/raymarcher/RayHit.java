@@ -0,0 +1,110 @@
+package raymarcher;
+
+/**
+ * The result of marching a ray through a scene: whether it hit a mesh, which mesh it 
+ * hit, where, and how far and for how many steps it marched. A RayHit is reused for 
+ * every ray a thread marches, so that marching doesn't create any objects.
+ */
+public class RayHit {
+
+    /** Whether or not the ray hit a mesh */
+    private boolean hit;
+    /** The distance the ray traveled from its starting position */
+    private double distance;
+    /** The number of march steps the ray took */
+    private int steps;
+    /** The index of the mesh that was hit in the scene's list of meshes, or -1 if none was hit */
+    private int meshIndex;
+    /** The coordinates of the point the ray stopped marching at */
+    private double x, y, z;
+
+    /**
+     * Creates an empty result, for a ray which hasn't hit anything
+     */
+    public RayHit() {
+        this.meshIndex = -1;
+    }
+
+    /**
+     * Sets the result of a ray which finished marching
+     * @param hit Whether or not the ray hit a mesh
+     * @param distance The distance the ray traveled from its starting position
+     * @param steps The number of march steps the ray took
+     * @param meshIndex The index of the mesh that was hit in the scene's list of meshes, or -1
+     * @param x The x-coordinate of the point the ray stopped marching at
+     * @param y The y-coordinate of the point the ray stopped marching at
+     * @param z The z-coordinate of the point the ray stopped marching at
+     */
+    public void set(boolean hit, double distance, int steps, int meshIndex, double x, double y, double z) {
+        this.hit = hit;
+        this.distance = distance;
+        this.steps = steps;
+        this.meshIndex = meshIndex;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * @return Whether or not the ray hit a mesh
+     */
+    public boolean isHit() {
+        return hit;
+    }
+
+    /**
+     * @return The distance the ray traveled from its starting position
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The number of march steps the ray took
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The index of the mesh that was hit in the scene's list of meshes, or -1 if
+     * no mesh was hit
+     */
+    public int getMeshIndex() {
+        return meshIndex;
+    }
+
+    /**
+     * @return The x-coordinate of the point the ray stopped marching at
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return The y-coordinate of the point the ray stopped marching at
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return The z-coordinate of the point the ray stopped marching at
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Gives the color of the pixel of the ray
+     * @param scene The scene the ray was marched through
+     * @return The color of the mesh that was hit, or the world color if none was, as an 
+     * int RGB value representing the color in the default sRGB {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public int getColor(Scene scene) {
+        if (meshIndex >= 0)
+            return scene.getMeshes().get(meshIndex).getMeshColor().getRGB();
+        else
+            return scene.getWorldColor();
+    }
+}
@@ -0,0 +1,84 @@
+package raymarcher;
+
+/**
+ * A group of neighbouring rays which are marched together by a {@link PacketMarcher}.
+ * The rays are stored as arrays of each coordinate, so that each coordinate of every
+ * ray can be loaded at once. A packet is reused for every group of rays a thread marches.
+ */
+public class RayPacket {
+
+    /** The coordinates of the starting position of each ray */
+    final double[] x, y, z;
+    /** The components of the unit direction of each ray */
+    final double[] dx, dy, dz;
+    /** The distance along each ray to start marching from, or 0 to march the whole ray */
+    final double[] startDistances;
+    /** The result of marching each ray */
+    private final RayHit[] hits;
+    /** The number of rays in the packet */
+    private int count;
+
+    /**
+     * Creates an empty packet
+     * @param size The most rays the packet can hold
+     */
+    public RayPacket(int size) {
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        dx = new double[size];
+        dy = new double[size];
+        dz = new double[size];
+        startDistances = new double[size];
+        hits = new RayHit[size];
+        for (int i = 0; i < size; i++)
+            hits[i] = new RayHit();
+    }
+
+    /**
+     * @return The most rays the packet can hold
+     */
+    public int getSize() {
+        return hits.length;
+    }
+
+    /**
+     * @return The number of rays in the packet
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Removes every ray from the packet
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a ray to the packet
+     * @param ray The ray's starting position (x, y, z) and unit direction (x, y, z), as 
+     * given by {@link RayGenerator#getRay(double, double, double[])}
+     * @param startDistance The distance along the ray to start marching from, or 0 to 
+     * march the whole ray
+     */
+    public void add(double[] ray, double startDistance) {
+        x[count] = ray[0];
+        y[count] = ray[1];
+        z[count] = ray[2];
+        dx[count] = ray[3];
+        dy[count] = ray[4];
+        dz[count] = ray[5];
+        startDistances[count] = startDistance;
+        count++;
+    }
+
+    /**
+     * @param index The index of the ray, in the order the rays were added
+     * @return The result of marching the ray
+     */
+    public RayHit getHit(int index) {
+        return hits[index];
+    }
+}
@@ -0,0 +1,152 @@
+package raymarcher;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects statistics about the rendering of each frame, such as how many march steps 
+ * and SDF evaluations it took. Every render thread counts into its own shard, so threads
+ * never write to the same counters while rendering, and the shards are only added
+ * together once the frame is finished.
+ */
+public class RenderStatistics {
+
+    /** The shard of counters of each thread that has rendered */
+    private final CopyOnWriteArrayList<Shard> shards;
+    /** The shard of counters of the current thread */
+    private final ThreadLocal<Shard> threadShard;
+    /** The time, in nanoseconds, that the current frame started rendering */
+    private long frameStart;
+    /** The statistics of the last frame that finished rendering */
+    private volatile FrameStatistics lastFrame;
+
+    /**
+     * Creates a collector of statistics, which hasn't recorded any frames yet
+     */
+    public RenderStatistics() {
+        shards = new CopyOnWriteArrayList<Shard>();
+        threadShard = ThreadLocal.withInitial(() -> {
+            Shard shard = new Shard();
+            shards.add(shard);
+            return shard;
+        });
+    }
+
+    /**
+     * Gives the shard of counters which the current thread should record its rays into. 
+     * Looking up the shard has a cost, so it should be done once for a group of rays, 
+     * such as a tile, rather than for every ray.
+     * @return The current thread's shard
+     */
+    public Shard getShard() {
+        return threadShard.get();
+    }
+
+    /**
+     * Starts recording a new frame, clearing the counters of the last one. This must
+     * not be called while any thread is still rendering.
+     */
+    public void beginFrame() {
+        for (Shard shard : shards)
+            shard.reset();
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Finishes recording the current frame, adding up every thread's counters. This must
+     * be called after every thread has finished rendering the frame.
+     * @return The statistics of the frame
+     */
+    public FrameStatistics endFrame() {
+        long frameTime = System.nanoTime() - frameStart;
+        long rays = 0, hits = 0, outOfRange = 0, steps = 0, sdfEvaluations = 0, maxSteps = 0, prepassSteps = 0;
+        for (Shard shard : shards) {
+            rays += shard.rays;
+            hits += shard.hits;
+            outOfRange += shard.outOfRange;
+            steps += shard.steps;
+            sdfEvaluations += shard.sdfEvaluations;
+            maxSteps = Math.max(maxSteps, shard.maxSteps);
+            prepassSteps += shard.prepassSteps;
+        }
+
+        lastFrame = new FrameStatistics(frameTime, rays, hits, outOfRange, steps, sdfEvaluations, maxSteps, 
+            prepassSteps);
+        return lastFrame;
+    }
+
+    /**
+     * @return The statistics of the last frame that finished rendering, or null if no 
+     * frame has been recorded yet
+     */
+    public FrameStatistics getLastFrame() {
+        return lastFrame;
+    }
+
+    /**
+     * The counters of a single render thread. Only the thread that owns a shard may 
+     * record into it.
+     */
+    public static class Shard {
+
+        /** The number of rays marched */
+        private long rays;
+        /** The number of rays that hit a mesh */
+        private long hits;
+        /** The number of rays that reached the render distance without hitting a mesh */
+        private long outOfRange;
+        /** The total number of march steps of every ray */
+        private long steps;
+        /** The total number of mesh SDF evaluations made while marching */
+        private long sdfEvaluations;
+        /** The most march steps taken by any one ray */
+        private long maxSteps;
+        /** The total number of march steps of the depth prepass's cones */
+        private long prepassSteps;
+
+        /**
+         * Records a ray that finished marching
+         * @param steps The number of march steps the ray took
+         * @param hit Whether or not the ray hit a mesh
+         * @param outOfRange Whether or not the ray stopped because it reached the render distance
+         */
+        public void recordRay(int steps, boolean hit, boolean outOfRange) {
+            this.rays++;
+            this.steps += steps;
+            if (steps > maxSteps)
+                maxSteps = steps;
+            if (hit)
+                this.hits++;
+            if (outOfRange)
+                this.outOfRange++;
+        }
+
+        /**
+         * Records evaluations of mesh SDFs
+         * @param count The number of SDFs evaluated
+         */
+        public void recordEvaluations(int count) {
+            sdfEvaluations += count;
+        }
+
+        /**
+         * Records the march steps of a cone of the depth prepass
+         * @param steps The number of march steps the cone took
+         */
+        public void recordPrepassSteps(int steps) {
+            prepassSteps += steps;
+        }
+
+        /**
+         * Clears all the counters
+         */
+        private void reset() {
+            rays = 0;
+            hits = 0;
+            outOfRange = 0;
+            steps = 0;
+            sdfEvaluations = 0;
+            maxSteps = 0;
+            prepassSteps = 0;
+        }
+    }
+}
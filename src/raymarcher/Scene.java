@@ -3,20 +3,60 @@ package raymarcher;
 import java.util.ArrayList;
 import java.awt.Color;
 
+import raymarcher.marching.SphereTracing;
+
 /**
  * The scene which the camera will render
  */
 public class Scene {
 
+    /**The default amount of each mesh's color shown where no light reaches it */
+    public static final double DEFAULT_AMBIENT_LIGHT = .15;
+    /**The default intensity of the highlights lights make on the meshes */
+    public static final double DEFAULT_SPECULAR_STRENGTH = .3;
+    /**The default sharpness of the highlights lights make on the meshes */
+    public static final double DEFAULT_SHININESS = 32;
+
     /**A List of the meshes to render in this scene */
     private ArrayList<Mesh> meshes;
     /**The background color of the world */
     private int worldColor;
+    /**A List of the lights which shade the meshes in this scene */
+    private ArrayList<Light> lights;
+    /**The amount of each mesh's color shown where no light reaches it */
+    private double ambientLight;
+    /**The intensity of the highlights lights make on the meshes, compared to their diffuse light */
+    private double specularStrength;
+    /**How sharp the highlights lights make on the meshes are */
+    private double shininess;
+    /**The bounding volume hierarchy over the scene's meshes, or null if it needs to be built */
+    private volatile BoundingVolumeHierarchy hierarchy;
+    /**The {@link #getMeshesVersion() version of the meshes} the hierarchy was last updated at */
+    private volatile long hierarchyVersion;
+    /**Each mesh compiled into an instruction tape for marching packets of rays, or null if they need to be compiled */
+    private volatile CompiledMesh[] packetMeshes;
+    /**The way rays are marched through the scene */
+    private MarchStrategy marchStrategy;
+    /**Whether the meshes are compiled into instruction tapes when the hierarchy is built */
+    private boolean compiled;
+    /**The generator of the scene's specialized SDF, or null if the scene isn't specialized */
+    private volatile SdfGenerator generator;
+    /**The specialized SDF of the scene, or null if it needs to be generated or is too large */
+    private volatile SceneSdf specializedSdf;
+    /**The number of changes made through the scene's setters, which is part of its version */
+    private volatile long modifications;
+    /**The number of changes made to the list of meshes or marked with {@link #markChanged()}, which the hierarchy is built from */
+    private volatile long meshModifications;
 
     /**Creates a default, empty scene with a world color of sky blue */
     public Scene() {
         meshes = new ArrayList<Mesh>();
         worldColor = (new Color(0x87ceeb)).getRGB();
+        marchStrategy = new SphereTracing();
+        lights = new ArrayList<Light>();
+        ambientLight = DEFAULT_AMBIENT_LIGHT;
+        specularStrength = DEFAULT_SPECULAR_STRENGTH;
+        shininess = DEFAULT_SHININESS;
     }
     
 
@@ -32,6 +72,11 @@ public class Scene {
      */
     public void setMeshes(ArrayList<Mesh> meshes) {
         this.meshes = meshes;
+        this.hierarchy = null;
+        this.packetMeshes = null;
+        this.specializedSdf = null;
+        modifications++;
+        meshModifications++;
     }
 
     /**
@@ -51,6 +96,7 @@ public class Scene {
      */
     public void setWorldColor(int worldColor) {
         this.worldColor = worldColor;
+        modifications++;
     }
 
     /**
@@ -58,6 +104,151 @@ public class Scene {
      */
     public void setWorldColor(Color color) {
         this.worldColor = color.getRGB();
+        modifications++;
+    }
+
+
+    /**
+     * @return the list of all lights currently in the scene. While it is empty, meshes
+     * are rendered in their flat colors.
+     */
+    public ArrayList<Light> getLights() {
+        return lights;
+    }
+
+    /**
+     * @param lights the list of lights to set as the lights which shade the scene's meshes
+     */
+    public void setLights(ArrayList<Light> lights) {
+        this.lights = lights;
+        modifications++;
+    }
+
+    /**
+     * Adds a light to the scene, which shades each pixel of a mesh after the rays of a
+     * frame are marched. Once the scene has any lights, meshes are shaded with the 
+     * Phong reflection model instead of being rendered in their flat colors.
+     * @param light The light to add to the scene
+     */
+    public void addLight(Light light) {
+        lights.add(light);
+        modifications++;
+    }
+
+    /**
+     * @return the amount of each mesh's color shown where no light reaches it, from 0 to 1
+     */
+    public double getAmbientLight() {
+        return ambientLight;
+    }
+
+    /**
+     * @param ambientLight the amount of each mesh's color to show where no light reaches
+     * it, from 0 to 1, which is {@value #DEFAULT_AMBIENT_LIGHT} by default
+     */
+    public void setAmbientLight(double ambientLight) {
+        this.ambientLight = ambientLight;
+        modifications++;
+    }
+
+    /**
+     * @return the intensity of the highlights lights make on the meshes, compared to 
+     * their diffuse light
+     */
+    public double getSpecularStrength() {
+        return specularStrength;
+    }
+
+    /**
+     * @param specularStrength the intensity of the highlights lights make on the meshes,
+     * compared to their diffuse light, or 0 for no highlights. It is 
+     * {@value #DEFAULT_SPECULAR_STRENGTH} by default.
+     */
+    public void setSpecularStrength(double specularStrength) {
+        this.specularStrength = specularStrength;
+        modifications++;
+    }
+
+    /**
+     * @return how sharp the highlights lights make on the meshes are
+     */
+    public double getShininess() {
+        return shininess;
+    }
+
+    /**
+     * @param shininess how sharp the highlights lights make on the meshes are, as the
+     * exponent of the Phong reflection model, which is {@value #DEFAULT_SHININESS} by 
+     * default. Higher values give smaller highlights.
+     */
+    public void setShininess(double shininess) {
+        this.shininess = shininess;
+        modifications++;
+    }
+
+
+    /**
+     * @return the way rays are marched through the scene
+     */
+    public MarchStrategy getMarchStrategy() {
+        return marchStrategy;
+    }
+
+    /**
+     * @param marchStrategy the way to march rays through the scene, such as plain 
+     * {@link SphereTracing sphere tracing}, which is the default
+     */
+    public void setMarchStrategy(MarchStrategy marchStrategy) {
+        this.marchStrategy = marchStrategy == null ? new SphereTracing() : marchStrategy;
+        modifications++;
+    }
+
+
+    /**
+     * @return whether the meshes are compiled into instruction tapes for rendering
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Sets whether to compile the meshes into {@link CompiledMesh instruction tapes} for 
+     * rendering, which evaluates MeshGroups without calling each mesh within them. The 
+     * meshes are compiled each time the hierarchy is built, so changes to them are picked 
+     * up as long as {@link #updateHierarchy()} is called afterwards.
+     * @param compiled whether to compile the meshes
+     */
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        this.hierarchy = null;
+        modifications++;
+        meshModifications++;
+    }
+
+
+    /**
+     * @return whether the scene's SDF is generated as a class specialized to its meshes
+     */
+    public boolean isSpecialized() {
+        return generator != null;
+    }
+
+    /**
+     * Sets whether to generate a class at runtime whose single method is the SDF of the 
+     * whole scene, with the parameters of its meshes written in as constants. Rays then 
+     * call this method instead of searching the hierarchy, which is faster for scenes of 
+     * a few meshes. The class is regenerated when {@link #updateHierarchy()} finds that 
+     * the meshes changed, and scenes too large for the JIT to compile as one method keep
+     * using the hierarchy. See {@link SdfGenerator}.
+     * @param specialized whether to generate the scene's SDF
+     */
+    public void setSpecialized(boolean specialized) {
+        if (specialized && generator == null)
+            generator = new SdfGenerator();
+        if (!specialized)
+            generator = null;
+        this.hierarchy = null;
+        this.specializedSdf = null;
     }
 
 
@@ -67,6 +258,254 @@ public class Scene {
      */
     public void add(Mesh mesh) {
         meshes.add(mesh);
+        this.hierarchy = null;
+        this.packetMeshes = null;
+        this.specializedSdf = null;
+        modifications++;
+        meshModifications++;
+    }
+
+    /**
+     * Records that something in the scene changed which {@link #getVersion()} can't see,
+     * such as a custom mesh whose shape changed without its bounds or color changing, so 
+     * that the next frame isn't skipped and the hierarchy is rebuilt
+     */
+    public void markChanged() {
+        modifications++;
+        meshModifications++;
+    }
+
+    /**
+     * @return the number of changes made through the scene's setters, which doesn't
+     * include changes to the meshes themselves
+     */
+    long getModifications() {
+        return modifications;
+    }
+
+    /**
+     * Gives a number which changes whenever anything that could change how the scene 
+     * renders changes, so that frames of an unchanged scene can be skipped. It covers the
+     * scene's setters, the list of meshes, and the bounds and color of each mesh and of 
+     * every mesh within a MeshGroup, so moving, resizing or recoloring the bundled meshes 
+     * changes it. It also covers the {@link #getLightsVersion() lights}. Changes to custom
+     * meshes which don't show in their bounds or color need {@link #markChanged()} to be
+     * called.
+     * @return The scene's version
+     */
+    public long getVersion() {
+        return getVersion(getMeshesVersion());
+    }
+
+    /**
+     * Gives the scene's {@link #getVersion() version} from the version of its meshes, so
+     * that a caller which needs both only fingerprints the meshes once
+     * @param meshesVersion The current {@link #getMeshesVersion() version of the meshes}
+     * @return The scene's version
+     */
+    long getVersion(long meshesVersion) {
+        long version = modifications;
+        version = version * 31 + meshesVersion;
+        version = version * 31 + worldColor;
+        return version * 31 + getLightsVersion();
+    }
+
+    /**
+     * Gives a number which changes whenever the list of meshes is changed, any of the 
+     * meshes is moved, resized or recolored, or {@link #markChanged()} is called, which is
+     * the part of the {@link #getVersion() version} that the hierarchy is built from. 
+     * Changing the lights, the world color or the other settings doesn't change it.
+     * @return The version of the scene's meshes
+     */
+    long getMeshesVersion() {
+        long version = meshModifications;
+        for (Mesh mesh : meshes)
+            version = version * 31 + fingerprint(mesh);
+        return version;
+    }
+
+    /**
+     * Gives a number which changes whenever any of the scene's lights is moved, turned,
+     * dimmed or recolored. Each light is sampled at the origin, so changes to custom 
+     * lights which don't show there need {@link #markChanged()} to be called.
+     * @return The version of the scene's lights
+     */
+    long getLightsVersion() {
+        long version = lights.size();
+        double[] direction = new double[3];
+        for (Light light : lights) {
+            double intensity = light.illuminate(0, 0, 0, direction);
+            version = version * 31 + System.identityHashCode(light);
+            version = version * 31 + Double.doubleToLongBits(intensity);
+            version = version * 31 + Double.doubleToLongBits(direction[0]);
+            version = version * 31 + Double.doubleToLongBits(direction[1]);
+            version = version * 31 + Double.doubleToLongBits(direction[2]);
+            Color color = light.getLightColor();
+            version = version * 31 + (color == null ? 0 : color.getRGB());
+        }
+        return version;
+    }
+
+    /**
+     * Hashes the identity, bounds and color of a mesh, and of the meshes within it if it 
+     * is a MeshGroup
+     * @param mesh The mesh to hash
+     * @return The hash, which changes when the mesh is moved, resized or recolored
+     */
+    static long fingerprint(Mesh mesh) {
+        long hash = System.identityHashCode(mesh);
+        BoundingBox bounds = mesh.getBounds();
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMinX());
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMinY());
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMinZ());
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMaxX());
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMaxY());
+        hash = hash * 31 + Double.doubleToLongBits(bounds.getMaxZ());
+        Color color = mesh.getMeshColor();
+        hash = hash * 31 + (color == null ? 0 : color.getRGB());
+
+        //a mesh inside a group can change without changing the group's bounds
+        if (mesh instanceof MeshGroup) {
+            MeshGroup group = (MeshGroup) mesh;
+            hash = hash * 31 + fingerprint(group.getMesh1());
+            hash = hash * 31 + fingerprint(group.getMesh2());
+        }
+        return hash;
+    }
+
+    /**
+     * Rebuilds the bounding volume hierarchy over the scene's meshes if they changed since
+     * it was last updated, generating the scene's specialized SDF again as well. This needs
+     * to be called after meshes are moved or resized, or after the list of meshes is 
+     * changed directly. The camera calls it before rendering each frame, so frames of an
+     * unchanged scene don't pay for a rebuild. Changes are found through the same 
+     * fingerprints as {@link #getVersion()}, so changes to custom meshes which don't show 
+     * in their bounds or color need {@link #markChanged()} to be called first.
+     */
+    public void updateHierarchy() {
+        updateHierarchy(getMeshesVersion());
+    }
+
+    /**
+     * Rebuilds the bounding volume hierarchy over the scene's meshes if they changed since
+     * it was last updated, from a version of the meshes the caller already found
+     * @param version The current {@link #getMeshesVersion() version of the meshes}
+     */
+    void updateHierarchy(long version) {
+        if (hierarchy != null && version == hierarchyVersion)
+            return;
+
+        hierarchy = buildHierarchy();
+        hierarchyVersion = version;
+        packetMeshes = null;
+
+        SdfGenerator current = generator;
+        if (current != null)
+            specializedSdf = current.generate(meshes);
+    }
+
+    /**
+     * Builds a bounding volume hierarchy over the scene's meshes, compiling them first if 
+     * the scene is compiled
+     * @return the new hierarchy
+     */
+    private BoundingVolumeHierarchy buildHierarchy() {
+        return new BoundingVolumeHierarchy(compiled ? SceneCompiler.compile(meshes) : meshes);
+    }
+
+    /**
+     * @return each of the scene's meshes compiled into an instruction tape, in the same 
+     * order, for marching packets of rays. They are compiled again along with the 
+     * hierarchy when {@link #updateHierarchy()} finds that the meshes changed.
+     */
+    CompiledMesh[] getPacketMeshes() {
+        CompiledMesh[] current = packetMeshes;
+        if (current == null) {
+            current = SceneCompiler.compile(meshes).toArray(new CompiledMesh[0]);
+            packetMeshes = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return the bounding volume hierarchy over the scene's meshes, which is built if
+     * it doesn't exist yet
+     */
+    public BoundingVolumeHierarchy getHierarchy() {
+        BoundingVolumeHierarchy current = hierarchy;
+        if (current == null) {
+            current = buildHierarchy();
+            hierarchy = current;
+        }
+        return current;
+    }
+
+    /**
+     * The signed distance function for the whole scene, which only evaluates the meshes
+     * whose bounding boxes are closer than the closest mesh found so far
+     * @param x The x-coordinate of the point to measure the distance to
+     * @param y The y-coordinate of the point to measure the distance to
+     * @param z The z-coordinate of the point to measure the distance to
+     * @return The smallest signed distance of any mesh in the scene to the point, or 
+     * positive infinity if the scene is empty
+     */
+    public double sdf(double x, double y, double z) {
+        return sdf(x, y, z, null);
+    }
+
+    /**
+     * The signed distance function for the whole scene, which also counts how many mesh 
+     * SDFs were evaluated
+     * @param x The x-coordinate of the point to measure the distance to
+     * @param y The y-coordinate of the point to measure the distance to
+     * @param z The z-coordinate of the point to measure the distance to
+     * @param statistics The shard to count the mesh SDF evaluations in, or null to not count them
+     * @return The smallest signed distance of any mesh in the scene to the point, or 
+     * positive infinity if the scene is empty
+     */
+    public double sdf(double x, double y, double z, RenderStatistics.Shard statistics) {
+        SceneSdf specialized = specializedSdf;
+        if (specialized != null) {
+            if (statistics != null)
+                statistics.recordEvaluations(meshes.size());
+            return specialized.sdf(x, y, z);
+        }
+        return getHierarchy().sdf(x, y, z, statistics);
+    }
+
+    /**
+     * Finds the mesh in the scene which is closest to a point
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @return The index of the closest mesh in {@link #getMeshes()}, or -1 if the scene 
+     * is empty
+     */
+    public int nearestMesh(double x, double y, double z) {
+        return getHierarchy().nearest(x, y, z);
+    }
+
+    /**
+     * Estimates the surface normal at a point from the central differences of the scene's
+     * SDF, for both the normals of a G-buffer and shading
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param z The z-coordinate of the point
+     * @param offset The distance from the point to sample the SDF at
+     * @param normal The array to write the normal's x, y and z components to, as a unit 
+     * vector, or as zeros if the SDF is flat around the point
+     */
+    void estimateNormal(double x, double y, double z, double offset, double[] normal) {
+
+        //the gradient of the SDF points away from the surface
+        double nx = sdf(x + offset, y, z) - sdf(x - offset, y, z);
+        double ny = sdf(x, y + offset, z) - sdf(x, y - offset, z);
+        double nz = sdf(x, y, z + offset) - sdf(x, y, z - offset);
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        double scale = length > 0 ? 1 / length : 0;
+        normal[0] = nx * scale;
+        normal[1] = ny * scale;
+        normal[2] = nz * scale;
     }
 
 }
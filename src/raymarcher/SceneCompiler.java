@@ -0,0 +1,217 @@
+package raymarcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * Compiles meshes into {@link CompiledMesh CompiledMeshes}, which evaluate a flat tape of 
+ * instructions instead of calling the SDF of each mesh in a MeshGroup tree. Every mesh of
+ * a compiled scene is then the same class, so the JIT can inline its SDF into the march 
+ * loop. The built-in primitives and MeshGroups are turned into instructions, while any 
+ * other mesh is kept and called from the tape as it is. MeshGroups too deep to evaluate 
+ * with the stack are compiled into their own tape, which is called like any other mesh.
+ * <p>
+ * A compiled mesh is a snapshot of the mesh's parameters, so meshes must be compiled 
+ * again after they are changed.
+ */
+public class SceneCompiler {
+
+    /** The opcode of a sphere, with the constants of its center and radius */
+    static final int SPHERE = 0;
+    /** The opcode of a box, with the constants of its center and size */
+    static final int BOX = 1;
+    /** The opcode of a rounded box, with the constants of its center, size and radius */
+    static final int ROUNDED_BOX = 2;
+    /** The opcode of a torus, with the constants of its center, radius and thickness */
+    static final int TORUS = 3;
+    /** The opcode of a triangular prism, with the constants of its center */
+    static final int TRIANGULAR_PRISM = 4;
+    /** The opcode of any other mesh, whose SDF is called, with the index of the mesh as its operand */
+    static final int MESH = 5;
+    /** The opcode of a union of the value below the top of the stack and the top */
+    static final int UNION = 6;
+    /** The opcode of subtracting the value below the top of the stack from the top */
+    static final int SUBTRACT = 7;
+    /** The opcode of subtracting the top of the stack from the value below it */
+    static final int SUBTRACT_REVERSED = 8;
+    /** The opcode of an intersection of the value below the top of the stack and the top */
+    static final int INTERSECTION = 9;
+    /** The flag added to the opcode of a mesh when the last value must be pushed down the stack first */
+    static final int PUSH = 1 << 8;
+    /** The most values the stack can hold below the last value */
+    static final int MAX_STACK = 4;
+
+    /** The instructions of the mesh being compiled, as opcodes followed by their operands */
+    private final ArrayList<Integer> code;
+    /** The constants the instructions of the mesh being compiled read in order */
+    private final ArrayList<Double> constants;
+    /** The meshes that couldn't be compiled, which are called from the tape */
+    private final ArrayList<Mesh> meshes;
+    /** The number of values on the stack below the last value at the current instruction */
+    private int depth;
+
+    /**
+     * Creates a compiler for a single mesh
+     */
+    private SceneCompiler() {
+        code = new ArrayList<Integer>();
+        constants = new ArrayList<Double>();
+        meshes = new ArrayList<Mesh>();
+    }
+
+    /**
+     * Compiles every mesh of a list, keeping them in the same order
+     * @param meshList The meshes to compile
+     * @return A list of the compiled meshes, in which each index is the same mesh as in 
+     * the original list
+     */
+    public static ArrayList<Mesh> compile(List<Mesh> meshList) {
+        ArrayList<Mesh> compiled = new ArrayList<Mesh>(meshList.size());
+        for (Mesh mesh : meshList)
+            compiled.add(compile(mesh));
+        return compiled;
+    }
+
+    /**
+     * Compiles a mesh, along with every mesh within it if it is a MeshGroup
+     * @param mesh The mesh to compile
+     * @return The compiled mesh, which has the same SDF, bounds and color as the mesh
+     */
+    public static CompiledMesh compile(Mesh mesh) {
+        SceneCompiler compiler = new SceneCompiler();
+        compiler.emit(mesh, false);
+
+        int[] code = new int[compiler.code.size()];
+        for (int i = 0; i < code.length; i++)
+            code[i] = compiler.code.get(i);
+        double[] constants = new double[compiler.constants.size()];
+        for (int i = 0; i < constants.length; i++)
+            constants[i] = compiler.constants.get(i);
+
+        return new CompiledMesh(mesh, code, constants, compiler.meshes.toArray(new Mesh[0]));
+    }
+
+    /**
+     * Gives how many values need to be on the stack at once to evaluate a mesh
+     * @param mesh The mesh to measure
+     * @return The number of values that must be kept below the last one
+     */
+    private static int stackNeeded(Mesh mesh) {
+        if (!isCompilableGroup(mesh))
+            return 0;
+
+        MeshGroup group = (MeshGroup) mesh;
+        int first = stackNeeded(group.getMesh1());
+        int second = stackNeeded(group.getMesh2());
+
+        //the mesh needing more is evaluated first, so the other one's needs stack on top of one value
+        return first == second ? first + 1 : Math.max(first, second);
+    }
+
+    /**
+     * @param mesh The mesh to check
+     * @return Whether the mesh is a MeshGroup with an operation that can be compiled
+     */
+    private static boolean isCompilableGroup(Mesh mesh) {
+        if (mesh.getClass() != MeshGroup.class)
+            return false;
+        int operation = ((MeshGroup) mesh).getOperation();
+        return operation == MeshGroup.UNION || operation == MeshGroup.SUBTRACT || operation == MeshGroup.INTERSECTION;
+    }
+
+    /**
+     * Adds the instructions to evaluate a mesh to the tape
+     * @param mesh The mesh to evaluate
+     * @param push Whether the last value must be pushed down the stack before evaluating the mesh
+     */
+    private void emit(Mesh mesh, boolean push) {
+        int flag = push ? PUSH : 0;
+        if (push)
+            depth++;
+
+        //a group that would overflow the stack gets a stack of its own
+        if (depth > 0 && isCompilableGroup(mesh) && depth + stackNeeded(mesh) > MAX_STACK) {
+            code.add(MESH | flag);
+            code.add(meshes.size());
+            meshes.add(compile(mesh));
+            return;
+        }
+
+        //only the exact classes are compiled, since subclasses may change the SDF
+        Class<?> type = mesh.getClass();
+        if (isCompilableGroup(mesh)) {
+            MeshGroup group = (MeshGroup) mesh;
+            Mesh first = group.getMesh1();
+            Mesh second = group.getMesh2();
+            boolean swap = stackNeeded(second) > stackNeeded(first);
+            if (swap) {
+                first = group.getMesh2();
+                second = group.getMesh1();
+            }
+
+            //the group's value replaces the last value, so it is pushed before the group like a mesh
+            if (push)
+                depth--;
+            emit(first, push);
+            emit(second, true);
+            depth--;
+
+            switch (group.getOperation()) {
+                case MeshGroup.UNION: code.add(UNION); break;
+                case MeshGroup.SUBTRACT: code.add(swap ? SUBTRACT_REVERSED : SUBTRACT); break;
+                default: code.add(INTERSECTION); break;
+            }
+        }
+        else if (type == Sphere.class) {
+            Sphere sphere = (Sphere) mesh;
+            code.add(SPHERE | flag);
+            addConstants(sphere.getPosition());
+            constants.add(sphere.getRadius());
+        }
+        else if (type == Box.class) {
+            Box box = (Box) mesh;
+            code.add(BOX | flag);
+            addConstants(box.getPosition());
+            addConstants(box.getSize());
+        }
+        else if (type == RoundedBox.class) {
+            RoundedBox box = (RoundedBox) mesh;
+            code.add(ROUNDED_BOX | flag);
+            addConstants(box.getPosition());
+            addConstants(box.getSize());
+            constants.add(box.getRadius());
+        }
+        else if (type == Torus.class) {
+            Torus torus = (Torus) mesh;
+            code.add(TORUS | flag);
+            addConstants(torus.getPosition());
+            constants.add(torus.getRadius());
+            constants.add(torus.getThickness());
+        }
+        else if (type == TriangularPrism.class) {
+            code.add(TRIANGULAR_PRISM | flag);
+            addConstants(((TriangularPrism) mesh).getPosition());
+        }
+        else {
+            code.add(MESH | flag);
+            code.add(meshes.size());
+            meshes.add(mesh);
+        }
+    }
+
+    /**
+     * Adds the components of a vector to the constants
+     * @param vector The vector to add
+     */
+    private void addConstants(Vector3 vector) {
+        constants.add(vector.getX());
+        constants.add(vector.getY());
+        constants.add(vector.getZ());
+    }
+}
@@ -0,0 +1,352 @@
+package raymarcher;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * Writes scenes to and reads scenes from a compact binary file, so that large generated
+ * scenes can be saved and loaded without building them in code. The file holds the
+ * world color and every mesh of the scene, which can be any of the bundled meshes and
+ * mesh groups of them. Subclasses of them can't be written, since they could have a 
+ * different shape than the bundled mesh they would be read back as.
+ * <p>
+ * After a header of {@link #MAGIC}, the {@link #VERSION}, the world color, the number of
+ * mesh records and the number of meshes in the scene, each mesh is written as a record of
+ * its type, its color as an ARGB int, then its parameters as doubles. A mesh group's
+ * record is written after the records of its two meshes, and is its type, its operation
+ * as a byte, then its color. Every value is little-endian.
+ * <p>
+ * Since the meshes of a group come before the group, the file is read in one pass
+ * without recursion, which keeps deep trees of mesh groups from overflowing the stack.
+ * The file is memory-mapped and read directly, and meshes of the same color share
+ * their Color objects, so loading a scene creates few objects besides the meshes.
+ */
+public class SceneFile {
+
+    /** The bytes every scene file starts with */
+    public static final byte[] MAGIC = {'R', 'M', 'S', 'C', 'E', 'N', 'E', 0};
+    /** The version of the format written, which is the only version that can be read */
+    public static final int VERSION = 1;
+
+    /** The type of a {@link Sphere} record */
+    private static final byte SPHERE = 1;
+    /** The type of a {@link Box} record */
+    private static final byte BOX = 2;
+    /** The type of a {@link RoundedBox} record */
+    private static final byte ROUNDED_BOX = 3;
+    /** The type of a {@link Torus} record */
+    private static final byte TORUS = 4;
+    /** The type of a {@link TriangularPrism} record */
+    private static final byte TRIANGULAR_PRISM = 5;
+    /** The type of a {@link MeshGroup} record */
+    private static final byte MESH_GROUP = 6;
+
+    /** The size, in bytes, of the header */
+    private static final int HEADER_BYTES = 8 + 4 * 4;
+    /** The size, in bytes, of the smallest record, which is a mesh group's */
+    private static final int MIN_RECORD_BYTES = 1 + 1 + 4;
+    /** The size, in bytes, of the largest record, which is a rounded box's */
+    private static final int MAX_RECORD_BYTES = 1 + 4 + 7 * 8;
+    /** The size, in bytes, of the buffer records are written through */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private SceneFile() {}
+
+    /**
+     * Writes a scene to a file, replacing the file if it exists
+     * @param scene The scene to write
+     * @param file The file to write to
+     * @throws IOException If the file couldn't be written
+     * @throws IllegalArgumentException If a mesh of the scene isn't a bundled mesh or a
+     * mesh group of them, including if it is a subclass of one
+     */
+    public static void write(Scene scene, File file) throws IOException {
+        ArrayList<Mesh> meshes = scene.getMeshes();
+
+        //the records are found first, so nothing is written if a mesh can't be
+        ArrayList<Mesh> records = new ArrayList<Mesh>();
+        for (Mesh mesh : meshes)
+            addRecords(mesh, records);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(scene.getWorldColor());
+            buffer.putInt(records.size());
+            buffer.putInt(meshes.size());
+
+            for (Mesh mesh : records) {
+                if (buffer.remaining() < MAX_RECORD_BYTES)
+                    flush(buffer, channel);
+                writeRecord(mesh, buffer);
+            }
+            flush(buffer, channel);
+        }
+    }
+
+    /**
+     * Reads a scene from a file
+     * @param file The file to read
+     * @return The scene, with the default march strategy
+     * @throws IOException If the file couldn't be read, or isn't a valid scene file of
+     * this version
+     */
+    public static Scene read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Scene file too large: " + file);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Reads a scene from a buffer holding a scene file, from its position to its limit
+     * @param buffer The buffer to read
+     * @return The scene, with the default march strategy
+     * @throws IOException If the buffer doesn't hold a valid scene file of this version
+     */
+    public static Scene read(ByteBuffer buffer) throws IOException {
+        buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a scene file");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported scene file version " + version);
+
+            int worldColor = buffer.getInt();
+            int recordCount = buffer.getInt();
+            int meshCount = buffer.getInt();
+            if (recordCount < 0 || meshCount < 0 || recordCount > (buffer.remaining() / MIN_RECORD_BYTES))
+                throw new IOException("Invalid mesh count");
+
+            //each record pushes its mesh, and each mesh group pops the two meshes before it
+            Mesh[] stack = new Mesh[recordCount];
+            int size = 0;
+            HashMap<Integer, Color> colors = new HashMap<Integer, Color>();
+            for (int i = 0; i < recordCount; i++) {
+                byte type = buffer.get();
+                if (type == MESH_GROUP) {
+                    int operation = buffer.get();
+                    Color color = readColor(buffer, colors);
+                    if (operation < MeshGroup.UNION || operation > MeshGroup.INTERSECTION)
+                        throw new IOException("Invalid mesh group operation " + operation);
+                    if (size < 2)
+                        throw new IOException("Mesh group without two meshes");
+                    Mesh group = new MeshGroup(stack[size - 2], stack[size - 1], operation, color);
+                    stack[--size] = null;
+                    stack[size - 1] = group;
+                }
+                else {
+                    stack[size++] = readMesh(type, buffer, colors);
+                }
+            }
+            if (size != meshCount)
+                throw new IOException("Expected " + meshCount + " meshes but found " + size);
+
+            ArrayList<Mesh> meshes = new ArrayList<Mesh>(meshCount);
+            for (int i = 0; i < size; i++)
+                meshes.add(stack[i]);
+
+            Scene scene = new Scene();
+            scene.setMeshes(meshes);
+            scene.setWorldColor(worldColor);
+            return scene;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("Truncated scene file", e);
+        }
+    }
+
+    /**
+     * Adds the records of a mesh to the list of records to write, with the meshes of each
+     * mesh group before the group
+     * @param mesh The mesh
+     * @param records The list of records to add to
+     */
+    private static void addRecords(Mesh mesh, ArrayList<Mesh> records) {
+
+        //a group is visited once to push its meshes, then again to add it after them
+        ArrayDeque<Mesh> stack = new ArrayDeque<Mesh>();
+        ArrayDeque<Boolean> expanded = new ArrayDeque<Boolean>();
+        stack.push(mesh);
+        expanded.push(false);
+        while (!stack.isEmpty()) {
+            Mesh current = stack.pop();
+            boolean visited = expanded.pop();
+            Class<?> type = current.getClass();
+            if (type == MeshGroup.class && !visited) {
+                MeshGroup group = (MeshGroup) current;
+                stack.push(group);
+                expanded.push(true);
+                stack.push(group.getMesh2());
+                expanded.push(false);
+                stack.push(group.getMesh1());
+                expanded.push(false);
+                continue;
+            }
+
+            //a subclass of a bundled mesh could have a different shape than its record would load as
+            if (type != MeshGroup.class && type != Sphere.class && type != Box.class && type != RoundedBox.class
+                && type != Torus.class && type != TriangularPrism.class)
+                throw new IllegalArgumentException("Can't write a " + current.getClass().getName());
+            records.add(current);
+        }
+    }
+
+    /**
+     * Writes the record of a single mesh, without the meshes of a mesh group
+     * @param mesh The mesh, which is one of the bundled meshes or a mesh group
+     * @param buffer The buffer to write to
+     */
+    private static void writeRecord(Mesh mesh, ByteBuffer buffer) {
+        Class<?> type = mesh.getClass();
+        if (type == MeshGroup.class) {
+            buffer.put(MESH_GROUP);
+            buffer.put((byte) ((MeshGroup) mesh).getOperation());
+            buffer.putInt(mesh.getMeshColor().getRGB());
+        }
+        else if (type == Sphere.class) {
+            Sphere sphere = (Sphere) mesh;
+            writeHeader(SPHERE, mesh, sphere.getPosition(), buffer);
+            buffer.putDouble(sphere.getRadius());
+        }
+        else if (type == Box.class) {
+            Box box = (Box) mesh;
+            writeHeader(BOX, mesh, box.getPosition(), buffer);
+            writeVector(box.getSize(), buffer);
+        }
+        else if (type == RoundedBox.class) {
+            RoundedBox box = (RoundedBox) mesh;
+            writeHeader(ROUNDED_BOX, mesh, box.getPosition(), buffer);
+            writeVector(box.getSize(), buffer);
+            buffer.putDouble(box.getRadius());
+        }
+        else if (type == Torus.class) {
+            Torus torus = (Torus) mesh;
+            writeHeader(TORUS, mesh, torus.getPosition(), buffer);
+            buffer.putDouble(torus.getRadius());
+            buffer.putDouble(torus.getThickness());
+        }
+        else {
+            TriangularPrism prism = (TriangularPrism) mesh;
+            writeHeader(TRIANGULAR_PRISM, mesh, prism.getPosition(), buffer);
+            buffer.putDouble(prism.getHeight());
+            buffer.putDouble(prism.getLength());
+        }
+    }
+
+    /**
+     * Writes the type, color and position every record of a bundled mesh starts with
+     * @param type The type of the record
+     * @param mesh The mesh
+     * @param position The position of the mesh
+     * @param buffer The buffer to write to
+     */
+    private static void writeHeader(byte type, Mesh mesh, Vector3 position, ByteBuffer buffer) {
+        buffer.put(type);
+        buffer.putInt(mesh.getMeshColor().getRGB());
+        writeVector(position, buffer);
+    }
+
+    /**
+     * Writes the coordinates of a vector
+     * @param vector The vector
+     * @param buffer The buffer to write to
+     */
+    private static void writeVector(Vector3 vector, ByteBuffer buffer) {
+        buffer.putDouble(vector.getX());
+        buffer.putDouble(vector.getY());
+        buffer.putDouble(vector.getZ());
+    }
+
+    /**
+     * Writes everything in a buffer to a file, and clears the buffer
+     * @param buffer The buffer
+     * @param channel The file to write to
+     * @throws IOException If the file couldn't be written
+     */
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Reads the record of a bundled mesh, after its type
+     * @param type The type of the record
+     * @param buffer The buffer to read from
+     * @param colors The colors read so far, by their ARGB values
+     * @return The mesh
+     * @throws IOException If the type isn't a bundled mesh
+     */
+    private static Mesh readMesh(byte type, ByteBuffer buffer, HashMap<Integer, Color> colors) throws IOException {
+        Color color = readColor(buffer, colors);
+        Vector3 position = readVector(buffer);
+        switch (type) {
+            case SPHERE:
+                return new Sphere(position, buffer.getDouble(), color);
+            case BOX:
+                return new Box(position, readVector(buffer), color);
+            case ROUNDED_BOX:
+                return new RoundedBox(position, readVector(buffer), buffer.getDouble(), color);
+            case TORUS:
+                return new Torus(position, buffer.getDouble(), buffer.getDouble(), color);
+            case TRIANGULAR_PRISM:
+                return new TriangularPrism(position, buffer.getDouble(), buffer.getDouble(), color);
+            default:
+                throw new IOException("Unknown mesh type " + type);
+        }
+    }
+
+    /**
+     * Reads a color, sharing the Color object of every color with the same value
+     * @param buffer The buffer to read from
+     * @param colors The colors read so far, by their ARGB values
+     * @return The color
+     */
+    private static Color readColor(ByteBuffer buffer, HashMap<Integer, Color> colors) {
+        int argb = buffer.getInt();
+        Color color = colors.get(argb);
+        if (color == null) {
+            color = new Color(argb, true);
+            colors.put(argb, color);
+        }
+        return color;
+    }
+
+    /**
+     * Reads the coordinates of a vector
+     * @param buffer The buffer to read from
+     * @return The vector
+     */
+    private static Vector3 readVector(ByteBuffer buffer) {
+        return new Vector3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+}
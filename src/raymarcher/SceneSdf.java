@@ -0,0 +1,17 @@
+package raymarcher;
+
+/**
+ * The signed distance function of a whole scene, as generated by the {@link SdfGenerator}
+ */
+public interface SceneSdf {
+
+    /**
+     * The signed distance function for the whole scene
+     * @param x The x-coordinate of the point to measure the distance to
+     * @param y The y-coordinate of the point to measure the distance to
+     * @param z The z-coordinate of the point to measure the distance to
+     * @return The smallest signed distance of any mesh in the scene to the point, or 
+     * positive infinity if the scene is empty
+     */
+    public double sdf(double x, double y, double z);
+}
@@ -4,13 +4,21 @@ import java.awt.Graphics;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.swing.JFrame;
 
 
 /**
  * Creates a Screen object, or window, to host the Raymarcher engine and to
- * render onto.
+ * render onto. Frames are rendered and presented on separate threads through
+ * a ring of three frame buffers (triple buffering), so the next frame renders
+ * while the last one is shown, and a frame is never shown before it's complete.
  */
 public class Screen extends JFrame implements Runnable {
 
@@ -18,19 +26,54 @@ public class Screen extends JFrame implements Runnable {
 	private static final long serialVersionUID = 1L;
 	
 	
-	/** The thread on which this engine will be executed */
+    /** The number of frame buffers that frames are rendered into and presented from */
+    private static final int FRAME_BUFFERS = 3;
+    /** The flag set on the shared frame buffer's index when it holds a frame that hasn't been presented yet */
+    private static final int NEW_FRAME = 1 << 8;
+    /** The longest time, in nanoseconds, that the presenting thread waits before presenting again */
+    private static final long PRESENT_INTERVAL = 1000000000L / 60;
+    /** The longest time, in nanoseconds, that the presenting thread waits to redraw a frame it already presented */
+    private static final long IDLE_PRESENT_INTERVAL = 1000000000L / 10;
+	
+	/** The thread on which frames are rendered */
     private Thread thread;
+    /** The thread on which rendered frames are displayed */
+    private Thread presentThread;
     /** Whether or not the renderer is running */
-    private boolean isRunning;
-    /** The BufferedImage upon which the render is painted */
-	private BufferedImage image;
-    /** The array of pixel color values, connected to the BufferedImage displayed on
-    screen so that any changes to the array are reflected on screen */
-	public int[] pixels;
+    private volatile boolean isRunning;
+    /** The BufferedImages upon which the frames are painted */
+	private BufferedImage[] images;
+    /** The arrays of pixel color values, each connected to one of the BufferedImages */
+    private int[][] frames;
+    /** The index of the frame buffer being rendered into, which only the rendering thread uses */
+    private int backBuffer;
+    /** The index of the frame buffer being presented, which only the presenting thread uses */
+    private int frontBuffer;
+    /** The index of the frame buffer passed between the rendering and presenting threads, with the
+    NEW_FRAME flag set when it holds a frame that hasn't been presented yet. Swapping buffers through it
+    never blocks either thread. */
+    private final AtomicInteger sharedBuffer;
+    /** The array of pixel color values of the most recently rendered frame, connected to one of the 
+    BufferedImages displayed on screen */
+	public volatile int[] pixels;
     /** The camera from which to render the scene */
     private Camera camera;
     /** The framerate, in frames per second, at which to run the renderer */
     public double framerate;
+    /** Whether or not to print the statistics of each frame after it's rendered */
+    private volatile boolean logStatistics;
+    /** The width of the window and of the full resolution render, in pixels */
+    private int screenWidth;
+    /** The height of the window and of the full resolution render, in pixels */
+    private int screenHeight;
+    /** The resolution scaling used to hold the framerate, or null to always render at full resolution */
+    private volatile DynamicResolution dynamicResolution;
+    /** Whether or not frames are skipped when neither the camera nor the scene changed */
+    private volatile boolean skipUnchangedFrames;
+    /** The writer every frame is recorded to, or null if frames aren't recorded */
+    private volatile VideoWriter videoWriter;
+    /** The width and height, in pixels, of the most recently rendered frame */
+    private int renderedWidth, renderedHeight;
 
 
     /**
@@ -41,13 +84,25 @@ public class Screen extends JFrame implements Runnable {
      * @param framerate The framerate, in frames per second, at which to run the renderer
      */
     public Screen(int screenWidth, int screenHeight, Camera camera, double framerate) {
-        thread = new Thread(this);
-		image = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
-        pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        thread = new Thread(this, "Raymarcher Render");
+        presentThread = new Thread(this::present, "Raymarcher Present");
+		images = new BufferedImage[FRAME_BUFFERS];
+        frames = new int[FRAME_BUFFERS][];
+        for (int i = 0; i < FRAME_BUFFERS; i++) {
+            images[i] = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
+            frames[i] = ((DataBufferInt)images[i].getRaster().getDataBuffer()).getData();
+        }
+        backBuffer = 0;
+        sharedBuffer = new AtomicInteger(1);
+        frontBuffer = 2;
+        pixels = frames[frontBuffer];
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
         this.camera = camera;
         camera.createRays(screenWidth, screenHeight, 20);
         addKeyListener(camera);
         this.framerate = framerate;
+        this.skipUnchangedFrames = true;
 
         setSize(screenWidth, screenHeight);
 		setResizable(false);
@@ -78,6 +133,103 @@ public class Screen extends JFrame implements Runnable {
             framerate = 10;
         else   
             framerate = fps;
+
+        DynamicResolution current = dynamicResolution;
+        if (current != null)
+            current.setFramerate(framerate);
+    }
+
+    /**
+     * @return Whether or not the render resolution is lowered to hold the framerate
+     */
+    public boolean isDynamicResolution() {
+        return dynamicResolution != null;
+    }
+
+    /**
+     * Sets whether or not to change the resolution frames are rendered at to hold the 
+     * framerate. When enabled, the render resolution is lowered when frames take too 
+     * long to render and raised back when they're fast enough, and each frame is scaled
+     * up to fill the window.
+     * @param enabled Whether or not to use dynamic resolution
+     */
+    public void setDynamicResolution(boolean enabled) {
+        if (enabled && dynamicResolution == null)
+            dynamicResolution = new DynamicResolution(framerate);
+        if (!enabled)
+            dynamicResolution = null;
+    }
+
+    /**
+     * @return The resolution scaling used to hold the framerate, or null if dynamic 
+     * resolution is disabled
+     */
+    public DynamicResolution getDynamicResolution() {
+        return dynamicResolution;
+    }
+
+    /**
+     * @return Whether or not frames are skipped when neither the camera nor the scene changed
+     */
+    public boolean isSkipUnchangedFrames() {
+        return skipUnchangedFrames;
+    }
+
+    /**
+     * Sets whether or not to skip rendering a frame when it would be the same as the last
+     * one, because no key is held and neither the camera nor the scene changed. The last
+     * frame stays on screen instead, so an idle scene uses almost no CPU. Changes to custom
+     * meshes which don't change their bounds or color need {@link Scene#markChanged()} to
+     * be called to be seen. Enabled by default.
+     * @param skipUnchangedFrames Whether or not to skip unchanged frames
+     */
+    public void setSkipUnchangedFrames(boolean skipUnchangedFrames) {
+        this.skipUnchangedFrames = skipUnchangedFrames;
+    }
+
+    /**
+     * @return The writer every frame is recorded to, or null if frames aren't recorded
+     */
+    public VideoWriter getVideoWriter() {
+        return videoWriter;
+    }
+
+    /**
+     * Sets a video writer to record every frame to, at the framerate of the screen. Frames
+     * that are skipped because nothing changed are recorded again, so the video keeps the
+     * timing of the screen, and frames rendered at a lower resolution are scaled to the 
+     * video's. Writing frames blocks rendering if the disk can't keep up. If a frame can't
+     * be written, recording stops. The writer isn't closed by the screen.
+     * @param videoWriter The writer to record frames to, or null to stop recording
+     */
+    public void setVideoWriter(VideoWriter videoWriter) {
+        this.videoWriter = videoWriter;
+    }
+
+    /**
+     * @return Whether or not the statistics of each frame are printed after it's rendered
+     */
+    public boolean isLogStatistics() {
+        return logStatistics;
+    }
+
+    /**
+     * Sets whether or not to print the statistics of each frame to the console after it's 
+     * rendered. Enabling this also enables the camera's statistics.
+     * @param logStatistics Whether or not to print each frame's statistics
+     */
+    public void setLogStatistics(boolean logStatistics) {
+        if (logStatistics)
+            camera.setStatisticsEnabled(true);
+        this.logStatistics = logStatistics;
+    }
+
+    /**
+     * @return The statistics of the last rendered frame, or null if the camera's statistics
+     * are disabled
+     */
+    public FrameStatistics getStatistics() {
+        return camera.getStatistics();
     }
 
     /**
@@ -86,6 +238,7 @@ public class Screen extends JFrame implements Runnable {
     private synchronized void start() {
 		isRunning = true;
 		thread.start();
+        presentThread.start();
 	}
 	
 	/**
@@ -93,17 +246,24 @@ public class Screen extends JFrame implements Runnable {
      */
 	public synchronized void stop() {
 		isRunning = false;
+        LockSupport.unpark(thread);
+        LockSupport.unpark(presentThread);
 		try {
-			thread.join();
+            if (Thread.currentThread() != thread)
+			    thread.join();
+            if (Thread.currentThread() != presentThread)
+                presentThread.join();
 		} catch(InterruptedException e) {
 			e.printStackTrace();
 		}
 	}
 
     /**
-     * Called every frame to render a buffer and then display it
+     * Called every frame to display the frame buffer which was most recently presented
      */
     public void render() {
+        BufferedImage image = images[frontBuffer];
+
 		//makes it look better/smoother
 		BufferStrategy bs = getBufferStrategy();
 		if(bs == null) {
@@ -111,7 +271,7 @@ public class Screen extends JFrame implements Runnable {
 			return;
 		}
 		Graphics g = bs.getDrawGraphics();
-		g.drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
+		g.drawImage(image, 0, 0, screenWidth, screenHeight, null);      //scales up frames rendered at a lower resolution
 		bs.show();
 	}
 
@@ -128,11 +288,106 @@ public class Screen extends JFrame implements Runnable {
 			while (delta >= 1)      //Make sure update is only happening 60 times a second
 			{
 				delta--;
-                camera.render(pixels);
+                if (renderFrame()) {
+                    publish();
+                    if (logStatistics)
+                        System.out.println(camera.getStatistics());
+                }
+                record();
 			}
-			render();   //displays to the screen unrestricted time
+
+            //wait until the next frame is due instead of spinning
+            LockSupport.parkNanos((long) ((1 - delta) * ns));
 		}
 	}
+
+    /**
+     * Renders the next frame into the back frame buffer, at a lower resolution if dynamic
+     * resolution needs it to keep up with the framerate
+     * @return Whether or not a frame was rendered, which it isn't if it would be the same
+     * as the last one and unchanged frames are skipped
+     */
+    private boolean renderFrame() {
+        DynamicResolution resolution = dynamicResolution;
+        int width = resolution == null ? screenWidth : resolution.scale(screenWidth);
+        int height = resolution == null ? screenHeight : resolution.scale(screenHeight);
+        if (images[backBuffer].getWidth() != width || images[backBuffer].getHeight() != height)
+            images[backBuffer] = createImage(frames[backBuffer], width, height);
+
+        //the check and the frame share one pass over the scene's meshes
+        long start = System.nanoTime();
+        if (!skipUnchangedFrames)
+            camera.render(frames[backBuffer], width, height);
+        else if (!camera.renderIfChanged(frames[backBuffer], width, height))
+            return false;
+
+        if (resolution != null)
+            resolution.recordFrame(System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Writes the most recently rendered frame to the video writer, if there is one
+     */
+    private void record() {
+        VideoWriter writer = videoWriter;
+        if (writer == null || renderedWidth == 0)
+            return;
+
+        try {
+            writer.write(pixels, renderedWidth, renderedHeight);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            videoWriter = null;
+        }
+    }
+
+    /**
+     * Creates an RGB image backed by the start of an array of pixels, so that a frame
+     * rendered at a lower resolution can use the same frame buffer
+     * @param pixels The array of pixel color values, which must hold at least width * height values
+     * @param width The width of the image, in pixels
+     * @param height The height of the image, in pixels
+     * @return The image, whose pixels are the given array's
+     */
+    private static BufferedImage createImage(int[] pixels, int width, int height) {
+        DirectColorModel colorModel = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, width * height), width, height, 
+            width, colorModel.getMasks(), null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Hands the frame that was just rendered to the presenting thread, and takes the 
+     * frame buffer that was shared before it to render the next frame into
+     */
+    private void publish() {
+        int rendered = backBuffer;
+        renderedWidth = images[rendered].getWidth();
+        renderedHeight = images[rendered].getHeight();
+        backBuffer = sharedBuffer.getAndSet(rendered | NEW_FRAME) & ~NEW_FRAME;
+        pixels = frames[rendered];
+        LockSupport.unpark(presentThread);
+    }
+
+    /**
+     * Runs on the presenting thread, displaying each frame as soon as it has been rendered
+     * while the next frame is rendered into another buffer
+     */
+    private void present() {
+        while (isRunning) {
+            //swap in the newly rendered frame, giving back the one that was being shown
+            boolean presented = (sharedBuffer.get() & NEW_FRAME) != 0;
+            if (presented)
+                frontBuffer = sharedBuffer.getAndSet(frontBuffer) & ~NEW_FRAME;
+            render();   //displays to the screen, also redrawing if no new frame was rendered
+
+            //redraw less often while no new frames are rendered, as when frames are skipped
+            if ((sharedBuffer.get() & NEW_FRAME) == 0)
+                LockSupport.parkNanos(presented ? PRESENT_INTERVAL : IDLE_PRESENT_INTERVAL);
+        }
+    }
     
 }
 
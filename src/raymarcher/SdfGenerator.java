@@ -0,0 +1,674 @@
+package raymarcher;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * Generates a class at runtime with a single, straight-line method that evaluates the
+ * SDF of a whole scene. The parameters of the built-in primitives are written into the
+ * method as constants and MeshGroups become direct calls to {@link Math#min(double, double)}
+ * and {@link Math#max(double, double)}, so the JIT can optimize the whole scene as one
+ * method. Any other mesh is kept and its SDF is called from the method.
+ * <p>
+ * The class is written directly as a class file and defined as a hidden class, so no
+ * bytecode library is needed. A generator remembers the last class it generated and
+ * reuses it while the scene stays the same, since defining a class and compiling it
+ * again is much slower than checking whether the scene changed.
+ */
+public class SdfGenerator {
+
+    /** The most bytes of code the generated method may have, which is the largest method the JIT will compile */
+    public static final int MAX_CODE_LENGTH = 8000;
+
+    /** The name of the generated class, which must be in this package to be defined from it */
+    private static final String CLASS_NAME = "raymarcher/GeneratedSceneSdf";
+    /** The descriptor of the field of the meshes called from the generated method */
+    private static final String MESHES_DESCRIPTOR = "[Lraymarcher/Mesh;";
+    /** The local variable slots of the point's coordinates, and the first slot of the temporary variables */
+    private static final int X = 1, Y = 3, Z = 5, TEMP = 7;
+    /** The number of temporary double variables a mesh may use */
+    private static final int TEMP_COUNT = 6;
+
+    /** The class file of the last generated class, or null if none has been generated */
+    private byte[] lastClassFile;
+    /** The meshes called from the last generated class */
+    private Mesh[] lastMeshes;
+    /** The instance of the last generated class */
+    private SceneSdf lastSdf;
+
+    /** The constant pool of the class being generated */
+    private ConstantPool pool;
+    /** The code of the method being generated */
+    private ByteArrayOutputStream code;
+    /** The meshes the method being generated calls */
+    private ArrayList<Mesh> meshes;
+    /** The current and largest size of the operand stack of the method being generated */
+    private int stack, maxStack;
+
+    /**
+     * Generates the SDF of a list of meshes, or reuses the last one generated if the meshes
+     * would generate the same class
+     * @param meshList The meshes of the scene
+     * @return The SDF of the scene, or null if the scene is too large for the JIT to compile
+     * its SDF as a single method
+     */
+    public synchronized SceneSdf generate(List<Mesh> meshList) {
+        byte[] classFile = writeClass(meshList);
+        if (classFile == null)
+            return null;
+
+        //the scene hasn't changed since the last class was generated
+        Mesh[] calledMeshes = meshes.toArray(new Mesh[0]);
+        if (Arrays.equals(classFile, lastClassFile) && sameMeshes(calledMeshes, lastMeshes))
+            return lastSdf;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class, Mesh[].class));
+            lastSdf = (SceneSdf) constructor.invoke(calledMeshes);
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException("Could not define the generated scene SDF", e);
+        }
+
+        lastClassFile = classFile;
+        lastMeshes = calledMeshes;
+        return lastSdf;
+    }
+
+    /**
+     * @param meshes The meshes called from a class
+     * @param other The meshes called from another class
+     * @return Whether both arrays hold the very same meshes
+     */
+    private static boolean sameMeshes(Mesh[] meshes, Mesh[] other) {
+        if (other == null || meshes.length != other.length)
+            return false;
+        for (int i = 0; i < meshes.length; i++) {
+            if (meshes[i] != other[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the class file of the SDF of a list of meshes
+     * @param meshList The meshes of the scene
+     * @return The class file, or null if the SDF's method would be too long
+     */
+    private byte[] writeClass(List<Mesh> meshList) {
+        pool = new ConstantPool();
+        meshes = new ArrayList<Mesh>();
+
+        //public GeneratedSceneSdf(Mesh[] meshes) { super(); this.meshes = meshes; }
+        code = new ByteArrayOutputStream();
+        u1(0x2a);
+        u1(0xb7);
+        u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        u1(0x2a);
+        u1(0x2b);
+        u1(0xb5);
+        u2(pool.fieldRef(CLASS_NAME, "meshes", MESHES_DESCRIPTOR));
+        u1(0xb1);
+        byte[] constructorCode = code.toByteArray();
+
+        //public double sdf(double x, double y, double z) { return min(mesh1, min(mesh2, ...)); }
+        code = new ByteArrayOutputStream();
+        stack = 0;
+        maxStack = 0;
+        if (meshList.isEmpty()) {
+            constant(Double.POSITIVE_INFINITY);
+        }
+        else {
+            emit(meshList.get(0));
+            for (int i = 1; i < meshList.size(); i++) {
+                emit(meshList.get(i));
+                math("min", 2);
+            }
+        }
+        u1(0xaf);
+        byte[] sdfCode = code.toByteArray();
+        if (sdfCode.length > MAX_CODE_LENGTH)
+            return null;
+
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int sceneSdf = pool.classRef("raymarcher/SceneSdf");
+        int meshesName = pool.utf8("meshes");
+        int meshesDescriptor = pool.utf8(MESHES_DESCRIPTOR);
+        int constructorName = pool.utf8("<init>");
+        int constructorDescriptor = pool.utf8("([Lraymarcher/Mesh;)V");
+        int sdfName = pool.utf8("sdf");
+        int sdfDescriptor = pool.utf8("(DDD)D");
+        int codeName = pool.utf8("Code");
+
+        code = new ByteArrayOutputStream();
+        u4(0xcafebabe);
+        u2(0);
+        u2(61);
+        u2(pool.count);
+        code.writeBytes(pool.bytes.toByteArray());
+
+        //public final class GeneratedSceneSdf implements SceneSdf
+        u2(0x0031);
+        u2(thisClass);
+        u2(superClass);
+        u2(1);
+        u2(sceneSdf);
+
+        //private final Mesh[] meshes;
+        u2(1);
+        u2(0x0012);
+        u2(meshesName);
+        u2(meshesDescriptor);
+        u2(0);
+
+        u2(2);
+        writeMethod(constructorName, constructorDescriptor, codeName, constructorCode, 2, 2);
+        writeMethod(sdfName, sdfDescriptor, codeName, sdfCode, maxStack, TEMP + TEMP_COUNT * 2);
+
+        u2(0);
+        return code.toByteArray();
+    }
+
+    /**
+     * Writes a public method with its code to the class file
+     * @param name The constant pool index of the method's name
+     * @param descriptor The constant pool index of the method's descriptor
+     * @param codeName The constant pool index of the name of the code attribute
+     * @param methodCode The bytecode of the method
+     * @param methodMaxStack The largest size of the method's operand stack
+     * @param maxLocals The number of local variable slots of the method
+     */
+    private void writeMethod(int name, int descriptor, int codeName, byte[] methodCode, int methodMaxStack,
+        int maxLocals) {
+        u2(0x0001);
+        u2(name);
+        u2(descriptor);
+        u2(1);
+        u2(codeName);
+        u4(12 + methodCode.length);
+        u2(methodMaxStack);
+        u2(maxLocals);
+        u4(methodCode.length);
+        code.writeBytes(methodCode);
+        u2(0);
+        u2(0);
+    }
+
+    /**
+     * Adds the code which pushes the SDF of a mesh onto the operand stack
+     * @param mesh The mesh to evaluate
+     */
+    private void emit(Mesh mesh) {
+
+        //only the exact classes are generated, since subclasses may change the SDF
+        Class<?> type = mesh.getClass();
+        int operation = type == MeshGroup.class ? ((MeshGroup) mesh).getOperation() : -1;
+
+        if (operation == MeshGroup.UNION || operation == MeshGroup.SUBTRACT || operation == MeshGroup.INTERSECTION) {
+            MeshGroup group = (MeshGroup) mesh;
+            emit(group.getMesh1());
+            if (operation == MeshGroup.SUBTRACT) {
+                constant(-1);
+                arithmetic(0x6b);
+            }
+            emit(group.getMesh2());
+            math(operation == MeshGroup.UNION ? "min" : "max", 2);
+        }
+        else if (type == Sphere.class) {
+            Sphere sphere = (Sphere) mesh;
+            Vector3 position = sphere.getPosition();
+
+            //p = position - point
+            offset(position.getX(), X, false, 0);
+            offset(position.getY(), Y, false, 1);
+            offset(position.getZ(), Z, false, 2);
+            length(0, 1, 2);
+            constant(sphere.getRadius());
+            arithmetic(0x67);
+        }
+        else if (type == Box.class || type == RoundedBox.class) {
+            Vector3 position = type == Box.class ? ((Box) mesh).getPosition() : ((RoundedBox) mesh).getPosition();
+            Vector3 size = type == Box.class ? ((Box) mesh).getSize() : ((RoundedBox) mesh).getSize();
+
+            //q = abs(point - position) - size
+            double[] center = {position.getX(), position.getY(), position.getZ()};
+            double[] extent = {size.getX(), size.getY(), size.getZ()};
+            for (int i = 0; i < 3; i++) {
+                load(X + i * 2);
+                constant(center[i]);
+                arithmetic(0x67);
+                math("abs", 1);
+                constant(extent[i]);
+                arithmetic(0x67);
+                store(i);
+            }
+
+            //w = max(q, 0)
+            for (int i = 0; i < 3; i++) {
+                loadTemp(i);
+                constant(0);
+                math("max", 2);
+                store(3 + i);
+            }
+
+            //length(w) + min(max(qx, max(qy, qz)), 0)
+            length(3, 4, 5);
+            loadTemp(0);
+            loadTemp(1);
+            loadTemp(2);
+            math("max", 2);
+            math("max", 2);
+            constant(0);
+            math("min", 2);
+            arithmetic(0x63);
+
+            if (type == RoundedBox.class) {
+                constant(((RoundedBox) mesh).getRadius());
+                arithmetic(0x67);
+            }
+        }
+        else if (type == Torus.class) {
+            Torus torus = (Torus) mesh;
+            Vector3 position = torus.getPosition();
+
+            //p = point - position
+            offset(position.getX(), X, true, 0);
+            offset(position.getY(), Y, true, 1);
+            offset(position.getZ(), Z, true, 2);
+
+            //pxz = sqrt(px * px + pz * pz) - radius
+            square(0);
+            square(2);
+            arithmetic(0x63);
+            math("sqrt", 1);
+            constant(torus.getRadius());
+            arithmetic(0x67);
+            store(3);
+
+            //sqrt(pxz * pxz + py * py) - thickness
+            square(3);
+            square(1);
+            arithmetic(0x63);
+            math("sqrt", 1);
+            constant(torus.getThickness());
+            arithmetic(0x67);
+        }
+        else if (type == TriangularPrism.class) {
+            Vector3 position = ((TriangularPrism) mesh).getPosition();
+
+            //p = point - position
+            offset(position.getX(), X, true, 0);
+            offset(position.getY(), Y, true, 1);
+            offset(position.getZ(), Z, true, 2);
+
+            //max(abs(pz) - 2, max(abs(px) * 0.866025 + py * .5, -1 * py) - .5)
+            loadTemp(2);
+            math("abs", 1);
+            constant(2);
+            arithmetic(0x67);
+            loadTemp(0);
+            math("abs", 1);
+            constant(0.866025);
+            arithmetic(0x6b);
+            loadTemp(1);
+            constant(.5);
+            arithmetic(0x6b);
+            arithmetic(0x63);
+            constant(-1);
+            loadTemp(1);
+            arithmetic(0x6b);
+            math("max", 2);
+            constant(.5);
+            arithmetic(0x67);
+            math("max", 2);
+        }
+        else {
+            //this.meshes[index].sdf(x, y, z)
+            u1(0x2a);
+            u1(0xb4);
+            u2(pool.fieldRef(CLASS_NAME, "meshes", MESHES_DESCRIPTOR));
+            u1(0x11);
+            u2(meshes.size());
+            push(2);
+            u1(0x32);
+            stack--;
+            load(X);
+            load(Y);
+            load(Z);
+            u1(0xb9);
+            u2(pool.interfaceMethodRef("raymarcher/Mesh", "sdf", "(DDD)D"));
+            u1(7);
+            u1(0);
+            stack -= 5;
+            meshes.add(mesh);
+        }
+    }
+
+    /**
+     * Adds the code which stores the difference of a constant and a coordinate of the point
+     * into a temporary variable
+     * @param constant The constant
+     * @param coordinate The slot of the coordinate
+     * @param pointFirst Whether to subtract the constant from the coordinate, rather than the
+     * coordinate from the constant
+     * @param temp The index of the temporary variable
+     */
+    private void offset(double constant, int coordinate, boolean pointFirst, int temp) {
+        if (pointFirst) {
+            load(coordinate);
+            constant(constant);
+        }
+        else {
+            constant(constant);
+            load(coordinate);
+        }
+        arithmetic(0x67);
+        store(temp);
+    }
+
+    /**
+     * Adds the code which pushes the length of a vector held in three temporary variables
+     * @param tx The index of the temporary variable of the x-component
+     * @param ty The index of the temporary variable of the y-component
+     * @param tz The index of the temporary variable of the z-component
+     */
+    private void length(int tx, int ty, int tz) {
+        square(tx);
+        square(ty);
+        arithmetic(0x63);
+        square(tz);
+        arithmetic(0x63);
+        math("sqrt", 1);
+    }
+
+    /**
+     * Adds the code which pushes the square of a temporary variable
+     * @param temp The index of the temporary variable
+     */
+    private void square(int temp) {
+        loadTemp(temp);
+        loadTemp(temp);
+        arithmetic(0x6b);
+    }
+
+    /**
+     * Adds the code which pushes a double constant
+     * @param value The constant
+     */
+    private void constant(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            u1(0x0e);
+        }
+        else if (value == 1) {
+            u1(0x0f);
+        }
+        else {
+            u1(0x14);
+            u2(pool.doubleConstant(value));
+        }
+        push(2);
+    }
+
+    /**
+     * Adds the code which pushes a double local variable
+     * @param slot The slot of the local variable
+     */
+    private void load(int slot) {
+        u1(0x18);
+        u1(slot);
+        push(2);
+    }
+
+    /**
+     * Adds the code which pushes a temporary variable
+     * @param temp The index of the temporary variable
+     */
+    private void loadTemp(int temp) {
+        load(TEMP + temp * 2);
+    }
+
+    /**
+     * Adds the code which pops a double into a temporary variable
+     * @param temp The index of the temporary variable
+     */
+    private void store(int temp) {
+        u1(0x39);
+        u1(TEMP + temp * 2);
+        stack -= 2;
+    }
+
+    /**
+     * Adds an instruction which combines the top two doubles into one, such as dadd
+     * @param opcode The opcode of the instruction
+     */
+    private void arithmetic(int opcode) {
+        u1(opcode);
+        stack -= 2;
+    }
+
+    /**
+     * Adds a call to a method of {@link Math} that takes and returns doubles
+     * @param name The name of the method
+     * @param arguments The number of arguments of the method
+     */
+    private void math(String name, int arguments) {
+        u1(0xb8);
+        u2(pool.methodRef("java/lang/Math", name, arguments == 1 ? "(D)D" : "(DD)D"));
+        stack -= (arguments - 1) * 2;
+    }
+
+    /**
+     * Records values pushed onto the operand stack
+     * @param slots The number of stack slots pushed
+     */
+    private void push(int slots) {
+        stack += slots;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    /**
+     * Writes a byte to the current output
+     * @param value The byte
+     */
+    private void u1(int value) {
+        code.write(value);
+    }
+
+    /**
+     * Writes two bytes to the current output
+     * @param value The value, of which the lowest two bytes are written
+     */
+    private void u2(int value) {
+        code.write(value >>> 8);
+        code.write(value);
+    }
+
+    /**
+     * Writes four bytes to the current output
+     * @param value The value
+     */
+    private void u4(int value) {
+        u2(value >>> 16);
+        u2(value);
+    }
+
+    /**
+     * The constant pool of a class file, which stores each constant once
+     */
+    private static class ConstantPool {
+
+        /** The entries of the pool, as written in the class file */
+        private final ByteArrayOutputStream bytes;
+        /** The index of each entry, by a key of its type and value */
+        private final HashMap<String, Integer> indices;
+        /** The index of the next entry, which starts at 1 */
+        private int count;
+
+        /**
+         * Creates an empty constant pool
+         */
+        private ConstantPool() {
+            bytes = new ByteArrayOutputStream();
+            indices = new HashMap<String, Integer>();
+            count = 1;
+        }
+
+        /**
+         * @param value A string
+         * @return The index of a UTF-8 entry of the string
+         */
+        private int utf8(String value) {
+            Integer index = indices.get("U" + value);
+            if (index != null)
+                return index;
+
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            bytes.write(1);
+            bytes.write(encoded.length >>> 8);
+            bytes.write(encoded.length);
+            bytes.writeBytes(encoded);
+            return add("U" + value, 1);
+        }
+
+        /**
+         * @param name The internal name of a class
+         * @return The index of a class entry of the class
+         */
+        private int classRef(String name) {
+            Integer index = indices.get("C" + name);
+            if (index != null)
+                return index;
+
+            int nameIndex = utf8(name);
+            bytes.write(7);
+            writeIndex(nameIndex);
+            return add("C" + name, 1);
+        }
+
+        /**
+         * @param owner The internal name of the class of the field
+         * @param name The name of the field
+         * @param descriptor The descriptor of the field
+         * @return The index of a field reference entry of the field
+         */
+        private int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        /**
+         * @param owner The internal name of the class of the method
+         * @param name The name of the method
+         * @param descriptor The descriptor of the method
+         * @return The index of a method reference entry of the method
+         */
+        private int methodRef(String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        /**
+         * @param owner The internal name of the interface of the method
+         * @param name The name of the method
+         * @param descriptor The descriptor of the method
+         * @return The index of an interface method reference entry of the method
+         */
+        private int interfaceMethodRef(String owner, String name, String descriptor) {
+            return memberRef(11, owner, name, descriptor);
+        }
+
+        /**
+         * @param tag The tag of the type of reference
+         * @param owner The internal name of the class of the member
+         * @param name The name of the member
+         * @param descriptor The descriptor of the member
+         * @return The index of a reference entry of the member
+         */
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null)
+                return index;
+
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            bytes.write(tag);
+            writeIndex(ownerIndex);
+            writeIndex(nameAndType);
+            return add(key, 1);
+        }
+
+        /**
+         * @param name The name of a member
+         * @param descriptor The descriptor of the member
+         * @return The index of a name and type entry of the member
+         */
+        private int nameAndType(String name, String descriptor) {
+            String key = "N" + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null)
+                return index;
+
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            bytes.write(12);
+            writeIndex(nameIndex);
+            writeIndex(descriptorIndex);
+            return add(key, 1);
+        }
+
+        /**
+         * @param value A double
+         * @return The index of a double entry of the value
+         */
+        private int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = indices.get("D" + bits);
+            if (index != null)
+                return index;
+
+            bytes.write(6);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                bytes.write((int) (bits >>> shift));
+
+            //doubles take up two entries of the pool
+            return add("D" + bits, 2);
+        }
+
+        /**
+         * Writes the index of another entry
+         * @param index The index
+         */
+        private void writeIndex(int index) {
+            bytes.write(index >>> 8);
+            bytes.write(index);
+        }
+
+        /**
+         * Records the entry that was just written
+         * @param key The key of the entry's type and value
+         * @param size The number of indices the entry takes up
+         * @return The index of the entry
+         */
+        private int add(String key, int size) {
+            int index = count;
+            indices.put(key, index);
+            count += size;
+            return index;
+        }
+    }
+}
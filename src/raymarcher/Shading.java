@@ -0,0 +1,181 @@
+package raymarcher;
+
+import java.awt.Color;
+import java.util.ArrayList;
+
+/**
+ * Shades the pixels of a frame with the scene's lights after its rays are marched, with
+ * the Phong reflection model. Shading is deferred until every ray of a tile has found what
+ * it hit, so it runs once per pixel instead of once per march step, and the cost of
+ * lighting grows with the number of pixels rather than with how long the rays took to
+ * march. Each pixel is shaded from its depth and mesh in a {@link GBuffer}, and the
+ * surface normal is estimated from the central differences of the scene's SDF at the hit
+ * point, unless the G-buffer already kept it.
+ * <p>
+ * Lights don't cast shadows, so each pixel's shading only depends on what its own ray hit.
+ * A shader keeps the arrays it works in, so each thread needs its own.
+ */
+public class Shading {
+
+    /** The scene whose lights shade the pixels */
+    private final Scene scene;
+    /** The generator of the rays of the frame being shaded */
+    private final RayGenerator rays;
+    /** The lights of the scene */
+    private final Light[] lights;
+    /** The red component of each light's color, from 0 to 1 */
+    private final double[] lightRed;
+    /** The green component of each light's color, from 0 to 1 */
+    private final double[] lightGreen;
+    /** The blue component of each light's color, from 0 to 1 */
+    private final double[] lightBlue;
+    /** The amount of each mesh's color shown where no light reaches it */
+    private final double ambientLight;
+    /** The intensity of the highlights lights make on the meshes */
+    private final double specularStrength;
+    /** How sharp the highlights lights make on the meshes are */
+    private final double shininess;
+    /** The array to write each pixel's ray to */
+    private final double[] ray;
+    /** The array to write the direction towards each light to */
+    private final double[] direction;
+    /** The array to write each estimated surface normal to */
+    private final double[] normal;
+
+    /**
+     * Creates a shader for the pixels of a frame, taking the scene's lights as they are now
+     * @param scene The scene whose lights shade the pixels
+     * @param rays The generator of the rays of the frame
+     */
+    public Shading(Scene scene, RayGenerator rays) {
+        this.scene = scene;
+        this.rays = rays;
+
+        ArrayList<Light> sceneLights = scene.getLights();
+        int count = sceneLights.size();
+        this.lights = new Light[count];
+        this.lightRed = new double[count];
+        this.lightGreen = new double[count];
+        this.lightBlue = new double[count];
+        for (int i = 0; i < count; i++) {
+            Light light = sceneLights.get(i);
+            Color color = light.getLightColor();
+            lights[i] = light;
+            lightRed[i] = color.getRed() / 255.0;
+            lightGreen[i] = color.getGreen() / 255.0;
+            lightBlue[i] = color.getBlue() / 255.0;
+        }
+
+        this.ambientLight = scene.getAmbientLight();
+        this.specularStrength = scene.getSpecularStrength();
+        this.shininess = scene.getShininess();
+        this.ray = new double[6];
+        this.direction = new double[3];
+        this.normal = new double[3];
+    }
+
+    /**
+     * Shades a pixel, estimating the surface normal where its ray hit
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @param depth The distance the pixel's ray traveled to hit a mesh
+     * @param meshIndex The index in the scene's list of meshes of the mesh the ray hit,
+     * or -1 if it hit nothing
+     * @return The color value of the pixel, as an int RGB value representing the color
+     * in the default sRGB {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public int shade(int column, int row, double depth, int meshIndex) {
+        if (meshIndex < 0)
+            return scene.getWorldColor();
+
+        rays.getRay(column, row, ray);
+        double x = ray[0] + ray[3] * depth;
+        double y = ray[1] + ray[4] * depth;
+        double z = ray[2] + ray[5] * depth;
+        scene.estimateNormal(x, y, z, rays.getEpsilon(), normal);
+        return shade(x, y, z, normal[0], normal[1], normal[2], meshIndex);
+    }
+
+    /**
+     * Shades a pixel whose surface normal is already known, such as from a G-buffer
+     * @param column The pixel's column, from 0 at the left of the screen
+     * @param row The pixel's row, from 0 at the top of the screen
+     * @param depth The distance the pixel's ray traveled to hit a mesh
+     * @param meshIndex The index in the scene's list of meshes of the mesh the ray hit,
+     * or -1 if it hit nothing
+     * @param normalX The x-component of the unit surface normal where the ray hit
+     * @param normalY The y-component of the unit surface normal where the ray hit
+     * @param normalZ The z-component of the unit surface normal where the ray hit
+     * @return The color value of the pixel, as an int RGB value representing the color
+     * in the default sRGB {@link java.awt.image.ColorModel ColorModel}.
+     */
+    public int shade(int column, int row, double depth, int meshIndex, double normalX, double normalY,
+        double normalZ) {
+
+        if (meshIndex < 0)
+            return scene.getWorldColor();
+
+        rays.getRay(column, row, ray);
+        return shade(ray[0] + ray[3] * depth, ray[1] + ray[4] * depth, ray[2] + ray[5] * depth,
+            normalX, normalY, normalZ, meshIndex);
+    }
+
+    /**
+     * Shades the point a ray hit with each light, from the ray last written to the ray array
+     * @param x The x-coordinate of the hit point
+     * @param y The y-coordinate of the hit point
+     * @param z The z-coordinate of the hit point
+     * @param normalX The x-component of the unit surface normal at the hit point
+     * @param normalY The y-component of the unit surface normal at the hit point
+     * @param normalZ The z-component of the unit surface normal at the hit point
+     * @param meshIndex The index in the scene's list of meshes of the mesh the ray hit
+     * @return The shaded color, as an RGB int
+     */
+    private int shade(double x, double y, double z, double normalX, double normalY, double normalZ, int meshIndex) {
+        double diffuseRed = ambientLight, diffuseGreen = ambientLight, diffuseBlue = ambientLight;
+        double specularRed = 0, specularGreen = 0, specularBlue = 0;
+
+        for (int i = 0; i < lights.length; i++) {
+            double intensity = lights[i].illuminate(x, y, z, direction);
+            double lambert = normalX * direction[0] + normalY * direction[1] + normalZ * direction[2];
+            if (intensity <= 0 || lambert <= 0)
+                continue;
+
+            diffuseRed += lightRed[i] * intensity * lambert;
+            diffuseGreen += lightGreen[i] * intensity * lambert;
+            diffuseBlue += lightBlue[i] * intensity * lambert;
+            if (specularStrength <= 0)
+                continue;
+
+            //the highlight is brightest where the light reflects straight towards the camera
+            double reflectX = 2 * lambert * normalX - direction[0];
+            double reflectY = 2 * lambert * normalY - direction[1];
+            double reflectZ = 2 * lambert * normalZ - direction[2];
+            double alignment = -(reflectX * ray[3] + reflectY * ray[4] + reflectZ * ray[5]);
+            if (alignment <= 0)
+                continue;
+
+            double highlight = specularStrength * intensity * Math.pow(alignment, shininess);
+            specularRed += lightRed[i] * highlight;
+            specularGreen += lightGreen[i] * highlight;
+            specularBlue += lightBlue[i] * highlight;
+        }
+
+        int color = scene.getMeshes().get(meshIndex).getMeshColor().getRGB();
+        int red = channel((color >> 16) & 0xff, diffuseRed, specularRed);
+        int green = channel((color >> 8) & 0xff, diffuseGreen, specularGreen);
+        int blue = channel(color & 0xff, diffuseBlue, specularBlue);
+        return 0xff000000 | red << 16 | green << 8 | blue;
+    }
+
+    /**
+     * Lights one component of a mesh's color
+     * @param component The component of the mesh's color, from 0 to 255
+     * @param diffuse The diffuse and ambient light reaching the surface in the component
+     * @param specular The highlight on the surface in the component
+     * @return The lit component, from 0 to 255
+     */
+    private static int channel(int component, double diffuse, double specular) {
+        return (int) Math.min(255, component * diffuse + 255 * specular + .5);
+    }
+}
@@ -0,0 +1,179 @@
+package raymarcher;
+
+import java.util.Arrays;
+
+/**
+ * Reuses the distances each ray traveled to hit a mesh in the last frame as starting
+ * points for the rays of the next frame. When the camera only moves a little between
+ * frames, most of the scene is still the same distance away, so rays can skip the
+ * early march steps through empty space.
+ * <p>
+ * Each hit point of the last frame is projected onto the screen of the new frame. Since
+ * a mesh may be uncovered where nothing was projected, or be in front of a projected
+ * point at the edges of meshes, each pixel starts at the nearest projected distance of
+ * itself and its neighbors, less a safety margin. Rays whose starting point turns out to
+ * be on or inside a mesh are marched from the screen instead. That is the only check, so
+ * a mesh thinner than the gap between a ray's starting point and the projected distances
+ * around it, which the camera's movement uncovered by more than a pixel, can be skipped
+ * over until the camera stops.
+ * <p>
+ * Only the camera's motion is accounted for, so the distances must be {@link #reset() reset}
+ * if the meshes of the scene are moved, which the camera does when the scene's 
+ * {@link Scene#getVersion() version} changes.
+ */
+public class TemporalReprojection {
+
+    /** The fraction of each reprojected distance to start the ray short of */
+    private static final double SAFETY_MARGIN = .05;
+
+    /** The distance each ray of the frame being rendered traveled to hit a mesh, or 0 if it hit nothing */
+    private float[] distances;
+    /** The distance each ray of the last frame traveled to hit a mesh, or 0 if it hit nothing */
+    private float[] previousDistances;
+    /** The distance each ray of the frame being rendered starts marching from */
+    private float[] startDistances;
+    /** The nearest distance projected onto each pixel of the frame being rendered, or infinity if none was */
+    private float[] projected;
+    /** The generator of the rays of the last frame, or null if there are no distances to reuse */
+    private RayGenerator previousRays;
+
+    /**
+     * Creates a temporal reprojection without any distances to reuse, so the first frame
+     * is marched from the screen
+     */
+    public TemporalReprojection() {
+        this.distances = new float[0];
+        this.previousDistances = new float[0];
+        this.startDistances = new float[0];
+        this.projected = new float[0];
+    }
+
+    /**
+     * Discards the distances of the last frame, so that the next frame is marched from
+     * the screen. This must be called after moving meshes of the scene.
+     */
+    public void reset() {
+        previousRays = null;
+    }
+
+    /**
+     * Projects the distances of the last frame onto the frame about to be rendered to
+     * find each ray's starting distance
+     * @param rays The generator of the rays of the frame about to be rendered
+     */
+    public void beginFrame(RayGenerator rays) {
+        int width = rays.getScreenWidth();
+        int height = rays.getScreenHeight();
+        int size = width * height;
+
+        if (distances.length != size) {
+            distances = new float[size];
+            startDistances = new float[size];
+            projected = new float[size];
+        }
+        Arrays.fill(distances, 0);
+
+        //distances of a different resolution can't be reused
+        RayGenerator previous = previousRays;
+        if (previous == null || previousDistances.length != size || previous.getScreenWidth() != width) {
+            Arrays.fill(startDistances, 0);
+            return;
+        }
+
+        //move each hit point of the last frame to where it is on the new screen
+        Arrays.fill(projected, Float.POSITIVE_INFINITY);
+        double[] ray = new double[6];
+        double[] pixel = new double[3];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                float distance = previousDistances[row * width + column];
+                if (distance <= 0)
+                    continue;
+
+                previous.getRay(column, row, ray);
+                if (!rays.project(ray[0] + ray[3] * distance, ray[1] + ray[4] * distance,
+                    ray[2] + ray[5] * distance, pixel))
+                    continue;
+
+                int x = (int) Math.round(pixel[0]);
+                int y = (int) Math.round(pixel[1]);
+                if (x < 0 || y < 0 || x >= width || y >= height)
+                    continue;
+
+                //keep the nearest point when several land on the same pixel
+                int index = y * width + x;
+                if (pixel[2] < projected[index])
+                    projected[index] = (float) pixel[2];
+            }
+        }
+
+        //start each ray at the nearest distance around it, to stay in front of mesh edges
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                float nearest = Float.POSITIVE_INFINITY;
+                for (int y = Math.max(row - 1, 0); y <= Math.min(row + 1, height - 1); y++) {
+                    for (int x = Math.max(column - 1, 0); x <= Math.min(column + 1, width - 1); x++) {
+                        nearest = Math.min(nearest, projected[y * width + x]);
+                    }
+                }
+
+                startDistances[row * width + column] = nearest == Float.POSITIVE_INFINITY ? 0 :
+                    (float) (nearest * (1 - SAFETY_MARGIN));
+            }
+        }
+    }
+
+    /**
+     * Prepares to march only some rays of a frame again, with the same rays as the last
+     * frame. The distances of the last frame are kept for the rays which aren't marched
+     * again, and the rays which are start from the screen, since the meshes near them
+     * may have moved.
+     * @param rays The generator of the rays of the frame about to be rendered
+     */
+    public void beginUpdate(RayGenerator rays) {
+        int size = rays.getScreenWidth() * rays.getScreenHeight();
+        if (distances.length != size) {
+            distances = new float[size];
+            startDistances = new float[size];
+            projected = new float[size];
+        }
+        Arrays.fill(startDistances, 0);
+
+        if (previousDistances.length == size)
+            System.arraycopy(previousDistances, 0, distances, 0, size);
+        else
+            Arrays.fill(distances, 0);
+    }
+
+    /**
+     * Gives the distance a ray of the frame being rendered should start marching from
+     * @param index The index of the ray's pixel, in the order of left to right for each
+     * row, from top to bottom
+     * @return The distance along the ray to start marching from, or 0 to march from the screen
+     */
+    public double getStartDistance(int index) {
+        return startDistances[index];
+    }
+
+    /**
+     * Records how far a ray of the frame being rendered traveled, to be reused by the next
+     * frame. Rays of different pixels may be recorded from different threads.
+     * @param index The index of the ray's pixel, in the order of left to right for each
+     * row, from top to bottom
+     * @param hit The result of marching the ray
+     */
+    public void record(int index, RayHit hit) {
+        distances[index] = hit.isHit() ? (float) hit.getDistance() : 0;
+    }
+
+    /**
+     * Keeps the distances of the frame that finished rendering to be reused by the next frame
+     * @param rays The generator of the rays of the frame that finished rendering
+     */
+    public void endFrame(RayGenerator rays) {
+        float[] swap = previousDistances;
+        previousDistances = distances;
+        distances = swap.length == previousDistances.length ? swap : new float[previousDistances.length];
+        previousRays = rays;
+    }
+}
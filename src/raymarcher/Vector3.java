@@ -1,12 +1,17 @@
 package raymarcher;
 
+import java.io.Serializable;
+
 /**
  * Represents a vector in 3D Euclidean space (x, y, z). Can be used to represent a 
  * point in space or to represent a direction.
  * A left-hand coordinate system is used, with +x being rightwards, +y being upwards,
  * and +z being backwards.
  */
-public class Vector3 {
+public class Vector3 implements Serializable {
+
+    /** Default Serial Version ID for Serializable */
+    private static final long serialVersionUID = 1L;
     
     /**The vector's x-coordinate */
     private double x;
@@ -0,0 +1,297 @@
+package raymarcher;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A packet marcher which uses the Java Vector API to evaluate the compiled tape of each
+ * mesh for every ray of a packet at once, using as many lanes as the hardware's widest
+ * vectors hold. Each instruction loads its inputs from arrays and stores its result back,
+ * so that no vector is kept across instructions and none have to be boxed.
+ * <p>
+ * This class is only loaded through {@link PacketMarcher#create()} once the 
+ * {@code jdk.incubator.vector} module is known to be present.
+ */
+class VectorPacketMarcher implements PacketMarcher {
+
+    /** The widest vector of doubles the hardware supports */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /** The buffers each thread marches its packets with */
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    @Override
+    public int getPacketSize() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void march(Scene scene, CompiledMesh[] meshes, RayPacket packet, double renderDistance, double epsilon, 
+        RenderStatistics.Shard statistics) {
+
+        int lanes = SPECIES.length();
+        int count = packet.getCount();
+        if (packet.getSize() < lanes)
+            throw new IllegalArgumentException("Packets must hold at least " + lanes + " rays");
+        if (count == 0)
+            return;
+
+        //unused lanes repeat the first ray, so they don't need to be masked when evaluated
+        for (int i = count; i < lanes; i++) {
+            packet.x[i] = packet.x[0];
+            packet.y[i] = packet.y[0];
+            packet.z[i] = packet.z[0];
+            packet.dx[i] = packet.dx[0];
+            packet.dy[i] = packet.dy[0];
+            packet.dz[i] = packet.dz[0];
+            packet.startDistances[i] = packet.startDistances[0];
+        }
+
+        Buffers b = buffers.get();
+        VectorMask<Double> used = SPECIES.indexInRange(0, count);
+        DoubleVector dx = DoubleVector.fromArray(SPECIES, packet.dx, 0);
+        DoubleVector dy = DoubleVector.fromArray(SPECIES, packet.dy, 0);
+        DoubleVector dz = DoubleVector.fromArray(SPECIES, packet.dz, 0);
+        DoubleVector start = DoubleVector.fromArray(SPECIES, packet.startDistances, 0);
+
+        //rays starting past the render distance aren't marched at all
+        VectorMask<Double> marched = used.and(start.compare(VectorOperators.LT, renderDistance));
+
+        DoubleVector.fromArray(SPECIES, packet.x, 0).intoArray(b.x, 0);
+        DoubleVector.fromArray(SPECIES, packet.y, 0).intoArray(b.y, 0);
+        DoubleVector.fromArray(SPECIES, packet.z, 0).intoArray(b.z, 0);
+        DoubleVector.broadcast(SPECIES, epsilon + 1).intoArray(b.distances, 0);
+        DoubleVector.zero(SPECIES).intoArray(b.traveled, 0);
+        DoubleVector.zero(SPECIES).intoArray(b.steps, 0);
+
+        //jump ahead to the starting distance, unless it lands on or inside a mesh
+        VectorMask<Double> jumping = marched.and(start.compare(VectorOperators.GT, 0));
+        if (jumping.anyTrue()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, b.x, 0);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b.y, 0);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, b.z, 0);
+            DoubleVector startX = x.add(dx.mul(start));
+            DoubleVector startY = y.add(dy.mul(start));
+            DoubleVector startZ = z.add(dz.mul(start));
+            startX.intoArray(b.sampleX, 0);
+            startY.intoArray(b.sampleY, 0);
+            startZ.intoArray(b.sampleZ, 0);
+            sdf(meshes, b);
+            if (statistics != null)
+                statistics.recordEvaluations(meshes.length * jumping.trueCount());
+
+            DoubleVector startDist = DoubleVector.fromArray(SPECIES, b.value, 0);
+            DoubleVector.zero(SPECIES).add(1, jumping).intoArray(b.steps, 0);
+            VectorMask<Double> clear = jumping.and(startDist.compare(VectorOperators.GT, epsilon));
+            startDist.intoArray(b.distances, 0, clear);
+            start.add(startDist).intoArray(b.traveled, 0, clear);
+            startX.add(dx.mul(startDist)).intoArray(b.x, 0, clear);
+            startY.add(dy.mul(startDist)).intoArray(b.y, 0, clear);
+            startZ.add(dz.mul(startDist)).intoArray(b.z, 0, clear);
+        }
+
+        //keep marching until every ray hits a mesh or the render distance
+        while (true) {
+            DoubleVector distances = DoubleVector.fromArray(SPECIES, b.distances, 0);
+            DoubleVector traveled = DoubleVector.fromArray(SPECIES, b.traveled, 0);
+            VectorMask<Double> active = marched.and(distances.compare(VectorOperators.GT, epsilon))
+                .and(traveled.compare(VectorOperators.LT, renderDistance));
+            if (!active.anyTrue())
+                break;
+
+            System.arraycopy(b.x, 0, b.sampleX, 0, lanes);
+            System.arraycopy(b.y, 0, b.sampleY, 0, lanes);
+            System.arraycopy(b.z, 0, b.sampleZ, 0, lanes);
+            sdf(meshes, b);
+            if (statistics != null)
+                statistics.recordEvaluations(meshes.length * active.trueCount());
+
+            //march the active rays
+            DoubleVector distToScene = DoubleVector.fromArray(SPECIES, b.value, 0);
+            distToScene.intoArray(b.distances, 0, active);
+            traveled.add(distToScene).intoArray(b.traveled, 0, active);
+            DoubleVector.fromArray(SPECIES, b.steps, 0).add(1, active).intoArray(b.steps, 0);
+            DoubleVector.fromArray(SPECIES, b.x, 0).add(dx.mul(distToScene)).intoArray(b.x, 0, active);
+            DoubleVector.fromArray(SPECIES, b.y, 0).add(dy.mul(distToScene)).intoArray(b.y, 0, active);
+            DoubleVector.fromArray(SPECIES, b.z, 0).add(dz.mul(distToScene)).intoArray(b.z, 0, active);
+        }
+
+        //see if each ray hit a mesh or hit nothing
+        for (int i = 0; i < count; i++) {
+            RayHit result = packet.getHit(i);
+            if (!marched.laneIsSet(i)) {
+                if (statistics != null)
+                    statistics.recordRay(0, false, true);
+                double startDistance = packet.startDistances[i];
+                result.set(false, startDistance, 0, -1, packet.x[i] + packet.dx[i] * startDistance, 
+                    packet.y[i] + packet.dy[i] * startDistance, packet.z[i] + packet.dz[i] * startDistance);
+                continue;
+            }
+
+            double distTraveled = b.traveled[i];
+            int steps = (int) b.steps[i];
+            boolean hit = !(distTraveled > renderDistance);
+            if (statistics != null)
+                statistics.recordRay(steps, hit, !hit);
+
+            result.set(hit, distTraveled, steps, hit ? scene.nearestMesh(b.x[i], b.y[i], b.z[i]) : -1, 
+                b.x[i], b.y[i], b.z[i]);
+        }
+    }
+
+    /**
+     * Finds the distance to the nearest mesh from every sample point of the buffers
+     * @param meshes The meshes of the scene
+     * @param b The buffers, whose sample points are read and whose values are written
+     */
+    private static void sdf(CompiledMesh[] meshes, Buffers b) {
+        if (meshes.length == 0) {
+            DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY).intoArray(b.value, 0);
+            return;
+        }
+
+        sdf(meshes[0], b);
+        if (meshes.length == 1)
+            return;
+
+        System.arraycopy(b.value, 0, b.nearest, 0, b.nearest.length);
+        for (int i = 1; i < meshes.length; i++) {
+            sdf(meshes[i], b);
+            DoubleVector.fromArray(SPECIES, b.nearest, 0).min(DoubleVector.fromArray(SPECIES, b.value, 0))
+                .intoArray(b.nearest, 0);
+        }
+        System.arraycopy(b.nearest, 0, b.value, 0, b.value.length);
+    }
+
+    /**
+     * Runs the tape of a compiled mesh for every sample point of the buffers, following
+     * {@link CompiledMesh#sdf(double, double, double)} instruction for instruction so that
+     * each lane gives exactly the same distance
+     * @param mesh The compiled mesh
+     * @param b The buffers, whose sample points are read and whose values are written
+     */
+    private static void sdf(CompiledMesh mesh, Buffers b) {
+        int[] code = mesh.getCode();
+        double[] c = mesh.getConstants();
+        double[] value = b.value;
+        int top = 0;
+        int k = 0;
+        double[] below = null;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            int opcode = instruction & ~SceneCompiler.PUSH;
+
+            if (instruction != opcode)
+                System.arraycopy(value, 0, b.stack[top++], 0, value.length);
+            else if (opcode >= SceneCompiler.UNION)
+                below = b.stack[--top];
+
+            switch (opcode) {
+                case SceneCompiler.SPHERE: {
+                    DoubleVector px = DoubleVector.broadcast(SPECIES, c[k]).sub(DoubleVector.fromArray(SPECIES, b.sampleX, 0));
+                    DoubleVector py = DoubleVector.broadcast(SPECIES, c[k + 1]).sub(DoubleVector.fromArray(SPECIES, b.sampleY, 0));
+                    DoubleVector pz = DoubleVector.broadcast(SPECIES, c[k + 2]).sub(DoubleVector.fromArray(SPECIES, b.sampleZ, 0));
+                    px.mul(px).add(py.mul(py)).add(pz.mul(pz)).lanewise(VectorOperators.SQRT).sub(c[k + 3])
+                        .intoArray(value, 0);
+                    k += 4;
+                    break;
+                }
+                case SceneCompiler.BOX: 
+                case SceneCompiler.ROUNDED_BOX: {
+                    DoubleVector qx = DoubleVector.fromArray(SPECIES, b.sampleX, 0).sub(c[k]).abs().sub(c[k + 3]);
+                    DoubleVector qy = DoubleVector.fromArray(SPECIES, b.sampleY, 0).sub(c[k + 1]).abs().sub(c[k + 4]);
+                    DoubleVector qz = DoubleVector.fromArray(SPECIES, b.sampleZ, 0).sub(c[k + 2]).abs().sub(c[k + 5]);
+                    DoubleVector wx = qx.max(0);
+                    DoubleVector wy = qy.max(0);
+                    DoubleVector wz = qz.max(0);
+                    DoubleVector box = wx.mul(wx).add(wy.mul(wy)).add(wz.mul(wz)).lanewise(VectorOperators.SQRT)
+                        .add(qx.max(qy.max(qz)).min(0));
+                    k += 6;
+                    if (opcode == SceneCompiler.ROUNDED_BOX)
+                        box = box.sub(c[k++]);
+                    box.intoArray(value, 0);
+                    break;
+                }
+                case SceneCompiler.TORUS: {
+                    DoubleVector px = DoubleVector.fromArray(SPECIES, b.sampleX, 0).sub(c[k]);
+                    DoubleVector py = DoubleVector.fromArray(SPECIES, b.sampleY, 0).sub(c[k + 1]);
+                    DoubleVector pz = DoubleVector.fromArray(SPECIES, b.sampleZ, 0).sub(c[k + 2]);
+                    DoubleVector pxz = px.mul(px).add(pz.mul(pz)).lanewise(VectorOperators.SQRT).sub(c[k + 3]);
+                    pxz.mul(pxz).add(py.mul(py)).lanewise(VectorOperators.SQRT).sub(c[k + 4]).intoArray(value, 0);
+                    k += 5;
+                    break;
+                }
+                case SceneCompiler.TRIANGULAR_PRISM: {
+                    DoubleVector px = DoubleVector.fromArray(SPECIES, b.sampleX, 0).sub(c[k]);
+                    DoubleVector py = DoubleVector.fromArray(SPECIES, b.sampleY, 0).sub(c[k + 1]);
+                    DoubleVector pz = DoubleVector.fromArray(SPECIES, b.sampleZ, 0).sub(c[k + 2]);
+                    pz.abs().sub(2).max(px.abs().mul(0.866025).add(py.mul(.5)).max(py.mul(-1)).sub(1 * .5))
+                        .intoArray(value, 0);
+                    k += 3;
+                    break;
+                }
+                case SceneCompiler.MESH: {
+                    //meshes that couldn't be compiled are evaluated one lane at a time
+                    Mesh called = mesh.getCalledMeshes()[code[++pc]];
+                    for (int i = 0; i < value.length; i++)
+                        value[i] = called.sdf(b.sampleX[i], b.sampleY[i], b.sampleZ[i]);
+                    break;
+                }
+                case SceneCompiler.UNION:
+                    DoubleVector.fromArray(SPECIES, below, 0).min(DoubleVector.fromArray(SPECIES, value, 0))
+                        .intoArray(value, 0);
+                    break;
+                case SceneCompiler.SUBTRACT:
+                    DoubleVector.fromArray(SPECIES, below, 0).mul(-1).max(DoubleVector.fromArray(SPECIES, value, 0))
+                        .intoArray(value, 0);
+                    break;
+                case SceneCompiler.SUBTRACT_REVERSED:
+                    DoubleVector.fromArray(SPECIES, value, 0).mul(-1).max(DoubleVector.fromArray(SPECIES, below, 0))
+                        .intoArray(value, 0);
+                    break;
+                case SceneCompiler.INTERSECTION:
+                    DoubleVector.fromArray(SPECIES, below, 0).max(DoubleVector.fromArray(SPECIES, value, 0))
+                        .intoArray(value, 0);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + instruction);
+            }
+        }
+    }
+
+    /**
+     * The arrays a thread marches packets with, each holding one value per lane
+     */
+    private static class Buffers {
+
+        /** The current position of each ray */
+        final double[] x, y, z;
+        /** The points to find the distance to the nearest mesh from */
+        final double[] sampleX, sampleY, sampleZ;
+        /** The last distance to the scene, the distance traveled and the number of steps of each ray */
+        final double[] distances, traveled, steps;
+        /** The value of the last instruction, and the nearest distance of the meshes evaluated so far */
+        final double[] value, nearest;
+        /** The stack of values below the last value */
+        final double[][] stack;
+
+        Buffers() {
+            int lanes = SPECIES.length();
+            x = new double[lanes];
+            y = new double[lanes];
+            z = new double[lanes];
+            sampleX = new double[lanes];
+            sampleY = new double[lanes];
+            sampleZ = new double[lanes];
+            distances = new double[lanes];
+            traveled = new double[lanes];
+            steps = new double[lanes];
+            value = new double[lanes];
+            nearest = new double[lanes];
+            stack = new double[SceneCompiler.MAX_STACK][lanes];
+        }
+    }
+}
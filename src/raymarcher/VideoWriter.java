@@ -0,0 +1,439 @@
+package raymarcher;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes rendered frames to a video file on a background thread, so that long animations
+ * can be captured without encoding images on the render thread. Each frame is copied into
+ * one of a fixed number of off-heap buffers, which the writer thread encodes and writes
+ * through a FileChannel before handing the buffer back. When every buffer is waiting to be
+ * written, writing another frame blocks until one is free, so a render loop that is faster
+ * than the disk is slowed down instead of queueing frames without limit.
+ * <p>
+ * Frames can be written in one of three formats:
+ * <ul>
+ * <li>{@link #RAW}: the red, green and blue bytes of each pixel, with no header, which
+ * can be read as {@code rawvideo} with a pixel format of {@code rgb24}</li>
+ * <li>{@link #Y4M}: a YUV4MPEG2 stream with full resolution chroma (C444), which most
+ * video tools can read directly</li>
+ * <li>{@link #DELTA}: only the runs of pixels that changed since the last frame, which
+ * takes far less space when most of each frame stays the same, and can be read back with
+ * a {@link DeltaVideoReader}</li>
+ * </ul>
+ */
+public class VideoWriter implements Closeable {
+
+    /** The format of headerless 24-bit RGB frames */
+    public static final int RAW = 0;
+    /** The format of YUV4MPEG2 streams with full resolution chroma */
+    public static final int Y4M = 1;
+    /** The format of runs of pixels that changed since the last frame */
+    public static final int DELTA = 2;
+    /** The default number of frames that can wait to be written before writing blocks */
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+
+    /** The bytes at the start of a delta file */
+    static final byte[] DELTA_MAGIC = "RMDELTA1".getBytes(StandardCharsets.US_ASCII);
+    /** The most unchanged pixels between two changed ones that are written within the same run */
+    private static final int MERGE_GAP = 4;
+    /** The header of each frame of a Y4M stream */
+    private static final byte[] Y4M_FRAME = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    /** The amount of pixels wide each frame is */
+    private final int width;
+    /** The amount of pixels tall each frame is */
+    private final int height;
+    /** The format frames are written in */
+    private final int format;
+    /** The file being written */
+    private final FileChannel channel;
+    /** The buffers of pixels that are free to copy a frame into */
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    /** The buffers of pixels waiting to be written, in order */
+    private final ArrayBlockingQueue<ByteBuffer> filledBuffers;
+    /** The buffer queued to tell the writer thread to finish */
+    private final ByteBuffer endOfStream;
+    /** The thread which encodes and writes frames */
+    private final Thread writerThread;
+    /** The encoded bytes of the frame being written, which only the writer thread uses */
+    private final ByteBuffer output;
+    /** The pixels of the last frame written as a delta, which only the writer thread uses */
+    private final int[] previousFrame;
+    /** The first error the writer thread ran into, or null if none */
+    private volatile IOException failure;
+    /** The number of frames written to the file */
+    private volatile long framesWritten;
+    /** The number of bytes written to the file */
+    private volatile long bytesWritten;
+    /** Whether or not the writer was closed */
+    private boolean closed;
+
+    /**
+     * Creates a video file, holding up to {@link #DEFAULT_QUEUE_SIZE} frames waiting to be
+     * written at once
+     * @param file The file to write, which is replaced if it exists
+     * @param width The amount of pixels wide each frame is, which must be > 0
+     * @param height The amount of pixels tall each frame is, which must be > 0
+     * @param format The format to write frames in: {@link #RAW}, {@link #Y4M} or {@link #DELTA}
+     * @param framerate The framerate of the video, in frames per second, which is only
+     * written to the header of Y4M streams
+     * @throws IOException If the file couldn't be created
+     */
+    public VideoWriter(File file, int width, int height, int format, double framerate) throws IOException {
+        this(file, width, height, format, framerate, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Creates a video file
+     * @param file The file to write, which is replaced if it exists
+     * @param width The amount of pixels wide each frame is, which must be > 0
+     * @param height The amount of pixels tall each frame is, which must be > 0
+     * @param format The format to write frames in: {@link #RAW}, {@link #Y4M} or {@link #DELTA}
+     * @param framerate The framerate of the video, in frames per second, which is only
+     * written to the header of Y4M streams
+     * @param queueSize The number of frames that can wait to be written before writing
+     * another frame blocks, which must be > 0
+     * @throws IOException If the file couldn't be created
+     */
+    public VideoWriter(File file, int width, int height, int format, double framerate, int queueSize)
+        throws IOException {
+
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Resolution must be positive: " + width + "x" + height);
+        if (format < RAW || format > DELTA)
+            throw new IllegalArgumentException("Unknown format: " + format);
+        if (queueSize <= 0)
+            throw new IllegalArgumentException("The queue size must be > 0");
+
+        this.width = width;
+        this.height = height;
+        this.format = format;
+
+        int pixelCount = width * height;
+        freeBuffers = new ArrayBlockingQueue<ByteBuffer>(queueSize);
+        for (int i = 0; i < queueSize; i++)
+            freeBuffers.add(ByteBuffer.allocateDirect(pixelCount * 4));
+        filledBuffers = new ArrayBlockingQueue<ByteBuffer>(queueSize + 1);
+        endOfStream = ByteBuffer.allocate(0);
+
+        //a delta frame is at worst every pixel, plus the header of each run
+        if (format == DELTA) {
+            output = ByteBuffer.allocateDirect(4 + pixelCount * 3 + (pixelCount / (MERGE_GAP + 1) + 1) * 8);
+            previousFrame = new int[pixelCount];
+        }
+        else {
+            output = ByteBuffer.allocateDirect(Y4M_FRAME.length + pixelCount * 3);
+            previousFrame = null;
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeHeader(framerate);
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        writerThread = new Thread(this::run, "Raymarcher Video Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * @return The amount of pixels wide each frame is
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The amount of pixels tall each frame is
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The format frames are written in
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * @return The number of frames written to the file so far, which doesn't include
+     * frames still waiting to be written
+     */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * @return The number of bytes written to the file so far, including its header
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Queues a frame to be written, blocking while every buffer is waiting to be written.
+     * The pixels are copied before this returns, so the array can be reused right away.
+     * @param pixels The pixel color values of the frame, in the order of left to right for
+     * each row, from top to bottom, with the same resolution as the video
+     * @throws IOException If an earlier frame couldn't be written, or the writer is closed
+     */
+    public void write(int[] pixels) throws IOException {
+        write(pixels, width, height);
+    }
+
+    /**
+     * Queues a frame to be written, scaling it to the video's resolution if it is rendered
+     * at a different one, as with dynamic resolution. This blocks while every buffer is
+     * waiting to be written, and copies the pixels before it returns.
+     * @param pixels The pixel color values of the frame, in the order of left to right for
+     * each row, from top to bottom
+     * @param frameWidth The amount of pixels wide the frame is
+     * @param frameHeight The amount of pixels tall the frame is
+     * @throws IOException If an earlier frame couldn't be written, or the writer is closed
+     */
+    public void write(int[] pixels, int frameWidth, int frameHeight) throws IOException {
+        ByteBuffer buffer = takeBuffer();
+        IntBuffer frame = buffer.asIntBuffer();
+        if (frameWidth == width && frameHeight == height) {
+            frame.put(pixels, 0, width * height);
+        }
+        else {
+            for (int y = 0; y < height; y++) {
+                int row = (int) ((long) y * frameHeight / height) * frameWidth;
+                for (int x = 0; x < width; x++)
+                    frame.put(pixels[row + (int) ((long) x * frameWidth / width)]);
+            }
+        }
+        queueBuffer(buffer);
+    }
+
+    /**
+     * Queues a frame held off of the heap to be written, blocking while every buffer is
+     * waiting to be written. The pixels are copied before this returns.
+     * @param pixels The pixel color values of the frame, from the buffer's position, in
+     * the order of left to right for each row, from top to bottom, with the same
+     * resolution as the video. The buffer's position is left unchanged.
+     * @throws IOException If an earlier frame couldn't be written, or the writer is closed
+     */
+    public void write(IntBuffer pixels) throws IOException {
+        ByteBuffer buffer = takeBuffer();
+        buffer.asIntBuffer().put(pixels.duplicate().limit(pixels.position() + width * height));
+        queueBuffer(buffer);
+    }
+
+    /**
+     * Waits for every queued frame to be written, and closes the file
+     * @throws IOException If a frame couldn't be written or the file couldn't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            filledBuffers.put(endOfStream);
+            writerThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            channel.close();
+            throw new InterruptedIOException("Interrupted while finishing the video");
+        }
+
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Takes a free buffer to copy a frame into, waiting for one if needed
+     * @return The buffer
+     * @throws IOException If an earlier frame couldn't be written, or the writer is closed
+     */
+    private ByteBuffer takeBuffer() throws IOException {
+        if (failure != null)
+            throw failure;
+        if (closed)
+            throw new IOException("The video writer is closed");
+
+        try {
+            return freeBuffers.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to write a frame");
+        }
+    }
+
+    /**
+     * Hands a filled buffer to the writer thread
+     * @param buffer The buffer, holding a frame's pixels
+     */
+    private void queueBuffer(ByteBuffer buffer) {
+        //there is always room, since there are fewer buffers than spaces in the queue
+        filledBuffers.add(buffer);
+    }
+
+    /**
+     * Runs on the writer thread, writing each queued frame in order until the writer is closed
+     */
+    private void run() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = filledBuffers.take();
+            }
+            catch (InterruptedException e) {
+                failure = new InterruptedIOException("The video writer was interrupted");
+                return;
+            }
+            if (buffer == endOfStream)
+                return;
+
+            //frames after a failure are dropped, but their buffers are still freed so writing doesn't block
+            if (failure == null) {
+                try {
+                    encode(buffer.asIntBuffer());
+                    writeFully(output);
+                    framesWritten++;
+                }
+                catch (IOException e) {
+                    failure = e;
+                }
+            }
+
+            buffer.clear();
+            freeBuffers.add(buffer);
+        }
+    }
+
+    /**
+     * Encodes a frame into the output buffer in the writer's format
+     * @param frame The pixel color values of the frame
+     */
+    private void encode(IntBuffer frame) {
+        ByteBuffer out = output;
+        out.clear();
+        int pixelCount = width * height;
+
+        if (format == RAW) {
+            for (int i = 0; i < pixelCount; i++) {
+                int rgb = frame.get(i);
+                out.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+            }
+        }
+        else if (format == Y4M) {
+            //each plane is written at its own offset, in limited range BT.601
+            out.put(Y4M_FRAME);
+            int base = Y4M_FRAME.length;
+            for (int i = 0; i < pixelCount; i++) {
+                int rgb = frame.get(i);
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                out.put(base + i, (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16));
+                out.put(base + pixelCount + i, (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128));
+                out.put(base + 2 * pixelCount + i, (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128));
+            }
+            out.position(base + 3 * pixelCount);
+        }
+        else {
+            encodeDelta(frame, out, pixelCount);
+        }
+        out.flip();
+    }
+
+    /**
+     * Encodes a frame as the runs of pixels that changed since the last frame. Each frame
+     * is the number of runs, then for each run the index of its first pixel, its number
+     * of pixels and their red, green and blue bytes. Runs separated by only a few
+     * unchanged pixels are joined, since each run's header takes as much space as a few
+     * pixels. The first frame is compared to a frame of 0s, so it is written in full.
+     * @param frame The pixel color values of the frame
+     * @param out The buffer to write the encoded frame to
+     * @param pixelCount The number of pixels in the frame
+     */
+    private void encodeDelta(IntBuffer frame, ByteBuffer out, int pixelCount) {
+        int[] previous = previousFrame;
+        int runs = 0;
+        out.putInt(0);
+
+        int i = 0;
+        while (i < pixelCount) {
+            if (((frame.get(i) ^ previous[i]) & 0xffffff) == 0) {
+                i++;
+                continue;
+            }
+
+            //extend the run until a long enough stretch of unchanged pixels
+            int start = i;
+            int end = i + 1;
+            for (int j = end; j < pixelCount && j - end < MERGE_GAP; j++) {
+                if (((frame.get(j) ^ previous[j]) & 0xffffff) != 0)
+                    end = j + 1;
+            }
+
+            out.putInt(start).putInt(end - start);
+            for (int k = start; k < end; k++) {
+                int rgb = frame.get(k);
+                out.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+                previous[k] = rgb;
+            }
+            runs++;
+            i = end;
+        }
+
+        out.putInt(0, runs);
+    }
+
+    /**
+     * Writes the header of the file for the writer's format
+     * @param framerate The framerate of the video, in frames per second
+     * @throws IOException If the header couldn't be written
+     */
+    private void writeHeader(double framerate) throws IOException {
+        ByteBuffer header;
+        if (format == Y4M) {
+            long rate = Math.max(1, Math.round(framerate * 1000));
+            header = ByteBuffer.wrap(String.format("YUV4MPEG2 W%d H%d F%d:1000 Ip A1:1 C444\n", width, height, rate)
+                .getBytes(StandardCharsets.US_ASCII));
+        }
+        else if (format == DELTA) {
+            header = ByteBuffer.allocate(DELTA_MAGIC.length + 8);
+            header.put(DELTA_MAGIC).putInt(width).putInt(height).flip();
+        }
+        else {
+            return;
+        }
+        writeFully(header);
+    }
+
+    /**
+     * Writes all of a buffer's remaining bytes to the file
+     * @param buffer The bytes to write
+     * @throws IOException If the bytes couldn't be written
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        bytesWritten += length;
+    }
+}
@@ -0,0 +1,32 @@
+package raymarcher.distributed;
+
+/**
+ * The messages sent between a {@link RenderCoordinator} and its {@link RenderWorker}s.
+ * <p>
+ * When a coordinator connects, the worker sends {@link #MAGIC}, {@link #VERSION} and the
+ * number of tiles it can render at once. The coordinator then sends a {@link #JOB} at the
+ * start of each frame, followed by {@link #TILE}s of the frame, and the worker answers
+ * each tile with a {@link #RESULT} as soon as it is rendered, in any order. Each message
+ * starts with a byte of its type.
+ */
+final class Protocol {
+
+    /** The first value a worker sends, which marks it as a render worker */
+    static final int MAGIC = 0x524d5752;
+    /** The version of the messages, which the coordinator and worker must agree on */
+    static final int VERSION = 1;
+
+    /** A serialized {@link RenderJob}: the job's id, the length of the job, then the job */
+    static final int JOB = 1;
+    /** The longest serialized job a worker accepts, in bytes */
+    static final int MAX_JOB_LENGTH = 256 << 20;
+    /** A tile to render: the job's id, the tile's id, then its left, top, right and bottom edges */
+    static final int TILE = 2;
+    /**
+     * A rendered tile: the job's id, the tile's id, the nanoseconds it took to render, the
+     * number of pixels, then the pixels of each row of the tile from top to bottom
+     */
+    static final int RESULT = 3;
+
+    private Protocol() {}
+}
@@ -0,0 +1,520 @@
+package raymarcher.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import raymarcher.Camera;
+import raymarcher.RayGenerator;
+import raymarcher.Scene;
+
+/**
+ * Renders frames by splitting them into tiles and handing the tiles out to
+ * {@link RenderWorker}s over sockets, so that frames can be rendered by more processes or
+ * machines than one JVM. The scene and the camera's rays are serialized once per frame
+ * and sent to every worker, after which only the edges of each tile are sent.
+ * <p>
+ * Each worker is only given as many tiles as it can render at once, and is given another
+ * tile each time it sends one back, so faster workers render more of each frame. If a
+ * worker disconnects, or doesn't send a tile back within the {@link #setTimeout(int)
+ * timeout}, it is dropped and its tiles are given to the other workers. The throughput of
+ * each worker is kept in its {@link #getStatistics() statistics}.
+ */
+public class RenderCoordinator implements Closeable {
+
+    /** The default number of pixels along each edge of a tile */
+    public static final int DEFAULT_TILE_SIZE = 32;
+    /** The default time, in milliseconds, a worker has to send back a tile before it is dropped */
+    public static final int DEFAULT_TIMEOUT = 30000;
+
+    /** The time, in milliseconds, between checks of whether a waiting worker timed out */
+    private static final int POLL_INTERVAL = 250;
+
+    /** Every worker connected to, including the ones which were dropped */
+    private final ArrayList<Connection> connections;
+    /** The tiles of the current frame which aren't being rendered by any worker */
+    private final ArrayDeque<int[]> pending;
+    /** The number of pixels along each edge of a tile */
+    private int tileSize;
+    /** The time, in milliseconds, a worker has to send back a tile before it is dropped */
+    private int timeout;
+    /** The id of the current or last frame's job */
+    private int jobId;
+    /** The serialized job of the current frame, or null if no frame is being rendered */
+    private byte[] job;
+    /** The pixels of the current frame */
+    private int[] pixels;
+    /** The amount of pixels wide the current frame is */
+    private int width;
+    /** The number of tiles of the current frame which haven't been sent back yet */
+    private int remaining;
+    /** Whether or not the coordinator was closed */
+    private boolean closed;
+
+    /**
+     * Creates a coordinator without any workers
+     */
+    public RenderCoordinator() {
+        this.connections = new ArrayList<Connection>();
+        this.pending = new ArrayDeque<int[]>();
+        this.tileSize = DEFAULT_TILE_SIZE;
+        this.timeout = DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Creates a coordinator and connects it to workers
+     * @param workers The addresses of the workers
+     * @throws IOException If a worker couldn't be connected to
+     */
+    public RenderCoordinator(List<InetSocketAddress> workers) throws IOException {
+        this();
+        try {
+            for (InetSocketAddress worker : workers)
+                addWorker(worker);
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to a worker, which starts rendering tiles of the current frame if there is one
+     * @param address The address of the worker
+     * @throws IOException If the worker couldn't be connected to
+     */
+    public synchronized void addWorker(InetSocketAddress address) throws IOException {
+        if (closed)
+            throw new IOException("The coordinator is closed");
+
+        Connection connection = new Connection(address);
+        connections.add(connection);
+        connection.start();
+
+        if (job != null) {
+            connection.sendJob();
+            dispatch();
+        }
+    }
+
+    /**
+     * @return The number of workers which are still connected
+     */
+    public synchronized int getWorkerCount() {
+        int count = 0;
+        for (Connection connection : connections) {
+            if (connection.alive)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of pixels along each edge of a tile
+     */
+    public synchronized int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the size of the tiles frames are split into. Smaller tiles spread the frame
+     * more evenly between workers, but take more messages to send.
+     * @param tileSize The number of pixels along each edge of a tile
+     */
+    public synchronized void setTileSize(int tileSize) {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("The tile size must be >= 1");
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @return The time, in milliseconds, a worker has to send back a tile before it is dropped
+     */
+    public synchronized int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets how long a worker with tiles to render may go without sending one back before it
+     * is dropped and its tiles are given to the other workers
+     * @param timeout The time, in milliseconds, a worker has to send back a tile
+     */
+    public synchronized void setTimeout(int timeout) {
+        if (timeout < 1)
+            throw new IllegalArgumentException("The timeout must be >= 1");
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The statistics of every worker connected to, including the ones which were
+     * dropped, in the order they were added
+     */
+    public synchronized List<WorkerStatistics> getStatistics() {
+        ArrayList<WorkerStatistics> statistics = new ArrayList<WorkerStatistics>();
+        for (Connection connection : connections) {
+            statistics.add(new WorkerStatistics(connection.address.toString(), connection.capacity,
+                connection.tileCount, connection.pixelCount, connection.renderTime, connection.frameTime,
+                connection.lostTiles, connection.alive));
+        }
+        return statistics;
+    }
+
+    /**
+     * Renders a frame of a camera's scene on the workers
+     * @param camera The camera to render the current rays of
+     * @param pixels The array to write the frame's pixel color values to, in the order of
+     * left to right for each row, from top to bottom
+     * @throws IOException If the scene couldn't be serialized, or every worker was dropped
+     * before the frame was done
+     */
+    public void render(Camera camera, int[] pixels) throws IOException {
+        render(camera.getScene(), camera.getRayGenerator(), pixels);
+    }
+
+    /**
+     * Renders a frame of a scene on the workers, blocking until every tile is sent back
+     * @param scene The scene to render
+     * @param rays The generator of the frame's rays
+     * @param pixels The array to write the frame's pixel color values to, in the order of
+     * left to right for each row, from top to bottom
+     * @throws IOException If the scene couldn't be serialized, or every worker was dropped
+     * before the frame was done
+     */
+    public synchronized void render(Scene scene, RayGenerator rays, int[] pixels) throws IOException {
+        if (closed)
+            throw new IOException("The coordinator is closed");
+
+        this.job = new RenderJob(scene, rays).toBytes();
+        this.jobId++;
+        this.pixels = pixels;
+        this.width = rays.getScreenWidth();
+
+        //tiles are given out from the top of the frame down
+        int height = rays.getScreenHeight();
+        int tileCount = 0;
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize)
+                pending.add(new int[] {tileCount++, x, y, Math.min(x + tileSize, width), Math.min(y + tileSize, height)});
+        }
+        remaining = tileCount;
+
+        try {
+            for (Connection connection : connections) {
+                if (connection.alive)
+                    connection.sendJob();
+            }
+            dispatch();
+
+            while (remaining > 0) {
+                if (getWorkerCount() == 0)
+                    throw new IOException("Every render worker was dropped with " + remaining + " tiles left");
+                wait();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering");
+        }
+        finally {
+            //tiles still sent back for this frame are ignored
+            long now = System.nanoTime();
+            for (Connection connection : connections)
+                connection.endJob(now);
+            this.job = null;
+            this.pixels = null;
+            pending.clear();
+        }
+    }
+
+    /**
+     * Disconnects from every worker
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Connection connection : connections)
+            connection.close();
+        notifyAll();
+    }
+
+    /**
+     * Gives pending tiles to every worker with room for more, until there are no more
+     * tiles or room. Must be called while holding the coordinator's lock.
+     */
+    private void dispatch() {
+        boolean dropped = true;
+        while (dropped && !pending.isEmpty()) {
+            dropped = false;
+            for (Connection connection : connections) {
+                while (connection.alive && connection.tiles.size() < connection.capacity && !pending.isEmpty()) {
+                    int[] tile = pending.poll();
+                    try {
+                        connection.sendTile(tile);
+                    }
+                    catch (IOException e) {
+                        //the tile goes back with the worker's others, to be given to the workers before it
+                        pending.addFirst(tile);
+                        drop(connection);
+                        dropped = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a worker, giving the tiles it was rendering back to the other workers. Must be
+     * called while holding the coordinator's lock.
+     * @param connection The worker's connection
+     */
+    private void drop(Connection connection) {
+        if (!connection.alive)
+            return;
+        connection.close();
+
+        //the lost tiles are the oldest ones, so they go first
+        connection.lostTiles += connection.tiles.size();
+        for (int[] tile : connection.tiles.values())
+            pending.addFirst(tile);
+        connection.endJob(System.nanoTime());
+
+        if (job != null)
+            dispatch();
+        notifyAll();
+    }
+
+    /**
+     * Places a tile sent back by a worker into the current frame, and gives the worker
+     * another tile. Must be called while holding the coordinator's lock.
+     * @param connection The worker's connection
+     * @param tileJob The id of the tile's job
+     * @param tileId The id of the tile
+     * @param renderTime The time, in nanoseconds, the worker took to render the tile
+     * @param tilePixels The tile's pixels
+     * @throws IOException If the tile isn't the size it was sent as
+     */
+    private void receive(Connection connection, int tileJob, int tileId, long renderTime, IntBuffer tilePixels)
+        throws IOException {
+
+        if (tileJob != jobId || job == null)
+            return;
+        int[] tile = connection.tiles.remove(tileId);
+        if (tile == null)
+            return;
+
+        int tileWidth = tile[3] - tile[1];
+        int tileHeight = tile[4] - tile[2];
+        if (tilePixels.remaining() != tileWidth * tileHeight)
+            throw new IOException("Tile " + tileId + " is the wrong size");
+        for (int row = 0; row < tileHeight; row++)
+            tilePixels.get(pixels, (tile[2] + row) * width + tile[1], tileWidth);
+
+        connection.tileCount++;
+        connection.pixelCount += tileWidth * tileHeight;
+        connection.renderTime += renderTime;
+        connection.lastProgress = System.nanoTime();
+        remaining--;
+
+        dispatch();
+        notifyAll();
+    }
+
+    /**
+     * The connection to a worker, which reads the tiles it sends back on its own thread
+     */
+    private class Connection implements Runnable {
+
+        /** The address of the worker */
+        private final InetSocketAddress address;
+        /** The connection to the worker */
+        private final Socket socket;
+        /** The stream from the worker */
+        private final DataInputStream input;
+        /** The stream to the worker */
+        private final DataOutputStream output;
+        /** The most tiles the worker renders at once */
+        private final int capacity;
+        /** The tiles the worker is rendering, by their ids */
+        private final HashMap<Integer, int[]> tiles;
+        /** Whether or not the worker is still connected */
+        private boolean alive;
+        /** The time, in nanoseconds, the worker last sent back or was given a tile while it had none */
+        private long lastProgress;
+        /** The time, in nanoseconds, the worker started rendering the current frame, or -1 if it isn't */
+        private long jobStart;
+        /** The number of tiles the worker rendered */
+        private long tileCount;
+        /** The number of pixels the worker rendered */
+        private long pixelCount;
+        /** The total time, in nanoseconds, the worker reported spending on rendering tiles */
+        private long renderTime;
+        /** The total time, in nanoseconds, of the frames the worker took part in */
+        private long frameTime;
+        /** The number of tiles the worker was sent but lost */
+        private long lostTiles;
+
+        /**
+         * Connects to a worker
+         * @param address The address of the worker
+         * @throws IOException If the worker couldn't be connected to, or isn't a render worker
+         */
+        private Connection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket();
+            this.tiles = new HashMap<Integer, int[]>();
+            this.jobStart = -1;
+
+            try {
+                socket.connect(address, timeout);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeout);
+                input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+                if (input.readInt() != Protocol.MAGIC)
+                    throw new IOException("Not a render worker: " + address);
+                int version = input.readInt();
+                if (version != Protocol.VERSION)
+                    throw new IOException("Render worker " + address + " uses version " + version);
+                capacity = input.readInt();
+                if (capacity < 1)
+                    throw new IOException("Render worker " + address + " can't render any tiles");
+            }
+            catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.alive = true;
+        }
+
+        /**
+         * Starts reading the tiles the worker sends back
+         */
+        private void start() {
+            Thread thread = new Thread(this, "RenderCoordinator-" + address);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Sends the current frame's job to the worker
+         */
+        private void sendJob() {
+            try {
+                output.writeByte(Protocol.JOB);
+                output.writeInt(jobId);
+                output.writeInt(job.length);
+                output.write(job);
+                output.flush();
+                jobStart = System.nanoTime();
+            }
+            catch (IOException e) {
+                drop(this);
+            }
+        }
+
+        /**
+         * Sends a tile of the current frame to the worker
+         * @param tile The tile's id, then its left, top, right and bottom edges
+         * @throws IOException If the tile couldn't be sent
+         */
+        private void sendTile(int[] tile) throws IOException {
+            output.writeByte(Protocol.TILE);
+            output.writeInt(jobId);
+            for (int value : tile)
+                output.writeInt(value);
+            output.flush();
+
+            if (tiles.isEmpty())
+                lastProgress = System.nanoTime();
+            tiles.put(tile[0], tile);
+        }
+
+        /**
+         * Stops counting the time of the current frame, and forgets the tiles of it the
+         * worker is rendering
+         * @param now The current time, in nanoseconds
+         */
+        private void endJob(long now) {
+            if (jobStart >= 0)
+                frameTime += now - jobStart;
+            jobStart = -1;
+            tiles.clear();
+        }
+
+        /**
+         * Disconnects from the worker
+         */
+        private void close() {
+            alive = false;
+            try {
+                socket.close();
+            }
+            catch (IOException ignored) {}
+        }
+
+        /**
+         * Reads the tiles the worker sends back until it is dropped
+         */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    //wait for the next tile, checking whether the worker is taking too long
+                    int type;
+                    socket.setSoTimeout(POLL_INTERVAL);
+                    try {
+                        type = input.read();
+                    }
+                    catch (SocketTimeoutException e) {
+                        synchronized (RenderCoordinator.this) {
+                            if (!alive)
+                                return;
+                            if (!tiles.isEmpty() && System.nanoTime() - lastProgress > timeout * 1000000L)
+                                throw new IOException("Render worker " + address + " timed out");
+                        }
+                        continue;
+                    }
+                    if (type < 0)
+                        throw new EOFException("Render worker " + address + " disconnected");
+                    if (type != Protocol.RESULT)
+                        throw new IOException("Unknown message " + type);
+
+                    //the rest of the tile must arrive within the timeout
+                    socket.setSoTimeout(timeout);
+                    int tileJob = input.readInt();
+                    int tileId = input.readInt();
+                    long renderTime = input.readLong();
+                    int count = input.readInt();
+                    if (count < 0 || count > Integer.MAX_VALUE / Integer.BYTES)
+                        throw new IOException("Invalid tile size " + count);
+                    byte[] bytes = new byte[count * Integer.BYTES];
+                    input.readFully(bytes);
+
+                    synchronized (RenderCoordinator.this) {
+                        receive(this, tileJob, tileId, renderTime, ByteBuffer.wrap(bytes).asIntBuffer());
+                    }
+                }
+            }
+            catch (IOException e) {
+                synchronized (RenderCoordinator.this) {
+                    drop(this);
+                }
+            }
+        }
+    }
+}
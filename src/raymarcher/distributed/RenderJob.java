@@ -0,0 +1,137 @@
+package raymarcher.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import raymarcher.Light;
+import raymarcher.MarchStrategy;
+import raymarcher.Mesh;
+import raymarcher.RayGenerator;
+import raymarcher.Scene;
+
+/**
+ * Everything a render worker needs to render tiles of a frame: the state of the scene
+ * and the rays of the camera when the frame was started. A job is serialized once per
+ * frame by the coordinator and sent to every worker.
+ * <p>
+ * Jobs are only deserialized into the classes of the raymarcher's packages, lists and
+ * colors, so a connection can't make a worker create objects of any other class on its
+ * classpath.
+ */
+class RenderJob implements Serializable {
+
+    /** Default Serial Version ID for Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The classes a job may be deserialized into, along with how deeply its objects may
+     * nest, which allows for deep trees of mesh groups, and how long its arrays may be,
+     * which allows for scenes of millions of meshes
+     */
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=1000;maxarray=16777216;raymarcher.**;java.util.ArrayList;java.lang.Object;java.awt.Color;!*");
+
+    /** The meshes of the scene */
+    private final ArrayList<Mesh> meshes;
+    /** The background color of the world */
+    private final int worldColor;
+    /** The lights of the scene */
+    private final ArrayList<Light> lights;
+    /** The amount of each mesh's color shown where no light reaches it */
+    private final double ambientLight;
+    /** The intensity of the highlights lights make on the meshes */
+    private final double specularStrength;
+    /** How sharp the highlights lights make on the meshes are */
+    private final double shininess;
+    /** The way rays are marched through the scene */
+    private final MarchStrategy marchStrategy;
+    /** Whether the scene's meshes are compiled into instruction tapes */
+    private final boolean compiled;
+    /** Whether the scene's SDF is generated as a class specialized to its meshes */
+    private final boolean specialized;
+    /** The generator of the frame's rays */
+    private final RayGenerator rays;
+
+    /**
+     * Creates a job for rendering a frame of a scene
+     * @param scene The scene to render
+     * @param rays The generator of the frame's rays
+     */
+    RenderJob(Scene scene, RayGenerator rays) {
+        this.meshes = new ArrayList<Mesh>(scene.getMeshes());
+        this.worldColor = scene.getWorldColor();
+        this.lights = new ArrayList<Light>(scene.getLights());
+        this.ambientLight = scene.getAmbientLight();
+        this.specularStrength = scene.getSpecularStrength();
+        this.shininess = scene.getShininess();
+        this.marchStrategy = scene.getMarchStrategy();
+        this.compiled = scene.isCompiled();
+        this.specialized = scene.isSpecialized();
+        this.rays = rays;
+    }
+
+    /**
+     * Creates a copy of the scene the job was made from, ready to be rendered
+     * @return The scene
+     */
+    Scene createScene() {
+        Scene scene = new Scene();
+        scene.setMeshes(meshes);
+        scene.setWorldColor(worldColor);
+        scene.setLights(lights);
+        scene.setAmbientLight(ambientLight);
+        scene.setSpecularStrength(specularStrength);
+        scene.setShininess(shininess);
+        scene.setMarchStrategy(marchStrategy);
+        scene.setCompiled(compiled);
+        scene.setSpecialized(specialized);
+        scene.updateHierarchy();
+        return scene;
+    }
+
+    /**
+     * @return The generator of the frame's rays
+     */
+    RayGenerator getRays() {
+        return rays;
+    }
+
+    /**
+     * Serializes the job
+     * @return The serialized job
+     * @throws IOException If a mesh or the march strategy couldn't be serialized, or the
+     * job is longer than workers accept
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(this);
+        }
+        if (bytes.size() > Protocol.MAX_JOB_LENGTH)
+            throw new IOException("The render job is " + bytes.size() + " bytes, which is longer than workers accept");
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a job
+     * @param bytes The serialized job
+     * @return The job
+     * @throws IOException If the job couldn't be deserialized, or contains a class a job
+     * may not contain
+     */
+    static RenderJob fromBytes(byte[] bytes) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            input.setObjectInputFilter(FILTER);
+            return (RenderJob) input.readObject();
+        }
+        catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid render job", e);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package raymarcher.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import raymarcher.RayGenerator;
+import raymarcher.RayHit;
+import raymarcher.Scene;
+import raymarcher.Shading;
+
+/**
+ * A process which renders tiles of frames for a {@link RenderCoordinator}. The worker
+ * listens on a port for coordinators, and renders the tiles each coordinator sends it on
+ * a pool of threads, sending each tile back as soon as it is done.
+ * <p>
+ * A worker can be started in its own JVM with
+ * <pre>
+ * java -cp raymarcher.jar raymarcher.distributed.RenderWorker [port] [threads]
+ * </pre>
+ * Scenes are sent to workers with Java serialization, so a worker must only accept
+ * coordinators it trusts. It only listens on the loopback address unless another
+ * address is given. Jobs are only deserialized into the classes of the raymarcher's
+ * packages, lists and colors, so any custom meshes, lights or march strategies must be
+ * in a package under {@code raymarcher} and on the worker's classpath.
+ */
+public class RenderWorker implements Closeable {
+
+    /** The default port workers listen on */
+    public static final int DEFAULT_PORT = 7420;
+
+    /** The socket coordinators connect to */
+    private final ServerSocket server;
+    /** The threads tiles are rendered on */
+    private final ExecutorService pool;
+    /** The number of threads tiles are rendered on */
+    private final int threadCount;
+    /** The connections of the coordinators being served */
+    private final Set<Socket> connections;
+
+    /**
+     * Creates a worker listening on the loopback address, which renders on a thread per
+     * available processor
+     * @param port The port to listen on, or 0 to use any free port
+     * @throws IOException If the port couldn't be listened on
+     */
+    public RenderWorker(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a worker
+     * @param address The address to listen on
+     * @param port The port to listen on, or 0 to use any free port
+     * @param threadCount The number of threads to render tiles on
+     * @throws IOException If the port couldn't be listened on
+     */
+    public RenderWorker(InetAddress address, int port, int threadCount) throws IOException {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("The thread count must be >= 1");
+
+        this.server = new ServerSocket();
+        this.server.bind(new InetSocketAddress(address, port));
+        this.threadCount = threadCount;
+        this.pool = Executors.newFixedThreadPool(threadCount, daemonThreads("RenderWorker"));
+        this.connections = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * @return The port the worker listens on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return The number of threads tiles are rendered on
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Accepts coordinators until the worker is closed, serving each on its own thread
+     * @throws IOException If the worker stopped listening other than by being closed
+     */
+    public void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            }
+            catch (SocketException e) {
+                if (server.isClosed())
+                    return;
+                throw e;
+            }
+
+            //a coordinator accepted as the worker closes must be closed here
+            connections.add(socket);
+            if (server.isClosed()) {
+                closeQuietly(socket);
+                return;
+            }
+
+            Thread thread = new Thread(() -> serve(socket), "RenderWorker-" + socket.getRemoteSocketAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Starts accepting coordinators on a background thread
+     */
+    public void start() {
+        Thread thread = new Thread(() -> {
+            try {
+                serve();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "RenderWorker-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops listening for coordinators and rendering tiles, closing the connection of each
+     * coordinator so that it reassigns the tiles it is waiting for right away
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections)
+            closeQuietly(socket);
+        pool.shutdownNow();
+    }
+
+    /**
+     * Reads the messages of a coordinator until it disconnects, rendering each tile it sends
+     * @param socket The coordinator's connection
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+            //each thread can render a tile while another waits to be sent
+            output.writeInt(Protocol.MAGIC);
+            output.writeInt(Protocol.VERSION);
+            output.writeInt(threadCount * 2);
+            output.flush();
+
+            int jobId = -1;
+            Scene scene = null;
+            RayGenerator rays = null;
+            while (true) {
+                int type = input.read();
+                if (type < 0)
+                    return;
+
+                if (type == Protocol.JOB) {
+                    jobId = input.readInt();
+                    int length = input.readInt();
+                    if (length < 0 || length > Protocol.MAX_JOB_LENGTH)
+                        throw new IOException("Invalid job length " + length);
+                    byte[] bytes = new byte[length];
+                    input.readFully(bytes);
+                    RenderJob job = RenderJob.fromBytes(bytes);
+                    scene = job.createScene();
+                    rays = job.getRays();
+                }
+                else if (type == Protocol.TILE) {
+                    int tileJob = input.readInt();
+                    int tileId = input.readInt();
+                    int[] tile = {input.readInt(), input.readInt(), input.readInt(), input.readInt()};
+                    if (rays == null || tileJob != jobId)
+                        throw new IOException("Tile of unknown job " + tileJob);
+                    if (tile[0] < 0 || tile[1] < 0 || tile[0] > tile[2] || tile[1] > tile[3]
+                        || tile[2] > rays.getScreenWidth() || tile[3] > rays.getScreenHeight())
+                        throw new IOException("Tile out of the frame");
+
+                    Scene tileScene = scene;
+                    RayGenerator tileRays = rays;
+                    try {
+                        pool.execute(() -> renderTile(tileScene, tileRays, tileJob, tileId, tile, socket, output));
+                    }
+                    catch (RejectedExecutionException e) {
+                        return;
+                    }
+                }
+                else {
+                    throw new IOException("Unknown message " + type);
+                }
+            }
+        }
+        catch (IOException e) {
+            //the coordinator reassigns the tiles of a worker it loses
+            System.err.println("Render worker lost coordinator " + socket.getRemoteSocketAddress() + ": " + e);
+        }
+        finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Renders a tile and sends it to the coordinator
+     * @param scene The scene to render
+     * @param rays The generator of the frame's rays
+     * @param jobId The id of the tile's job
+     * @param tileId The id of the tile
+     * @param tile The left, top, right and bottom edges of the tile, where the right and
+     * bottom edges are exclusive
+     * @param socket The coordinator's connection, which is closed if the tile can't be sent
+     * @param output The stream to the coordinator
+     */
+    private static void renderTile(Scene scene, RayGenerator rays, int jobId, int tileId, int[] tile, Socket socket,
+        DataOutputStream output) {
+
+        long start = System.nanoTime();
+        int width = tile[2] - tile[0];
+        int height = tile[3] - tile[1];
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * Integer.BYTES);
+        RayHit hit = new RayHit();
+        Shading shading = scene.getLights().isEmpty() ? null : new Shading(scene, rays);
+        for (int row = tile[1]; row < tile[3]; row++) {
+            for (int column = tile[0]; column < tile[2]; column++) {
+                rays.march(scene, column, row, 0, null, hit);
+
+                //shade from the depth as a G-buffer keeps it, to match frames rendered locally
+                if (shading == null)
+                    pixels.putInt(hit.getColor(scene));
+                else
+                    pixels.putInt(shading.shade(column, row, (float) hit.getDistance(), hit.getMeshIndex()));
+            }
+        }
+        long time = System.nanoTime() - start;
+
+        try {
+            synchronized (output) {
+                output.writeByte(Protocol.RESULT);
+                output.writeInt(jobId);
+                output.writeInt(tileId);
+                output.writeLong(time);
+                output.writeInt(width * height);
+                output.write(pixels.array());
+                output.flush();
+            }
+        }
+        catch (IOException e) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Closes a coordinator's connection, ignoring any error since it is being dropped
+     * @param socket The connection to close
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException ignored) {}
+    }
+
+    /**
+     * Creates a factory of daemon threads, so that workers never keep a JVM alive
+     * @param name The name of the threads
+     * @return The thread factory
+     */
+    static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Starts a worker and serves coordinators until the process is stopped
+     * @param args The port to listen on, which is {@link #DEFAULT_PORT} by default, and
+     * the number of threads to render on, which is the number of available processors by
+     * default
+     * @throws IOException If the port couldn't be listened on
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        try (RenderWorker worker = new RenderWorker(InetAddress.getLoopbackAddress(), port, threads)) {
+            System.out.println("Render worker listening on port " + worker.getPort() + " with " + threads
+                + " threads");
+            worker.serve();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package raymarcher.distributed;
+
+/**
+ * The statistics of how much a render worker has rendered for a {@link RenderCoordinator},
+ * since the coordinator connected to it. Worker statistics are immutable.
+ */
+public class WorkerStatistics {
+
+    /** The address of the worker */
+    private final String address;
+    /** The most tiles the worker renders at once */
+    private final int capacity;
+    /** The number of tiles the worker rendered */
+    private final long tiles;
+    /** The number of pixels the worker rendered */
+    private final long pixels;
+    /** The total time, in nanoseconds, the worker reported spending on rendering tiles */
+    private final long renderTime;
+    /** The total time, in nanoseconds, of the frames the worker took part in */
+    private final long frameTime;
+    /** The number of tiles the worker was sent but lost, which were given to other workers */
+    private final long lostTiles;
+    /** Whether or not the worker is still connected */
+    private final boolean alive;
+
+    /**
+     * Creates the statistics of a worker
+     * @param address The address of the worker
+     * @param capacity The most tiles the worker renders at once
+     * @param tiles The number of tiles the worker rendered
+     * @param pixels The number of pixels the worker rendered
+     * @param renderTime The total time, in nanoseconds, the worker reported spending on rendering tiles
+     * @param frameTime The total time, in nanoseconds, of the frames the worker took part in
+     * @param lostTiles The number of tiles the worker was sent but lost
+     * @param alive Whether or not the worker is still connected
+     */
+    public WorkerStatistics(String address, int capacity, long tiles, long pixels, long renderTime, long frameTime,
+        long lostTiles, boolean alive) {
+        this.address = address;
+        this.capacity = capacity;
+        this.tiles = tiles;
+        this.pixels = pixels;
+        this.renderTime = renderTime;
+        this.frameTime = frameTime;
+        this.lostTiles = lostTiles;
+        this.alive = alive;
+    }
+
+    /**
+     * @return The address of the worker
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return The most tiles the worker renders at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of tiles the worker rendered
+     */
+    public long getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return The number of pixels the worker rendered
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return The total time, in nanoseconds, the worker reported spending on rendering
+     * tiles, summed over all of its threads
+     */
+    public long getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * @return The total time, in nanoseconds, of the frames the worker took part in
+     */
+    public long getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * @return The number of tiles the worker was sent but lost, which were given to
+     * other workers
+     */
+    public long getLostTiles() {
+        return lostTiles;
+    }
+
+    /**
+     * @return Whether or not the worker is still connected
+     */
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * @return The number of pixels the worker rendered per second of the frames it took
+     * part in, which is its share of the coordinator's throughput
+     */
+    public double getPixelsPerSecond() {
+        return frameTime == 0 ? 0 : pixels * 1e9 / frameTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d tiles, %d pixels, %.0f pixels/s, %d lost tiles%s", address, tiles, pixels,
+            getPixelsPerSecond(), lostTiles, alive ? "" : ", disconnected");
+    }
+}
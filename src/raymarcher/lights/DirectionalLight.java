@@ -0,0 +1,88 @@
+package raymarcher.lights;
+
+import java.awt.Color;
+
+import raymarcher.Light;
+import raymarcher.Vector3;
+
+/**
+ * An implementation of the Light interface for a light infinitely far away, such as the
+ * sun, which shines in the same direction and with the same intensity everywhere
+ */
+public class DirectionalLight implements Light {
+
+    /** Default Serial Version ID for Light */
+    private static final long serialVersionUID = 1L;
+
+    /**The unit vector of the direction the light shines in */
+    private Vector3 direction;
+    /**The intensity of the light */
+    private double intensity;
+    /**The color of the light */
+    private Color lightColor;
+
+    /**
+     * Create a directional light
+     * @param direction The direction the light shines in, which doesn't need to be a unit vector
+     * @param intensity The intensity of the light, where 1 lights a surface facing the
+     * light in its full color
+     * @param lightColor The color of the light
+     */
+    public DirectionalLight(Vector3 direction, double intensity, Color lightColor) {
+        this.direction = direction.getUnitVector();
+        this.intensity = intensity;
+        this.lightColor = lightColor;
+    }
+
+
+    /**
+     * @return the unit vector of the direction the light shines in
+     */
+    public Vector3 getDirection() {
+        return direction;
+    }
+
+    /**
+     * @param direction the new direction for the light to shine in, which doesn't need 
+     * to be a unit vector
+     */
+    public void setDirection(Vector3 direction) {
+        this.direction = direction.getUnitVector();
+    }
+
+    /**
+     * @return the intensity of the light
+     */
+    public double getIntensity() {
+        return intensity;
+    }
+
+    /**
+     * @param intensity the new intensity of the light
+     */
+    public void setIntensity(double intensity) {
+        this.intensity = intensity;
+    }
+
+    /**
+     * @param lightColor The new color to set the light to
+     */
+    public void setLightColor(Color lightColor) {
+        this.lightColor = lightColor;
+    }
+
+    @Override
+    public Color getLightColor() {
+        return lightColor;
+    }
+
+
+    @Override
+    public double illuminate(double x, double y, double z, double[] direction) {
+        direction[0] = -this.direction.getX();
+        direction[1] = -this.direction.getY();
+        direction[2] = -this.direction.getZ();
+        return intensity;
+    }
+
+}
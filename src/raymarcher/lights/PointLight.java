@@ -0,0 +1,95 @@
+package raymarcher.lights;
+
+import java.awt.Color;
+
+import raymarcher.Light;
+import raymarcher.Vector3;
+
+/**
+ * An implementation of the Light interface for a light shining from a point in all
+ * directions, such as a light bulb. Its intensity falls off with the square of the
+ * distance from it, so that it is half as bright at a distance of 1 and a hundredth 
+ * as bright at a distance of about 10.
+ */
+public class PointLight implements Light {
+
+    /** Default Serial Version ID for Light */
+    private static final long serialVersionUID = 1L;
+
+    /**The position of the light */
+    private Vector3 position;
+    /**The intensity of the light at its position */
+    private double intensity;
+    /**The color of the light */
+    private Color lightColor;
+
+    /**
+     * Create a point light
+     * @param position The position in 3D space to place the light
+     * @param intensity The intensity of the light at its position, where 1 lights a 
+     * surface facing the light in its full color
+     * @param lightColor The color of the light
+     */
+    public PointLight(Vector3 position, double intensity, Color lightColor) {
+        this.position = position;
+        this.intensity = intensity;
+        this.lightColor = lightColor;
+    }
+
+
+    /**
+     * @return the current position of the light
+     */
+    public Vector3 getPosition() {
+        return position;
+    }
+
+    /**
+     * @param position the new position of the light
+     */
+    public void setPosition(Vector3 position) {
+        this.position = position;
+    }
+
+    /**
+     * @return the intensity of the light at its position
+     */
+    public double getIntensity() {
+        return intensity;
+    }
+
+    /**
+     * @param intensity the new intensity of the light at its position
+     */
+    public void setIntensity(double intensity) {
+        this.intensity = intensity;
+    }
+
+    /**
+     * @param lightColor The new color to set the light to
+     */
+    public void setLightColor(Color lightColor) {
+        this.lightColor = lightColor;
+    }
+
+    @Override
+    public Color getLightColor() {
+        return lightColor;
+    }
+
+
+    @Override
+    public double illuminate(double x, double y, double z, double[] direction) {
+        double dx = position.getX() - x;
+        double dy = position.getY() - y;
+        double dz = position.getZ() - z;
+        double squaredDistance = dx * dx + dy * dy + dz * dz;
+        double inverseLength = squaredDistance > 0 ? 1 / Math.sqrt(squaredDistance) : 0;
+
+        direction[0] = dx * inverseLength;
+        direction[1] = dy * inverseLength;
+        direction[2] = dz * inverseLength;
+        return intensity / (1 + squaredDistance);
+    }
+
+}
@@ -0,0 +1,337 @@
+package raymarcher.marching;
+
+import java.awt.Color;
+import java.util.ArrayList;
+
+import raymarcher.AnalyticMesh;
+import raymarcher.BoundingBox;
+import raymarcher.BoundingVolumeHierarchy;
+import raymarcher.MarchStrategy;
+import raymarcher.Mesh;
+import raymarcher.MeshGroup;
+import raymarcher.RayHit;
+import raymarcher.RenderStatistics;
+import raymarcher.Scene;
+import raymarcher.SceneCompiler;
+import raymarcher.Vector3;
+
+/**
+ * An implementation of the MarchStrategy interface that solves for the hits of each ray
+ * with the scene's {@link AnalyticMesh analytic meshes}, and the unions of them, directly,
+ * and only sphere traces the rest of the scene, such as other MeshGroups and custom 
+ * meshes. In a scene of only analytic meshes, every ray is answered in a single step, 
+ * however close it passes by their surfaces. Otherwise, the other meshes are marched up
+ * to the closest analytic hit, without the analytic meshes slowing the march down.
+ * <p>
+ * The analytic mesh a ray hits is the one it first comes within epsilon of, as marching
+ * would find it. The hit with that mesh alone is then solved for on its surface and placed
+ * about where marching would have stopped short of it, which depends on the angle the ray meets
+ * the surface at. Rays which only graze a mesh, coming within epsilon of it without 
+ * reaching its surface, hit it just after first coming within epsilon, as marching would.
+ * The hits are within epsilon of where marching stops, other than for the few rays which
+ * skim along within epsilon of a surface for a long way, where marching stops sooner, and
+ * the few grazing rays which marching steps past without coming within epsilon.
+ * The meshes are split into two hierarchies whenever the scene's hierarchy is rebuilt,
+ * and the marched meshes are compiled if the scene is compiled.
+ */
+public class AnalyticTracing implements MarchStrategy {
+
+    /** Default Serial Version ID for MarchStrategy */
+    private static final long serialVersionUID = 1L;
+
+    /** The split of the meshes of the scene last marched, or null if none was marched yet */
+    private transient volatile Split split;
+
+    @Override
+    public void march(Scene scene, double x, double y, double z, double dx, double dy, double dz,
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result) {
+
+        Split current = getSplit(scene);
+        int steps = 0;
+
+        //the analytic meshes are hit in a single step
+        double limit = renderDistance;
+        int analyticMesh = -1;
+        if (current.analytic != null) {
+            steps++;
+            if (current.analytic.intersect(x, y, z, dx, dy, dz, epsilon, renderDistance, statistics, result)) {
+                int index = result.getMeshIndex();
+                limit = place(current.analyticMeshes[index], x, y, z, dx, dy, dz, result.getDistance(), epsilon);
+                analyticMesh = current.analyticIndices[index];
+            }
+        }
+
+        //march the other meshes up to the analytic hit
+        double distToScene = epsilon + 1;
+        double distTraveled = 0;
+        double marchX = x, marchY = y, marchZ = z;
+        if (current.marched != null) {
+
+            //jump ahead to the starting distance, unless it lands on or inside a mesh
+            if (startDistance > 0) {
+                double startX = x + dx * startDistance;
+                double startY = y + dy * startDistance;
+                double startZ = z + dz * startDistance;
+                double startDist = current.marched.sdf(startX, startY, startZ, statistics);
+                steps++;
+
+                if (startDist > epsilon) {
+                    distToScene = startDist;
+                    distTraveled = startDistance + distToScene;
+                    marchX = startX + dx * distToScene;
+                    marchY = startY + dy * distToScene;
+                    marchZ = startZ + dz * distToScene;
+                }
+            }
+
+            while (distToScene > epsilon && distTraveled < limit) {
+                distToScene = current.marched.sdf(marchX, marchY, marchZ, statistics);
+                distTraveled += distToScene;
+                steps++;
+
+                marchX += dx * distToScene;
+                marchY += dy * distToScene;
+                marchZ += dz * distToScene;
+            }
+        }
+
+        //see if hit a marched mesh, an analytic mesh or nothing
+        boolean marchedHit = distToScene <= epsilon && distTraveled < limit;
+        boolean hit = marchedHit || analyticMesh >= 0;
+        if (statistics != null)
+            statistics.recordRay(steps, hit, !hit);
+
+        if (marchedHit) {
+            int mesh = current.marchedIndices[current.marched.nearest(marchX, marchY, marchZ)];
+            result.set(true, distTraveled, steps, mesh, marchX, marchY, marchZ);
+        }
+        else if (analyticMesh >= 0) {
+            result.set(true, limit, steps, analyticMesh, x + dx * limit, y + dy * limit, z + dz * limit);
+        }
+        else {
+            double distance = Math.max(distTraveled, renderDistance);
+            result.set(false, distance, steps, -1, x + dx * distance, y + dy * distance, z + dz * distance);
+        }
+    }
+
+    /**
+     * Places the hit of a ray with an analytic mesh about where sphere tracing would stop.
+     * <p>
+     * Marching takes one more step once it comes within epsilon of a mesh, so a ray which
+     * goes on to reach the surface stops between the point it came within epsilon and the
+     * surface. The steps toward a surface shrink by the cosine of the angle between the
+     * ray and the surface's normal, so head-on rays stop almost on the surface and glancing
+     * rays stop further short of it. How far short was fitted to where sphere tracing 
+     * stops on spheres, boxes and tori over a range of angles, as
+     * <pre>
+     * epsilon * (1 - cos) * (2 - cos) / (2 * cos)
+     * </pre>
+     * but the hit is kept between the surface and an epsilon past where the ray came 
+     * within epsilon, where marching stops at the latest. A ray which only grazes the 
+     * mesh, leaving its epsilon again or never reaching its surface, stops an epsilon past
+     * where it came within epsilon, as its last step is about that long.
+     * @param mesh The mesh the ray hit
+     * @param x The x-coordinate of the ray's starting position
+     * @param y The y-coordinate of the ray's starting position
+     * @param z The z-coordinate of the ray's starting position
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param near The distance along the ray to where it first comes within epsilon of the mesh
+     * @param epsilon The distance from the mesh's surface which counts as a hit
+     * @return The distance along the ray to place the hit at
+     */
+    private static double place(AnalyticMesh mesh, double x, double y, double z, double dx, double dy, double dz,
+        double near, double epsilon) {
+
+        if (near == 0 || epsilon <= 0)
+            return near;
+
+        double nearX = x + dx * near, nearY = y + dy * near, nearZ = z + dz * near;
+        double surface = mesh.intersect(nearX, nearY, nearZ, dx, dy, dz, 0, Double.POSITIVE_INFINITY);
+        if (surface == Double.POSITIVE_INFINITY)
+            return near + epsilon;
+
+        //a ray which leaves epsilon again before reaching the surface only grazed the mesh
+        double half = surface / 2;
+        if (surface > epsilon && mesh.sdf(nearX + dx * half, nearY + dy * half, nearZ + dz * half) > epsilon)
+            return near + epsilon;
+
+        //the cosine of the angle the ray meets the surface at, from the SDF's gradient there
+        double hit = near + surface;
+        double hitX = x + dx * hit, hitY = y + dy * hit, hitZ = z + dz * hit;
+        double normalX = mesh.sdf(hitX + epsilon, hitY, hitZ) - mesh.sdf(hitX - epsilon, hitY, hitZ);
+        double normalY = mesh.sdf(hitX, hitY + epsilon, hitZ) - mesh.sdf(hitX, hitY - epsilon, hitZ);
+        double normalZ = mesh.sdf(hitX, hitY, hitZ + epsilon) - mesh.sdf(hitX, hitY, hitZ - epsilon);
+        double length = Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+        double cosine = length > 0 ? -(normalX * dx + normalY * dy + normalZ * dz) / length : 1;
+        if (cosine <= 0)
+            return Math.min(near + epsilon, hit);
+        double shortfall = epsilon * (1 - cosine) * (2 - cosine) / (2 * cosine);
+        return Math.max(Math.min(near + epsilon, hit), hit - shortfall);
+    }
+
+    /**
+     * Gives the split of a scene's meshes, splitting them again if the scene's hierarchy
+     * was rebuilt since they were last split
+     * @param scene The scene being marched
+     * @return The split of the scene's meshes
+     */
+    private Split getSplit(Scene scene) {
+        BoundingVolumeHierarchy hierarchy = scene.getHierarchy();
+        Split current = split;
+        if (current == null || current.scene != scene || current.hierarchy != hierarchy) {
+            current = new Split(scene, hierarchy);
+            split = current;
+        }
+        return current;
+    }
+
+    /**
+     * The meshes of a scene split into those which are intersected and those which are
+     * marched, each in their own hierarchy
+     */
+    private static class Split {
+
+        /** The scene whose meshes were split */
+        private final Scene scene;
+        /** The scene's hierarchy when its meshes were split */
+        private final BoundingVolumeHierarchy hierarchy;
+        /** The hierarchy of the analytic meshes, or null if there are none */
+        private final BoundingVolumeHierarchy analytic;
+        /** The analytic meshes, in the order the hierarchy of them was built from */
+        private final AnalyticMesh[] analyticMeshes;
+        /** The index in the scene's list of meshes of each analytic mesh */
+        private final int[] analyticIndices;
+        /** The hierarchy of the meshes which are marched, or null if there are none */
+        private final BoundingVolumeHierarchy marched;
+        /** The index in the scene's list of meshes of each marched mesh */
+        private final int[] marchedIndices;
+
+        /**
+         * Splits the meshes of a scene
+         * @param scene The scene whose meshes to split
+         * @param hierarchy The scene's current hierarchy
+         */
+        private Split(Scene scene, BoundingVolumeHierarchy hierarchy) {
+            this.scene = scene;
+            this.hierarchy = hierarchy;
+
+            ArrayList<Mesh> meshes = scene.getMeshes();
+            ArrayList<Mesh> analyticMeshes = new ArrayList<Mesh>();
+            ArrayList<Mesh> marchedMeshes = new ArrayList<Mesh>();
+            int[] analyticIndices = new int[meshes.size()];
+            int[] marchedIndices = new int[meshes.size()];
+            for (int i = 0; i < meshes.size(); i++) {
+                Mesh mesh = meshes.get(i);
+                if (mesh instanceof AnalyticMesh) {
+                    analyticIndices[analyticMeshes.size()] = i;
+                    analyticMeshes.add(mesh);
+                }
+                else if (isAnalyticUnion(mesh)) {
+                    ArrayList<AnalyticMesh> parts = new ArrayList<AnalyticMesh>();
+                    addParts(mesh, parts);
+                    analyticIndices[analyticMeshes.size()] = i;
+                    analyticMeshes.add(new AnalyticUnion((MeshGroup) mesh, parts.toArray(new AnalyticMesh[0])));
+                }
+                else {
+                    marchedIndices[marchedMeshes.size()] = i;
+                    marchedMeshes.add(mesh);
+                }
+            }
+
+            this.analytic = analyticMeshes.isEmpty() ? null : new BoundingVolumeHierarchy(analyticMeshes);
+            this.analyticMeshes = analyticMeshes.toArray(new AnalyticMesh[0]);
+            this.analyticIndices = analyticIndices;
+            this.marched = marchedMeshes.isEmpty() ? null : new BoundingVolumeHierarchy(scene.isCompiled() ?
+                SceneCompiler.compile(marchedMeshes) : marchedMeshes);
+            this.marchedIndices = marchedIndices;
+        }
+    }
+
+    /**
+     * Checks whether a mesh is a MeshGroup which only unites analytic meshes, directly or
+     * through other such groups
+     * @param mesh The mesh to check
+     * @return Whether or not the mesh is a union of analytic meshes
+     */
+    private static boolean isAnalyticUnion(Mesh mesh) {
+        if (!(mesh instanceof MeshGroup))
+            return false;
+        MeshGroup group = (MeshGroup) mesh;
+        if (group.getOperation() != MeshGroup.UNION)
+            return false;
+        return (group.getMesh1() instanceof AnalyticMesh || isAnalyticUnion(group.getMesh1()))
+            && (group.getMesh2() instanceof AnalyticMesh || isAnalyticUnion(group.getMesh2()));
+    }
+
+    /**
+     * Adds the analytic meshes a union of them is made of to a list
+     * @param mesh The analytic mesh or union of them
+     * @param parts The list to add the analytic meshes to
+     */
+    private static void addParts(Mesh mesh, ArrayList<AnalyticMesh> parts) {
+        if (mesh instanceof AnalyticMesh) {
+            parts.add((AnalyticMesh) mesh);
+            return;
+        }
+        MeshGroup group = (MeshGroup) mesh;
+        addParts(group.getMesh1(), parts);
+        addParts(group.getMesh2(), parts);
+    }
+
+    /**
+     * A union of analytic meshes, which a ray hits wherever it first hits any of them, 
+     * since the SDF of a union is the smallest SDF of the meshes in it
+     */
+    private static class AnalyticUnion implements AnalyticMesh {
+
+        /** Default Serial Version ID for Mesh */
+        private static final long serialVersionUID = 1L;
+
+        /** The MeshGroup of the union */
+        private final MeshGroup group;
+        /** The analytic meshes the union is made of */
+        private final AnalyticMesh[] parts;
+
+        /**
+         * Creates a union of analytic meshes
+         * @param group The MeshGroup of the union
+         * @param parts The analytic meshes the union is made of
+         */
+        private AnalyticUnion(MeshGroup group, AnalyticMesh[] parts) {
+            this.group = group;
+            this.parts = parts;
+        }
+
+        @Override
+        public double intersect(double x, double y, double z, double dx, double dy, double dz, double offset,
+            double maxDistance) {
+
+            double best = Double.POSITIVE_INFINITY;
+            for (AnalyticMesh part : parts)
+                best = Math.min(best, part.intersect(x, y, z, dx, dy, dz, offset, Math.min(best, maxDistance)));
+            return best;
+        }
+
+        @Override
+        public Color getMeshColor() {
+            return group.getMeshColor();
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            return group.getBounds();
+        }
+
+        @Override
+        public double sdf(Vector3 position) {
+            return group.sdf(position);
+        }
+
+        @Override
+        public double sdf(double x, double y, double z) {
+            return group.sdf(x, y, z);
+        }
+    }
+}
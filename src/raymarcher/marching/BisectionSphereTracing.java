@@ -0,0 +1,125 @@
+package raymarcher.marching;
+
+import raymarcher.MarchStrategy;
+import raymarcher.RayHit;
+import raymarcher.RenderStatistics;
+import raymarcher.Scene;
+
+/**
+ * An implementation of the MarchStrategy interface that limits how many steps each ray
+ * may take. Every step is at least a minimum length, so rays passing close to a surface 
+ * don't crawl along it, and when a step ends up inside a mesh, the surface between the 
+ * last two positions is found by bisection. Rays that run out of steps are counted as 
+ * missing everything. Meshes thinner than the minimum step may be stepped through.
+ */
+public class BisectionSphereTracing implements MarchStrategy {
+
+    /** Default Serial Version ID for MarchStrategy */
+    private static final long serialVersionUID = 1L;
+
+    /** The default maximum number of steps each ray may take, not including bisection */
+    public static final int DEFAULT_MAX_STEPS = 48;
+    /** The default shortest step a ray takes, in scene units */
+    public static final double DEFAULT_MINIMUM_STEP = .01;
+    /** The number of times the interval containing a surface is halved */
+    private static final int BISECTION_STEPS = 8;
+
+    /** The maximum number of steps each ray may take, not including bisection */
+    private final int maxSteps;
+    /** The shortest step a ray takes, in scene units */
+    private final double minimumStep;
+
+    /**
+     * Creates a capped sphere tracing strategy with the default maximum steps and minimum step
+     */
+    public BisectionSphereTracing() {
+        this(DEFAULT_MAX_STEPS, DEFAULT_MINIMUM_STEP);
+    }
+
+    /**
+     * Creates a capped sphere tracing strategy
+     * @param maxSteps The maximum number of steps each ray may take, not including bisection.
+     * This value must be > 0.
+     * @param minimumStep The shortest step a ray takes, in scene units. This value must be >= 0.
+     */
+    public BisectionSphereTracing(int maxSteps, double minimumStep) {
+        this.maxSteps = Math.max(maxSteps, 1);
+        this.minimumStep = Math.abs(minimumStep);
+    }
+
+    /**
+     * @return The maximum number of steps each ray may take, not including bisection
+     */
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * @return The shortest step a ray takes, in scene units
+     */
+    public double getMinimumStep() {
+        return minimumStep;
+    }
+
+    @Override
+    public void march(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result) {
+
+        double distTraveled = startDistance;
+        double lastDistance = startDistance;
+        boolean hit = false;
+        boolean outOfSteps = true;
+        int steps = 0;
+
+        while (steps < maxSteps) {
+            if (distTraveled >= renderDistance) {
+                outOfSteps = false;
+                break;
+            }
+
+            double distToScene = scene.sdf(x + dx * distTraveled, y + dy * distTraveled, z + dz * distTraveled, 
+                statistics);
+            steps++;
+
+            //the starting point is already on or inside a mesh, so march the whole ray
+            if (steps == 1 && startDistance > 0 && distToScene <= epsilon) {
+                distTraveled = 0;
+                lastDistance = 0;
+                continue;
+            }
+
+            //a minimum step went inside a mesh, so find its surface between the last two positions
+            if (distToScene < 0 && distTraveled > lastDistance) {
+                double outside = lastDistance;
+                double inside = distTraveled;
+                for (int i = 0; i < BISECTION_STEPS; i++) {
+                    double middle = (outside + inside) / 2;
+                    if (scene.sdf(x + dx * middle, y + dy * middle, z + dz * middle, statistics) > 0)
+                        outside = middle;
+                    else
+                        inside = middle;
+                    steps++;
+                }
+                distTraveled = outside;
+                hit = true;
+                break;
+            }
+
+            if (distToScene <= epsilon) {
+                hit = true;
+                break;
+            }
+
+            lastDistance = distTraveled;
+            distTraveled += Math.max(distToScene, minimumStep);
+        }
+
+        if (statistics != null)
+            statistics.recordRay(steps, hit, !hit && !outOfSteps);
+
+        x += dx * distTraveled;
+        y += dy * distTraveled;
+        z += dz * distTraveled;
+        result.set(hit, distTraveled, steps, hit ? scene.nearestMesh(x, y, z) : -1, x, y, z);
+    }
+}
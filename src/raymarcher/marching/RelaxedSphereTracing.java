@@ -0,0 +1,102 @@
+package raymarcher.marching;
+
+import raymarcher.MarchStrategy;
+import raymarcher.RayHit;
+import raymarcher.RenderStatistics;
+import raymarcher.Scene;
+
+/**
+ * An implementation of the MarchStrategy interface that over-relaxes sphere tracing, 
+ * stepping further than the distance to the nearest mesh. Since the distances along a ray
+ * usually shrink slowly, this takes fewer steps through open space and alongside surfaces.
+ * If the sphere around the new position doesn't overlap the one around the last position,
+ * the step may have gone through a mesh, so the ray goes back and continues with plain 
+ * sphere tracing.
+ */
+public class RelaxedSphereTracing implements MarchStrategy {
+
+    /** Default Serial Version ID for MarchStrategy */
+    private static final long serialVersionUID = 1L;
+
+    /** The default factor each step is longer than the distance to the nearest mesh */
+    public static final double DEFAULT_RELAXATION = 1.2;
+
+    /** The factor each step is longer than the distance to the nearest mesh */
+    private final double relaxation;
+
+    /**
+     * Creates an over-relaxed sphere tracing strategy with the default relaxation
+     */
+    public RelaxedSphereTracing() {
+        this(DEFAULT_RELAXATION);
+    }
+
+    /**
+     * Creates an over-relaxed sphere tracing strategy
+     * @param relaxation The factor each step is longer than the distance to the nearest mesh,
+     * from 1, which is plain sphere tracing, to 2 (exclusive)
+     */
+    public RelaxedSphereTracing(double relaxation) {
+        this.relaxation = Math.min(Math.max(relaxation, 1), 1.99);
+    }
+
+    /**
+     * @return The factor each step is longer than the distance to the nearest mesh
+     */
+    public double getRelaxation() {
+        return relaxation;
+    }
+
+    @Override
+    public void march(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result) {
+
+        double relaxation = this.relaxation;
+        double distTraveled = startDistance;
+        double lastDistance = 0;
+        double lastDistToScene = 0;
+        double stepLength = 0;
+        double distToScene = 0;
+        boolean hit = false;
+        int steps = 0;
+
+        while (distTraveled < renderDistance) {
+            distToScene = scene.sdf(x + dx * distTraveled, y + dy * distTraveled, z + dz * distTraveled, statistics);
+            steps++;
+
+            //the starting point is already on or inside a mesh, so march the whole ray
+            if (steps == 1 && startDistance > 0 && distToScene <= epsilon) {
+                distTraveled = 0;
+                continue;
+            }
+
+            //the step went inside a mesh, or the spheres around the last and current positions don't
+            //overlap so it may have skipped over one. go back and step by the last distance instead,
+            //which is safe
+            if (relaxation > 1 && (distToScene < 0 || distToScene + lastDistToScene < stepLength)) {
+                relaxation = 1;
+                distTraveled = lastDistance + lastDistToScene;
+                stepLength = lastDistToScene;
+                continue;
+            }
+
+            if (distToScene <= epsilon) {
+                hit = true;
+                break;
+            }
+
+            lastDistance = distTraveled;
+            lastDistToScene = distToScene;
+            stepLength = distToScene * relaxation;
+            distTraveled += stepLength;
+        }
+
+        if (statistics != null)
+            statistics.recordRay(steps, hit, !hit);
+
+        x += dx * distTraveled;
+        y += dy * distTraveled;
+        z += dz * distTraveled;
+        result.set(hit, distTraveled, steps, hit ? scene.nearestMesh(x, y, z) : -1, x, y, z);
+    }
+}
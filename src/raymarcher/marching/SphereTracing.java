@@ -0,0 +1,64 @@
+package raymarcher.marching;
+
+import raymarcher.MarchStrategy;
+import raymarcher.RayHit;
+import raymarcher.RenderStatistics;
+import raymarcher.Scene;
+
+/**
+ * An implementation of the MarchStrategy interface that marches each ray by the distance
+ * to the nearest mesh until it is within epsilon of one. This never steps through a mesh,
+ * but rays that pass close to a surface take many small steps. This is the default strategy.
+ */
+public class SphereTracing implements MarchStrategy {
+
+    /** Default Serial Version ID for MarchStrategy */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void march(Scene scene, double x, double y, double z, double dx, double dy, double dz, 
+        double startDistance, double renderDistance, double epsilon, RenderStatistics.Shard statistics, RayHit result) {
+
+        double distToScene = epsilon + 1;
+        double distTraveled = 0;
+        int steps = 0;
+
+        //jump ahead to the starting distance, unless it lands on or inside a mesh
+        if (startDistance > 0) {
+            double startX = x + dx * startDistance;
+            double startY = y + dy * startDistance;
+            double startZ = z + dz * startDistance;
+            double startDist = scene.sdf(startX, startY, startZ, statistics);
+            steps++;
+
+            if (startDist > epsilon) {
+                distToScene = startDist;
+                distTraveled = startDistance + distToScene;
+                x = startX + dx * distToScene;
+                y = startY + dy * distToScene;
+                z = startZ + dz * distToScene;
+            }
+        }
+
+        //keep marching until mesh is hit or ray hits render distance
+        while (distToScene > epsilon && distTraveled < renderDistance) {             
+
+            //the scene's hierarchy only checks the meshes which could be the closest
+            distToScene = scene.sdf(x, y, z, statistics);
+            distTraveled += distToScene;
+            steps++;
+
+            //march the ray
+            x += dx * distToScene;
+            y += dy * distToScene;
+            z += dz * distToScene;
+        }
+
+        //see if hit a mesh or hit nothing
+        boolean hit = !(distTraveled > renderDistance);
+        if (statistics != null)
+            statistics.recordRay(steps, hit, !hit);
+
+        result.set(hit, distTraveled, steps, hit ? scene.nearestMesh(x, y, z) : -1, x, y, z);
+    }
+}
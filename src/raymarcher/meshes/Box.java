@@ -2,14 +2,19 @@ package raymarcher.meshes;
 
 import java.awt.Color;
 
-import raymarcher.Mesh;
+import raymarcher.AnalyticMesh;
+import raymarcher.BoundingBox;
 import raymarcher.Vector3;
 
 /**
  * An implementation of the Mesh interface that renders a box (rectangular prism).
  * Can also be used to produce 2D planes or rectangles if an axis' dimensions is 0.
+ * Its ray hits can also be solved for directly.
  */
-public class Box implements Mesh {
+public class Box implements AnalyticMesh {
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
 
     /**The position of the box's center */
     private Vector3 position;
@@ -75,23 +80,187 @@ public class Box implements Mesh {
         return meshColor;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        return BoundingBox.fromCenter(position, size.getX(), size.getY(), size.getZ());
+    }
+
     
     @Override
     public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
+
+        //translate the ray position to "fake" the mesh position, then fold it into the first octant
+        double qx = Math.abs(x - position.getX()) - size.getX();
+        double qy = Math.abs(y - position.getY()) - size.getY();
+        double qz = Math.abs(z - position.getZ()) - size.getZ();
+
+        double wx = Math.max(qx, 0);
+        double wy = Math.max(qy, 0);
+        double wz = Math.max(qz, 0);
+
+        return Math.sqrt(wx * wx + wy * wy + wz * wz) + Math.min(Math.max(qx, Math.max(qy, qz)), 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The box grown by the offset has rounded edges and corners. Most rays enter it 
+     * through one of its flat faces, found by intersecting the slabs between the faces of
+     * each axis. The few that enter beside an edge or corner are intersected with each
+     * of the flat faces, the cylinders around the edges and the spheres around the 
+     * corners which make up the grown box.
+     */
+    @Override
+    public double intersect(double x, double y, double z, double dx, double dy, double dz, double offset, 
+        double maxDistance) {
+
+        double ox = x - position.getX();
+        double oy = y - position.getY();
+        double oz = z - position.getZ();
+        double sx = size.getX(), sy = size.getY(), sz = size.getZ();
+        if (sx + offset < 0 || sy + offset < 0 || sz + offset < 0)
+            return Double.POSITIVE_INFINITY;
+
+        double near = enterBox(ox, oy, oz, dx, dy, dz, sx + offset, sy + offset, sz + offset);
+        if (near > maxDistance)
+            return Double.POSITIVE_INFINITY;
 
-        Vector3 p = position.subtract(this.position);       //translate the ray position to "fake" the mesh position
-        
-        Vector3 q = p.abs().subtract(size);
+        //within the faces of the unexpanded box on at least two axes, the grown box is flat
+        if (offset <= 0)
+            return near;
+        double px = Math.abs(ox + dx * near), py = Math.abs(oy + dy * near), pz = Math.abs(oz + dz * near);
+        int outside = (px > sx ? 1 : 0) + (py > sy ? 1 : 0) + (pz > sz ? 1 : 0);
+        if (outside <= 1)
+            return near;
+
+        //the faces, each pushed out by the offset
+        double t = enterBox(ox, oy, oz, dx, dy, dz, sx + offset, sy, sz);
+        t = Math.min(t, enterBox(ox, oy, oz, dx, dy, dz, sx, sy + offset, sz));
+        t = Math.min(t, enterBox(ox, oy, oz, dx, dy, dz, sx, sy, sz + offset));
+
+        //the edges along each axis and the corners, on either side of the center
+        for (int i = 0; i < 8; i++) {
+            double cx = (i & 1) == 0 ? -sx : sx;
+            double cy = (i & 2) == 0 ? -sy : sy;
+            double cz = (i & 4) == 0 ? -sz : sz;
+            t = Math.min(t, enterSphere(ox - cx, oy - cy, oz - cz, dx, dy, dz, offset));
+            if (i < 4) {
+                double first = (i & 1) == 0 ? -1 : 1, second = (i & 2) == 0 ? -1 : 1;
+                t = Math.min(t, enterCylinder(oy - first * sy, oz - second * sz, dy, dz, ox, dx, sx, offset));
+                t = Math.min(t, enterCylinder(ox - first * sx, oz - second * sz, dx, dz, oy, dy, sy, offset));
+                t = Math.min(t, enterCylinder(ox - first * sx, oy - second * sy, dx, dy, oz, dz, sz, offset));
+            }
+        }
+        return t <= maxDistance ? t : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Finds where a ray enters a box centered at the origin
+     * @param ox The x-coordinate of the ray's starting position, relative to the box's center
+     * @param oy The y-coordinate of the ray's starting position, relative to the box's center
+     * @param oz The z-coordinate of the ray's starting position, relative to the box's center
+     * @param dx The x-component of the ray's direction
+     * @param dy The y-component of the ray's direction
+     * @param dz The z-component of the ray's direction
+     * @param sx Half of the box's length along the x-axis
+     * @param sy Half of the box's length along the y-axis
+     * @param sz Half of the box's length along the z-axis
+     * @return The distance along the ray to where it enters the box, 0 if it starts inside
+     * it, or positive infinity if it misses the box
+     */
+    private static double enterBox(double ox, double oy, double oz, double dx, double dy, double dz, double sx, 
+        double sy, double sz) {
+
+        //the ray is within the box between where it enters and leaves the slab of every axis
+        double near = 0;
+        double far = Double.POSITIVE_INFINITY;
+        if (dx != 0) {
+            double t1 = (-sx - ox) / dx, t2 = (sx - ox) / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        else if (Math.abs(ox) > sx)
+            return Double.POSITIVE_INFINITY;
+        if (dy != 0) {
+            double t1 = (-sy - oy) / dy, t2 = (sy - oy) / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        else if (Math.abs(oy) > sy)
+            return Double.POSITIVE_INFINITY;
+        if (dz != 0) {
+            double t1 = (-sz - oz) / dz, t2 = (sz - oz) / dz;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        else if (Math.abs(oz) > sz)
+            return Double.POSITIVE_INFINITY;
+
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Finds where a ray enters a sphere centered at the origin
+     * @param ox The x-coordinate of the ray's starting position, relative to the sphere's center
+     * @param oy The y-coordinate of the ray's starting position, relative to the sphere's center
+     * @param oz The z-coordinate of the ray's starting position, relative to the sphere's center
+     * @param dx The x-component of the ray's direction, which must be a unit vector
+     * @param dy The y-component of the ray's direction, which must be a unit vector
+     * @param dz The z-component of the ray's direction, which must be a unit vector
+     * @param radius The sphere's radius
+     * @return The distance along the ray to where it enters the sphere, 0 if it starts 
+     * inside it, or positive infinity if it misses the sphere
+     */
+    private static double enterSphere(double ox, double oy, double oz, double dx, double dy, double dz, 
+        double radius) {
+
+        double b = ox * dx + oy * dy + oz * dz;
+        double c = ox * ox + oy * oy + oz * oz - radius * radius;
+        if (c <= 0)
+            return 0;
+        double discriminant = b * b - c;
+        if (b > 0 || discriminant < 0)
+            return Double.POSITIVE_INFINITY;
+        return -b - Math.sqrt(discriminant);
+    }
+
+    /**
+     * Finds where a ray enters a cylinder around one of the box's edges, whose axis is 
+     * parallel to one of the coordinate axes and centered on the box's center along it
+     * @param ou The ray's starting position across the cylinder, relative to its axis
+     * @param ov The ray's starting position across the cylinder in the other direction
+     * @param du The ray's direction across the cylinder
+     * @param dv The ray's direction across the cylinder in the other direction
+     * @param ow The ray's starting position along the cylinder's axis, relative to its middle
+     * @param dw The ray's direction along the cylinder's axis
+     * @param halfLength Half of the cylinder's length
+     * @param radius The cylinder's radius
+     * @return The distance along the ray to where it enters the cylinder, 0 if it starts
+     * inside it, or positive infinity if it misses the cylinder
+     */
+    private static double enterCylinder(double ou, double ov, double du, double dv, double ow, double dw, 
+        double halfLength, double radius) {
 
-        Vector3 w = q.clone();
-        if (w.getX() < 0) 
-            w.setX(0);
-        if (w.getY() < 0) 
-            w.setY(0);
-        if (w.getZ() < 0) 
-            w.setZ(0);
+        double a = du * du + dv * dv;
+        double b = ou * du + ov * dv;
+        double c = ou * ou + ov * ov - radius * radius;
+        double t;
+        if (c <= 0)
+            t = 0;
+        else {
+            double discriminant = b * b - a * c;
+            if (b >= 0 || discriminant < 0)
+                return Double.POSITIVE_INFINITY;
+            t = (-b - Math.sqrt(discriminant)) / a;
+        }
 
-        return (w.length()) + Math.min(Math.max(q.getX(), Math.max(q.getY(), q.getZ())), 0);
+        //the ends of the cylinder are covered by the spheres around the corners
+        return Math.abs(ow + dw * t) <= halfLength ? t : Double.POSITIVE_INFINITY;
     }
 
 }
@@ -2,6 +2,7 @@ package raymarcher.meshes;
 
 import java.awt.Color;
 
+import raymarcher.BoundingBox;
 import raymarcher.Mesh;
 import raymarcher.Vector3;
 
@@ -11,6 +12,9 @@ import raymarcher.Vector3;
  */
 public class RoundedBox implements Mesh {
 
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
+
     /**The position of the box's center */
     private Vector3 position;
     /** A vector representing the box's dimensions */
@@ -93,23 +97,31 @@ public class RoundedBox implements Mesh {
         return meshColor;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        double r = Math.max(radius, 0);
+        return BoundingBox.fromCenter(position, Math.abs(size.getX()) + r, Math.abs(size.getY()) + r, Math.abs(size.getZ()) + r);
+    }
+
     
     @Override
     public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
 
-        Vector3 p = position.subtract(this.position);       //translate the ray position to "fake" the mesh position
-        
-        Vector3 q = p.abs().subtract(size);
+        //translate the ray position to "fake" the mesh position, then fold it into the first octant
+        double qx = Math.abs(x - position.getX()) - size.getX();
+        double qy = Math.abs(y - position.getY()) - size.getY();
+        double qz = Math.abs(z - position.getZ()) - size.getZ();
 
-        Vector3 w = q.clone();
-        if (w.getX() < 0) 
-            w.setX(0);
-        if (w.getY() < 0) 
-            w.setY(0);
-        if (w.getZ() < 0) 
-            w.setZ(0);
+        double wx = Math.max(qx, 0);
+        double wy = Math.max(qy, 0);
+        double wz = Math.max(qz, 0);
 
-        return (w.length()) + Math.min(Math.max(q.getX(), Math.max(q.getY(), q.getZ())), 0) - radius;
+        return Math.sqrt(wx * wx + wy * wy + wz * wz) + Math.min(Math.max(qx, Math.max(qy, qz)), 0) - radius;
     }
 
 }
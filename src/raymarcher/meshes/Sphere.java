@@ -2,13 +2,18 @@ package raymarcher.meshes;
 
 import java.awt.Color;
 
-import raymarcher.Mesh;
+import raymarcher.AnalyticMesh;
+import raymarcher.BoundingBox;
 import raymarcher.Vector3;
 
 /**
- * An implementation of the Mesh interface that renders a sphere
+ * An implementation of the Mesh interface that renders a sphere, whose ray hits can
+ * also be solved for directly
  */
-public class Sphere implements Mesh {
+public class Sphere implements AnalyticMesh {
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
 
     /**The position of the sphere's center */
     private Vector3 position;
@@ -70,11 +75,49 @@ public class Sphere implements Mesh {
         return meshColor;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        return BoundingBox.fromCenter(position, radius, radius, radius);
+    }
+
     
     @Override
     public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
+
+        double px = position.getX() - x;
+        double py = position.getY() - y;
+        double pz = position.getZ() - z;
         
-        return (this.position.subtract(position).length() - radius);
+        return (Math.sqrt(px * px + py * py + pz * pz) - radius);
+    }
+
+    @Override
+    public double intersect(double x, double y, double z, double dx, double dy, double dz, double offset, 
+        double maxDistance) {
+
+        double grown = radius + offset;
+        if (grown < 0)
+            return Double.POSITIVE_INFINITY;
+
+        //solve |start + t * direction - center| = radius for the nearest t
+        double ox = x - position.getX();
+        double oy = y - position.getY();
+        double oz = z - position.getZ();
+        double b = ox * dx + oy * dy + oz * dz;
+        double c = ox * ox + oy * oy + oz * oz - grown * grown;
+        if (c <= 0)
+            return 0;
+
+        double discriminant = b * b - c;
+        if (b > 0 || discriminant < 0)
+            return Double.POSITIVE_INFINITY;
+        double t = -b - Math.sqrt(discriminant);
+        return t <= maxDistance ? t : Double.POSITIVE_INFINITY;
     }
 
 }
@@ -2,13 +2,17 @@ package raymarcher.meshes;
 
 import java.awt.Color;
 
-import raymarcher.Mesh;
+import raymarcher.AnalyticMesh;
+import raymarcher.BoundingBox;
 import raymarcher.Vector3;
 
 /**
  * An implementation of the Mesh interface that renders a torus
  */
-public class Torus implements Mesh {
+public class Torus implements AnalyticMesh {
+
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
 
     /**The position of the mesh's center */
     private Vector3 position;
@@ -88,15 +92,186 @@ public class Torus implements Mesh {
         return meshColor;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        double outer = Math.abs(radius) + Math.abs(thickness);
+        return BoundingBox.fromCenter(position, outer, thickness, outer);
+    }
+
     
     @Override
     public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
 
-        Vector3 p = position.subtract(this.position);       //translate the ray position to "fake" the mesh position
+        //translate the ray position to "fake" the mesh position
+        double px = x - position.getX();
+        double py = y - position.getY();
+        double pz = z - position.getZ();
         
-        double pxz = Math.sqrt(p.getX() * p.getX() + p.getZ() * p.getZ()) - radius;
-        double length = Math.sqrt(pxz * pxz + p.getY() * p.getY());
+        double pxz = Math.sqrt(px * px + pz * pz) - radius;
+        double length = Math.sqrt(pxz * pxz + py * py);
         return length - thickness;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A point along the ray is on the grown torus where a quartic polynomial of its 
+     * distance along the ray is 0. The polynomial is only positive outside of the torus,
+     * and between any two of its turning points it only rises or falls, so the first hit
+     * is found by solving the cubic of its turning points, then narrowing in on the first
+     * stretch of the ray where the polynomial falls below 0.
+     */
+    @Override
+    public double intersect(double x, double y, double z, double dx, double dy, double dz, double offset, 
+        double maxDistance) {
+
+        double major = radius;
+        double minor = thickness + offset;
+        if (minor <= 0)
+            return Double.POSITIVE_INFINITY;
+
+        //only search the ray within the sphere around the torus, starting from where it enters it
+        double ox = x - position.getX();
+        double oy = y - position.getY();
+        double oz = z - position.getZ();
+        double outer = Math.abs(major) + minor;
+        double b = ox * dx + oy * dy + oz * dz;
+        double c = ox * ox + oy * oy + oz * oz - outer * outer;
+        double discriminant = b * b - c;
+        if (discriminant < 0 || (c > 0 && b > 0))
+            return Double.POSITIVE_INFINITY;
+        double enter = c > 0 ? -b - Math.sqrt(discriminant) : 0;
+        double exit = Math.min(-b + Math.sqrt(discriminant), maxDistance) - enter;
+        if (exit < 0)
+            return Double.POSITIVE_INFINITY;
+
+        //(|p|^2 + R^2 - r^2)^2 - 4R^2(px^2 + pz^2) = 0, with p = start + t * direction, relative to the entry
+        ox += dx * enter;
+        oy += dy * enter;
+        oz += dz * enter;
+        double n = ox * dx + oy * dy + oz * dz;
+        double k = ox * ox + oy * oy + oz * oz + major * major - minor * minor;
+        double m = 4 * major * major;
+        double c0 = k * k - m * (ox * ox + oz * oz);
+        double c1 = 4 * n * k - 2 * m * (ox * dx + oz * dz);
+        double c2 = 4 * n * n + 2 * k - m * (dx * dx + dz * dz);
+        double c3 = 4 * n;
+        if (c0 <= 0)
+            return enter;
+
+        //the polynomial only rises or falls between its turning points, the roots of the cubic
+        //t^3 + bt^2 + ct + d of its slope, found in increasing order
+        double cb = .75 * c3, cc = .5 * c2, cd = .25 * c1;
+        double shift = cb / 3;
+        double p = cc - cb * shift;
+        double q = 2 * shift * shift * shift - cc * shift + cd;
+        double cubicDiscriminant = q * q / 4 + p * p * p / 27;
+        double first, second, third;
+        if (cubicDiscriminant > 0) {
+            double root = Math.sqrt(cubicDiscriminant);
+            first = Math.cbrt(-q / 2 + root) + Math.cbrt(-q / 2 - root) - shift;
+            second = first;
+            third = first;
+        }
+        else if (p == 0) {
+            first = -shift;
+            second = first;
+            third = first;
+        }
+        else {
+            double scale = 2 * Math.sqrt(-p / 3);
+            double angle = Math.acos(Math.max(-1, Math.min(1, 3 * q / (p * scale)))) / 3;
+            first = scale * Math.cos(angle - 4 * Math.PI / 3) - shift;
+            second = scale * Math.cos(angle - 2 * Math.PI / 3) - shift;
+            third = scale * Math.cos(angle) - shift;
+        }
+
+        //rays that only graze the torus dip below 0 for a moment around a turning point, so
+        //the turning points are narrowed in on with Newton's method to not step over the dip
+        double last = 0;
+        for (int i = 0; i < 4; i++) {
+            double next = i == 0 ? first : i == 1 ? second : i == 2 ? third : exit;
+            if (i < 3)
+                next = polishTurningPoint(c1, c2, c3, next);
+            if (next <= last)
+                continue;
+            if (next > exit)
+                next = exit;
+            if (evaluate(c0, c1, c2, c3, next) <= 0)
+                return enter + findRoot(c0, c1, c2, c3, last, next);
+            last = next;
+            if (last >= exit)
+                break;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Evaluates the monic quartic polynomial t^4 + c3 t^3 + c2 t^2 + c1 t + c0
+     * @param c0 The constant term
+     * @param c1 The coefficient of the linear term
+     * @param c2 The coefficient of the squared term
+     * @param c3 The coefficient of the cubed term
+     * @param t The value to evaluate the polynomial at
+     * @return The polynomial's value
+     */
+    private static double evaluate(double c0, double c1, double c2, double c3, double t) {
+        return (((t + c3) * t + c2) * t + c1) * t + c0;
+    }
+
+    /**
+     * Narrows in on a turning point of the monic quartic polynomial 
+     * t^4 + c3 t^3 + c2 t^2 + c1 t + c0 with a few steps of Newton's method on its slope
+     * @param c1 The coefficient of the linear term
+     * @param c2 The coefficient of the squared term
+     * @param c3 The coefficient of the cubed term
+     * @param t The approximate turning point
+     * @return The turning point
+     */
+    private static double polishTurningPoint(double c1, double c2, double c3, double t) {
+        for (int i = 0; i < 2; i++) {
+            double slope = ((4 * t + 3 * c3) * t + 2 * c2) * t + c1;
+            double curvature = (12 * t + 6 * c3) * t + 2 * c2;
+            if (curvature == 0)
+                break;
+            t -= slope / curvature;
+        }
+        return t;
+    }
+
+    /**
+     * Finds where the monic quartic polynomial t^4 + c3 t^3 + c2 t^2 + c1 t + c0 crosses 0
+     * between a value where it is positive and a value where it isn't, with Newton's method
+     * kept within the range by bisection
+     * @param c0 The constant term
+     * @param c1 The coefficient of the linear term
+     * @param c2 The coefficient of the squared term
+     * @param c3 The coefficient of the cubed term
+     * @param low The value where the polynomial is positive
+     * @param high The value where the polynomial isn't positive
+     * @return The crossing, where the polynomial isn't positive
+     */
+    private static double findRoot(double c0, double c1, double c2, double c3, double low, double high) {
+        double t = low;
+        for (int i = 0; i < 64 && high - low > 1e-10 * (1 + high); i++) {
+            double value = evaluate(c0, c1, c2, c3, t);
+            double slope = ((4 * t + 3 * c3) * t + 2 * c2) * t + c1;
+            double next = t - value / slope;
+            if (!(next > low && next < high))
+                next = (low + high) / 2;
+
+            if (evaluate(c0, c1, c2, c3, next) > 0)
+                low = next;
+            else
+                high = next;
+            t = next;
+        }
+        return high;
+    }
+
 }
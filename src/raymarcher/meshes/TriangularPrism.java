@@ -2,6 +2,7 @@ package raymarcher.meshes;
 
 import java.awt.Color;
 
+import raymarcher.BoundingBox;
 import raymarcher.Mesh;
 import raymarcher.Vector3;
 
@@ -10,6 +11,9 @@ import raymarcher.Vector3;
  */
 public class TriangularPrism implements Mesh {
 
+    /** Default Serial Version ID for Mesh */
+    private static final long serialVersionUID = 1L;
+
     /**The position of the triangular prism */
     private Vector3 position;
     /** The height of the triangular prism's traingle base */
@@ -88,14 +92,28 @@ public class TriangularPrism implements Mesh {
         return meshColor;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        //matches the dimensions used by the sdf, a triangle from y = -.5 to 1 with sides at 60 degrees, extruded 2 each way
+        return new BoundingBox(position.getX() - .8661, position.getY() - .5, position.getZ() - 2,
+            position.getX() + .8661, position.getY() + 1, position.getZ() + 2);
+    }
+
     
     @Override
     public double sdf(Vector3 position) {
+        return sdf(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public double sdf(double x, double y, double z) {
 
-        Vector3 p = position.subtract(this.position);       //translate the ray position to "fake" the mesh position
+        //translate the ray position to "fake" the mesh position
+        double px = x - position.getX();
+        double py = y - position.getY();
+        double pz = z - position.getZ();
         
-        Vector3 q = p.abs();
-        return Math.max(q.getZ() - 2, Math.max(q.getX() * 0.866025 + p.getY() * .5, -1 * p.getY()) - 1 * .5);
+        return Math.max(Math.abs(pz) - 2, Math.max(Math.abs(px) * 0.866025 + py * .5, -1 * py) - 1 * .5);
     }
 
 }
@@ -0,0 +1,181 @@
+package raymarcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import raymarcher.meshes.Box;
+import raymarcher.meshes.RoundedBox;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+import raymarcher.meshes.TriangularPrism;
+
+/**
+ * Checks that scenes written to scene files are read back unchanged
+ */
+public class SceneFileTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void readsEveryMeshTypeAndOperation() throws IOException {
+        Scene scene = new Scene();
+        scene.setWorldColor(new Color(0x20, 0x30, 0x40));
+        scene.add(new Sphere(new Vector3(1, 2, 3), .5, Color.RED));
+        scene.add(new Box(new Vector3(-1, 0, -4), new Vector3(1, 2, .5), Color.BLUE));
+        scene.add(new RoundedBox(new Vector3(0, -2, 0), new Vector3(3, .2, 3), .1, Color.GREEN));
+        scene.add(new Torus(new Vector3(-1.5, 0, 0), 1, .3, Color.ORANGE));
+        scene.add(new TriangularPrism(new Vector3(0, 2, -2), 1, 1.5, Color.WHITE));
+        scene.add(new MeshGroup(new Sphere(new Vector3(0, 0, 0), 1, Color.RED),
+            new Box(new Vector3(0, 0, 0), new Vector3(.8, .8, .8), Color.BLUE), MeshGroup.UNION, Color.CYAN));
+        scene.add(new MeshGroup(new Torus(new Vector3(0, 0, 0), 1, .2, Color.RED),
+            new Sphere(new Vector3(1, 0, 0), .3, Color.RED), MeshGroup.SUBTRACT, Color.MAGENTA));
+        scene.add(new MeshGroup(new RoundedBox(new Vector3(0, 0, 0), new Vector3(1, 1, 1), .2, Color.RED),
+            new TriangularPrism(new Vector3(0, 0, 0), 1, 2, Color.RED), MeshGroup.INTERSECTION, Color.PINK));
+
+        assertSameScene(scene, writeAndRead(scene));
+    }
+
+    @Test
+    public void readsNestedMeshGroups() throws IOException {
+        Mesh tree = new Sphere(new Vector3(0, 0, 0), 1, Color.RED);
+        for (int i = 0; i < 200; i++) {
+            Mesh leaf = i % 2 == 0 ? new Box(new Vector3(i, 0, 0), new Vector3(.5, .5, .5), Color.BLUE)
+                : new Torus(new Vector3(0, i, 0), 1, .1, Color.GREEN);
+            tree = i % 3 == 0 ? new MeshGroup(tree, leaf, i % 3, new Color(i)) : new MeshGroup(leaf, tree, i % 3, new Color(i));
+        }
+        Scene scene = new Scene();
+        scene.add(tree);
+        scene.add(new Sphere(new Vector3(5, 5, 5), 2, Color.BLACK));
+
+        assertSameScene(scene, writeAndRead(scene));
+    }
+
+    @Test
+    public void readsEmptyScene() throws IOException {
+        Scene scene = new Scene();
+        Scene loaded = writeAndRead(scene);
+        assertEquals(scene.getWorldColor(), loaded.getWorldColor());
+        assertTrue(loaded.getMeshes().isEmpty());
+    }
+
+    @Test
+    public void rejectsMeshesThatArentBundled() throws IOException {
+        File file = new File(directory, "custom.rms");
+        Scene scene = new Scene();
+        scene.add(new Sphere(new Vector3(0, 0, 0), 1, Color.RED));
+        scene.add(new CachedMesh(new Sphere(new Vector3(0, 0, 0), 1, Color.RED), .1));
+
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.write(scene, file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsSubclassesOfBundledMeshes() throws IOException {
+        File file = new File(directory, "subclass.rms");
+        Sphere hollow = new Sphere(new Vector3(0, 0, 0), 1, Color.RED) {
+            @Override
+            public double sdf(double x, double y, double z) {
+                return Math.abs(super.sdf(x, y, z)) - .1;
+            }
+        };
+        Scene scene = new Scene();
+        scene.add(new MeshGroup(new Box(new Vector3(0, 0, 0), new Vector3(1, 1, 1), Color.RED), hollow,
+            MeshGroup.UNION, Color.RED));
+
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.write(scene, file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void rejectsInvalidFiles() throws IOException {
+        Scene scene = new Scene();
+        scene.add(new MeshGroup(new Sphere(new Vector3(0, 0, 0), 1, Color.RED),
+            new Box(new Vector3(0, 0, 0), new Vector3(1, 1, 1), Color.BLUE), MeshGroup.UNION, Color.CYAN));
+        File file = new File(directory, "scene.rms");
+        SceneFile.write(scene, file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        byte[] notScene = bytes.clone();
+        notScene[0] = 'X';
+        assertThrows(IOException.class, () -> SceneFile.read(ByteBuffer.wrap(notScene)));
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> SceneFile.read(ByteBuffer.wrap(truncated)));
+        }
+    }
+
+    /**
+     * Writes a scene to a file and reads it back
+     * @param scene The scene to write
+     * @return The scene read from the file
+     * @throws IOException If the file couldn't be written or read
+     */
+    private Scene writeAndRead(Scene scene) throws IOException {
+        File file = new File(directory, "scene.rms");
+        SceneFile.write(scene, file);
+        return SceneFile.read(file);
+    }
+
+    /**
+     * Checks that a loaded scene has the same world color and meshes as the one written
+     * @param expected The scene written
+     * @param actual The scene read
+     */
+    private static void assertSameScene(Scene expected, Scene actual) {
+        assertEquals(expected.getWorldColor(), actual.getWorldColor());
+        assertEquals(expected.getMeshes().size(), actual.getMeshes().size());
+        for (int i = 0; i < expected.getMeshes().size(); i++)
+            assertTrue(equal(expected.getMeshes().get(i), actual.getMeshes().get(i)), "Mesh " + i + " differs");
+    }
+
+    /**
+     * Checks whether two meshes are the same type of mesh, with the same color and parameters
+     * @param a The first mesh
+     * @param b The second mesh
+     * @return Whether or not the meshes are equal
+     */
+    private static boolean equal(Mesh a, Mesh b) {
+        if (a.getClass() != b.getClass() || a.getMeshColor().getRGB() != b.getMeshColor().getRGB())
+            return false;
+
+        if (a instanceof MeshGroup) {
+            MeshGroup groupA = (MeshGroup) a, groupB = (MeshGroup) b;
+            return groupA.getOperation() == groupB.getOperation() && equal(groupA.getMesh1(), groupB.getMesh1())
+                && equal(groupA.getMesh2(), groupB.getMesh2());
+        }
+        if (a instanceof Sphere) {
+            Sphere sphereA = (Sphere) a, sphereB = (Sphere) b;
+            return sphereA.getPosition().equals(sphereB.getPosition()) && sphereA.getRadius() == sphereB.getRadius();
+        }
+        if (a instanceof Box) {
+            Box boxA = (Box) a, boxB = (Box) b;
+            return boxA.getPosition().equals(boxB.getPosition()) && boxA.getSize().equals(boxB.getSize());
+        }
+        if (a instanceof RoundedBox) {
+            RoundedBox boxA = (RoundedBox) a, boxB = (RoundedBox) b;
+            return boxA.getPosition().equals(boxB.getPosition()) && boxA.getSize().equals(boxB.getSize())
+                && boxA.getRadius() == boxB.getRadius();
+        }
+        if (a instanceof Torus) {
+            Torus torusA = (Torus) a, torusB = (Torus) b;
+            return torusA.getPosition().equals(torusB.getPosition()) && torusA.getRadius() == torusB.getRadius()
+                && torusA.getThickness() == torusB.getThickness();
+        }
+        TriangularPrism prismA = (TriangularPrism) a, prismB = (TriangularPrism) b;
+        return prismA.getPosition().equals(prismB.getPosition()) && prismA.getHeight() == prismB.getHeight()
+            && prismA.getLength() == prismB.getLength();
+    }
+}
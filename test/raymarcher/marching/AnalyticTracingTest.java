@@ -0,0 +1,167 @@
+package raymarcher.marching;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import raymarcher.MarchStrategy;
+import raymarcher.Mesh;
+import raymarcher.MeshGroup;
+import raymarcher.Ray;
+import raymarcher.RayHit;
+import raymarcher.Scene;
+import raymarcher.Vector3;
+import raymarcher.meshes.Box;
+import raymarcher.meshes.Sphere;
+import raymarcher.meshes.Torus;
+
+/**
+ * Checks that rays intersected with analytic meshes stop where sphere tracing them does
+ */
+public class AnalyticTracingTest {
+
+    /** The epsilon both strategies march with */
+    private static final double EPSILON = Ray.DEFAULT_EPSILON;
+    /** The render distance both strategies march to */
+    private static final double RENDER_DISTANCE = 100;
+
+    @Test
+    public void matchesSphereTracing() {
+        compare(false);
+    }
+
+    @Test
+    public void matchesSphereTracingWithUnions() {
+        compare(true);
+    }
+
+    @Test
+    public void hitsUnionsInOneStep() {
+        Scene scene = new Scene();
+        scene.add(new MeshGroup(new Sphere(new Vector3(0, 0, 0), 1, Color.RED),
+            new MeshGroup(new Box(new Vector3(1, 0, 0), new Vector3(.5, .5, .5), Color.BLUE),
+                new Torus(new Vector3(0, 1, 0), 1, .2, Color.GREEN), MeshGroup.UNION, Color.BLUE),
+            MeshGroup.UNION, Color.RED));
+
+        RayHit hit = new RayHit();
+        new AnalyticTracing().march(scene, 0, 0, 5, 0, 0, -1, 0, RENDER_DISTANCE, EPSILON, null, hit);
+        assertTrue(hit.isHit());
+        assertEquals(1, hit.getSteps());
+        assertEquals(0, hit.getMeshIndex());
+        assertEquals(4, hit.getDistance(), EPSILON);
+    }
+
+    @Test
+    public void marchesOtherMeshGroups() {
+        Scene scene = new Scene();
+        scene.add(new Sphere(new Vector3(0, 0, -5), 1, Color.RED));
+        scene.add(new MeshGroup(new Box(new Vector3(0, 0, 0), new Vector3(1, 1, 1), Color.BLUE),
+            new Sphere(new Vector3(0, 0, 1), .5, Color.BLUE), MeshGroup.SUBTRACT, Color.BLUE));
+
+        RayHit analytic = new RayHit(), marched = new RayHit();
+        new AnalyticTracing().march(scene, 0, 0, 5, 0, 0, -1, 0, RENDER_DISTANCE, EPSILON, null, analytic);
+        new SphereTracing().march(scene, 0, 0, 5, 0, 0, -1, 0, RENDER_DISTANCE, EPSILON, null, marched);
+        assertTrue(analytic.isHit());
+        assertTrue(analytic.getSteps() > 1);
+        assertEquals(1, analytic.getMeshIndex());
+        assertEquals(marched.getDistance(), analytic.getDistance(), EPSILON);
+    }
+
+    @Test
+    public void intersectsTorusSurface() {
+        Random random = new Random(1);
+        Torus torus = new Torus(new Vector3(.3, -.2, .1), 1, .25, Color.RED);
+        int hits = 0;
+        for (int i = 0; i < 100000; i++) {
+            double x = random.nextDouble() * 6 - 3, y = random.nextDouble() * 6 - 3, z = 3;
+            double dx = random.nextGaussian(), dy = random.nextGaussian(), dz = -Math.abs(random.nextGaussian());
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            dx /= length;
+            dy /= length;
+            dz /= length;
+
+            double distance = torus.intersect(x, y, z, dx, dy, dz, 0, RENDER_DISTANCE);
+            if (distance == Double.POSITIVE_INFINITY)
+                continue;
+            hits++;
+            assertEquals(0, torus.sdf(x + dx * distance, y + dy * distance, z + dz * distance), 1e-9);
+        }
+        assertTrue(hits > 1000);
+    }
+
+    /**
+     * Marches rays through random scenes of spheres, boxes and tori with both strategies,
+     * checking that they agree on which rays hit and that the hits are within epsilon
+     * @param unions Whether or not to unite some of the meshes in mesh groups
+     */
+    private static void compare(boolean unions) {
+        MarchStrategy sphereTracing = new SphereTracing(), analyticTracing = new AnalyticTracing();
+        RayHit marched = new RayHit(), analytic = new RayHit();
+        int rays = 0, disagreements = 0, hits = 0, outside = 0;
+
+        for (int i = 0; i < 100; i++) {
+            Random random = new Random(i);
+            Scene scene = new Scene();
+            int count = 1 + random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                Mesh mesh = randomMesh(random);
+                if (unions && random.nextBoolean())
+                    mesh = new MeshGroup(mesh, randomMesh(random), MeshGroup.UNION, Color.WHITE);
+                scene.add(mesh);
+            }
+
+            for (int j = 0; j < 2000; j++) {
+                double x = random.nextDouble() * 4 - 2, y = random.nextDouble() * 4 - 2, z = 6;
+                double dx = random.nextGaussian() * .3, dy = random.nextGaussian() * .3, dz = -1;
+                double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                dx /= length;
+                dy /= length;
+                dz /= length;
+
+                sphereTracing.march(scene, x, y, z, dx, dy, dz, 0, RENDER_DISTANCE, EPSILON, null, marched);
+                analyticTracing.march(scene, x, y, z, dx, dy, dz, 0, RENDER_DISTANCE, EPSILON, null, analytic);
+                rays++;
+                if (marched.isHit() != analytic.isHit()) {
+                    disagreements++;
+                    continue;
+                }
+                if (!marched.isHit())
+                    continue;
+
+                hits++;
+                assertEquals(1, analytic.getSteps());
+                if (Math.abs(analytic.getDistance() - marched.getDistance()) > EPSILON)
+                    outside++;
+            }
+        }
+
+        //only rays which graze a mesh, which marching can step past, may disagree
+        assertTrue(hits > rays / 10, "Only " + hits + " of " + rays + " rays hit");
+        assertTrue(disagreements <= rays / 10000, disagreements + " of " + rays + " rays disagree on a hit");
+        assertTrue(outside <= hits / 1000, outside + " of " + hits + " hits are farther than epsilon apart");
+    }
+
+    /**
+     * Creates a random sphere, box or torus in front of the rays
+     * @param random The source of randomness
+     * @return The mesh
+     */
+    private static Mesh randomMesh(Random random) {
+        Vector3 position = new Vector3(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, 
+            random.nextDouble() * -4);
+        Color color = new Color(random.nextInt(0x1000000));
+        switch (random.nextInt(3)) {
+            case 0:
+                return new Sphere(position, random.nextDouble() + .2, color);
+            case 1:
+                return new Box(position, new Vector3(random.nextDouble() + .1, random.nextDouble() + .1,
+                    random.nextDouble() + .1), color);
+            default:
+                return new Torus(position, random.nextDouble() + .3, random.nextDouble() * .3 + .05, color);
+        }
+    }
+}